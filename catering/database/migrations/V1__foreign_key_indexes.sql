@@ -0,0 +1,16 @@
+-- Secondary indexes on the foreign keys used by the DAO lookups.
+-- ShiftBookings.shift_id is already covered by its (shift_id, staff_member_id) primary key.
+
+CREATE INDEX IF NOT EXISTS `idx_tasks_sumsheet_id` ON `Tasks` (`sumsheet_id`);
+
+CREATE INDEX IF NOT EXISTS `idx_assignment_sumsheet_id` ON `Assignment` (`sumsheet_id`);
+
+CREATE INDEX IF NOT EXISTS `idx_menuitems_menu_section` ON `MenuItems` (`menu_id`, `section_id`);
+
+CREATE INDEX IF NOT EXISTS `idx_staffmemberroles_staff_member_id` ON `StaffMemberRoles` (`staff_member_id`);
+
+CREATE INDEX IF NOT EXISTS `idx_services_event_id` ON `Services` (`event_id`);
+
+CREATE INDEX IF NOT EXISTS `idx_services_approved_menu_id` ON `Services` (`approved_menu_id`);
+
+CREATE INDEX IF NOT EXISTS `idx_holidayleave_staff_member_id` ON `HolidayLeave` (`staff_member_id`);
@@ -0,0 +1,16 @@
+-- Event dates were stored either as the epoch millis of their local midnight (EventDAO) or as
+-- 'YYYY-MM-DD' text (seed data). The millis are rewritten once as the local day, EventDAO now
+-- writes text, and these generated columns expose the day, '' when missing, so events can be
+-- filtered and paged by date through an index with the same day in every time zone.
+
+UPDATE `Events` SET `date_start` = date(`date_start` / 1000, 'unixepoch', 'localtime') WHERE typeof(`date_start`) = 'integer';
+
+UPDATE `Events` SET `date_end` = date(`date_end` / 1000, 'unixepoch', 'localtime') WHERE typeof(`date_end`) = 'integer';
+
+ALTER TABLE `Events` ADD COLUMN `start_day` TEXT GENERATED ALWAYS AS (COALESCE(date(`date_start`), '')) VIRTUAL;
+
+ALTER TABLE `Events` ADD COLUMN `end_day` TEXT GENERATED ALWAYS AS (COALESCE(date(`date_end`), '')) VIRTUAL;
+
+CREATE INDEX IF NOT EXISTS `idx_events_start` ON `Events` (`start_day` DESC, `id` DESC);
+
+CREATE INDEX IF NOT EXISTS `idx_events_chef_start` ON `Events` (`chef_id`, `start_day` DESC, `id` DESC);
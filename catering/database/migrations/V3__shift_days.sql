@@ -0,0 +1,10 @@
+-- Shift dates are read back as 'YYYY-MM-DD' text, but shifts created before ShiftDAO wrote
+-- text hold the epoch millis of their local midnight. Those are rewritten once as the local
+-- day, so a generated column can index every shift by day and day and range lookups go
+-- through the index instead of loading every shift.
+
+UPDATE `Shifts` SET `date` = date(`date` / 1000, 'unixepoch', 'localtime') WHERE typeof(`date`) = 'integer';
+
+ALTER TABLE `Shifts` ADD COLUMN `day` TEXT GENERATED ALWAYS AS (date(`date`)) VIRTUAL;
+
+CREATE INDEX IF NOT EXISTS `idx_shifts_day` ON `Shifts` (`day`);
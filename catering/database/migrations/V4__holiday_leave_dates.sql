@@ -0,0 +1,16 @@
+-- Leave dates were stored either as the epoch millis of their local midnight (HolidayLeaveDAO)
+-- or as 'YYYY-MM-DD' text (seed data). As for events, the millis are rewritten once as the
+-- local day, HolidayLeaveDAO now writes text, and these generated columns expose the day, ''
+-- when missing, so leaves can be filtered by status and period through an index.
+
+UPDATE `HolidayLeave` SET `start_date` = date(`start_date` / 1000, 'unixepoch', 'localtime') WHERE typeof(`start_date`) = 'integer';
+
+UPDATE `HolidayLeave` SET `end_date` = date(`end_date` / 1000, 'unixepoch', 'localtime') WHERE typeof(`end_date`) = 'integer';
+
+ALTER TABLE `HolidayLeave` ADD COLUMN `start_day` TEXT GENERATED ALWAYS AS (COALESCE(date(`start_date`), '')) VIRTUAL;
+
+ALTER TABLE `HolidayLeave` ADD COLUMN `end_day` TEXT GENERATED ALWAYS AS (COALESCE(date(`end_date`), '')) VIRTUAL;
+
+CREATE INDEX IF NOT EXISTS `idx_holidayleave_status_start` ON `HolidayLeave` (`status`, `start_day`);
+
+CREATE INDEX IF NOT EXISTS `idx_holidayleave_start` ON `HolidayLeave` (`start_day`);
@@ -0,0 +1,4 @@
+-- Task positions become sparse ranks (KitchenTaskDAO.RANK_GAP apart), so that moving a
+-- task rewrites only its own row. Existing positions are spread out in the same order.
+
+UPDATE `Tasks` SET `position` = (`position` + 1) * 65536;
@@ -0,0 +1,10 @@
+-- Service dates and times were stored either as epoch millis (ServiceDAO) or as 'YYYY-MM-DD'
+-- and 'HH:MM:SS' text (seed data), and ServiceDAO only read the text back. As for events, the
+-- millis are rewritten once as the local day and time of day, and ServiceDAO now writes text,
+-- so services read back whole and sort by date and time.
+
+UPDATE `Services` SET `service_date` = date(`service_date` / 1000, 'unixepoch', 'localtime') WHERE typeof(`service_date`) = 'integer';
+
+UPDATE `Services` SET `time_start` = time(`time_start` / 1000, 'unixepoch', 'localtime') WHERE typeof(`time_start`) = 'integer';
+
+UPDATE `Services` SET `time_end` = time(`time_end` / 1000, 'unixepoch', 'localtime') WHERE typeof(`time_end`) = 'integer';
@@ -0,0 +1,24 @@
+-- Keyset pages seek on their sort keys and read them in order, so every listing gets an index
+-- on exactly its keys. Recipes and preparations sort on COALESCE(name, ''), which only an index
+-- on the same expression can serve. The shift and leave indexes replace the day-only ones of V3
+-- and V4, whose lookups they also cover.
+--
+-- Shift times were stored either as epoch millis (the baseline ShiftDAO) or as 'HH:MM:SS' text,
+-- and SQLite sorts every integer before any text, so mixed rows paged out of order. The millis
+-- are rewritten once as the local time of day, as V3 did for the dates.
+
+UPDATE `Shifts` SET `start_time` = time(`start_time` / 1000, 'unixepoch', 'localtime') WHERE typeof(`start_time`) = 'integer';
+
+UPDATE `Shifts` SET `end_time` = time(`end_time` / 1000, 'unixepoch', 'localtime') WHERE typeof(`end_time`) = 'integer';
+
+DROP INDEX IF EXISTS `idx_shifts_day`;
+
+CREATE INDEX IF NOT EXISTS `idx_shifts_day_start` ON `Shifts` (`day`, `start_time`, `id`);
+
+DROP INDEX IF EXISTS `idx_holidayleave_start`;
+
+CREATE INDEX IF NOT EXISTS `idx_holidayleave_start_id` ON `HolidayLeave` (`start_day`, `id`);
+
+CREATE INDEX IF NOT EXISTS `idx_recipes_name` ON `Recipes` (COALESCE(`name`, ''), `id`);
+
+CREATE INDEX IF NOT EXISTS `idx_preparations_name` ON `Preparations` (COALESCE(`name`, ''), `id`);
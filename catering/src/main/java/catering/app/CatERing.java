@@ -7,6 +7,7 @@ import catering.domains.menu.domain.MenuManager;
 import catering.domains.recipe.domain.RecipeManager;
 import catering.domains.shift.domain.ShiftManager;
 import catering.domains.staffmember.domain.StaffMemberManager;
+import catering.persistence.PersistenceManager;
 import lombok.Data;
 
 import java.util.logging.Logger;
@@ -31,6 +32,7 @@ public class CatERing {
 
     private CatERing() {
         initializeLogger();
+        initializePersistence();
         initializeManagers();
     }
 
@@ -39,6 +41,10 @@ public class CatERing {
         logger.info("Application started");
     }
 
+    private void initializePersistence() {
+        PersistenceManager.bootstrap();
+    }
+
     private void initializeManagers() {
         menuManager = new MenuManager();
         recipeManager = new RecipeManager();
@@ -0,0 +1,38 @@
+package catering.domains.event.domain;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+
+/**
+ * Which events an event listing returns; unset fields don't filter.
+ */
+@Data
+@NoArgsConstructor
+public class EventFilter {
+
+    // Events starting on or after this day
+    private Date from;
+    // Events starting on or before this day
+    private Date to;
+    // Events assigned to this chef; 0 for any chef
+    private int chefId;
+
+    public static EventFilter all() {
+        return new EventFilter();
+    }
+
+    public static EventFilter between(Date from, Date to) {
+        EventFilter filter = new EventFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+        return filter;
+    }
+
+    public static EventFilter forChef(int chefId) {
+        EventFilter filter = new EventFilter();
+        filter.setChefId(chefId);
+        return filter;
+    }
+}
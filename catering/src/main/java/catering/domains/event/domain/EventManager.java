@@ -7,11 +7,13 @@ import catering.exceptions.UseCaseLogicException;
 import catering.domains.event.infrastructure.ServiceDAO;
 import catering.domains.menu.domain.Menu;
 import catering.domains.staffmember.domain.StaffMember;
+import catering.persistence.Page;
 import catering.utils.LogManager;
 
 import java.sql.Date;
 import java.sql.Time;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -86,6 +88,16 @@ public class EventManager {
         return new ArrayList<>(EventDAO.loadAll());
     }
 
+    /**
+     * Lists one page of events, newest first, without loading chefs, services or menus.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     * @see EventDAO#loadSummaries(EventFilter, String, int)
+     */
+    public Page<EventSummary> getEventSummaries(EventFilter filter, String pageToken, int pageSize) {
+        return EventDAO.loadSummaries(filter != null ? filter : EventFilter.all(), pageToken, pageSize);
+    }
+
 
     // SERVICE
 
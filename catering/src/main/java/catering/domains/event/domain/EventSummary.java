@@ -0,0 +1,19 @@
+package catering.domains.event.domain;
+
+import lombok.Value;
+
+import java.sql.Date;
+
+/**
+ * Read-only row of the event listing: the event without its chef, services and menus.
+ */
+@Value
+public class EventSummary {
+    int id;
+    String name;
+    Date dateStart;
+    Date dateEnd;
+    int chefId;
+    String chefName;
+    int serviceCount;
+}
@@ -4,11 +4,16 @@ import java.sql.Date;
 import java.sql.Time;
 import java.util.ArrayList;
 import java.util.Objects;
+import java.util.function.IntFunction;
 
 import catering.domains.menu.domain.Menu;
 import catering.domains.menu.domain.MenuItem;
+import catering.utils.LazyReference;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 @Data
 @NoArgsConstructor
@@ -20,7 +25,9 @@ public class Service {
     private Time timeEnd;
     private String location;
     private int eventId;
-    private Menu menu;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LazyReference<Menu> menu;
 
     public Service(String name) {
         this.name = name;
@@ -35,19 +42,54 @@ public class Service {
         this.eventId = eventId;
     }
 
+    /**
+     * @return the approved menu, loaded on first access if the service was read from the database
+     */
+    public Menu getMenu() {
+        return (menu != null) ? menu.get() : null;
+    }
+
+    public void setMenu(Menu menu) {
+        this.menu = (menu != null) ? LazyReference.loaded(menu.getId(), menu) : null;
+    }
+
+    /**
+     * Refers to the approved menu by id only; the loader is called the first time the menu is read.
+     */
+    public void setMenuReference(int menuId, IntFunction<Menu> loader) {
+        this.menu = (menuId > 0) ? LazyReference.of(menuId, loader) : null;
+    }
+
+    /**
+     * @return true if the menu has been loaded or there is none
+     */
+    public boolean isMenuLoaded() {
+        return menu == null || menu.isLoaded();
+    }
+
+    /**
+     * Hands over a menu loaded elsewhere, e.g. by a batch prefetch.
+     */
+    public void resolveMenu(Menu loaded) {
+        if (menu != null) {
+            menu.resolve(loaded);
+        }
+    }
+
     public int getMenuId() {
         return (menu != null) ? menu.getId() : 0;
     }
 
     public ArrayList<MenuItem> getMenuItems() {
-        return (menu != null) ? menu.getItems() : new ArrayList<>();
+        Menu m = getMenu();
+        return (m != null) ? m.getItems() : new ArrayList<>();
     }
 
 
     // BUSINESS LOGIC
 
     public void assignMenuToService(Menu menu) {
-        this.menu = menu;
+        setMenu(menu);
     }
 
     public void removeMenu() {
@@ -60,7 +102,7 @@ public class Service {
     @Override
     public String toString() {
         return "Service [id=" + id + ", name=" + name + ", date=" + date + ", location=" + location +
-            ", menu=" + (menu != null ? menu.getTitle() : "none") + "]";
+            ", menu=" + (menu == null ? "none" : menu.isLoaded() ? menu.get().getTitle() : "#" + menu.getId()) + "]";
     }
 
     @Override
@@ -69,13 +111,30 @@ public class Service {
         if (!(obj instanceof Service)) return false;
         Service other = (Service) obj;
 
-        return id > 0 && other.id > 0 ? id == other.id :
+        // Ids only tell saved services apart; the fields below are compared either way
+        return (id <= 0 || other.id <= 0 || id == other.id) &&
             Objects.equals(name, other.name) &&
-                Objects.equals(date, other.date) &&
-                Objects.equals(timeStart, other.timeStart) &&
-                Objects.equals(timeEnd, other.timeEnd) &&
-                Objects.equals(location, other.location) &&
-                Objects.equals(menu, other.menu) &&
-                (eventId <= 0 || other.eventId <= 0 || eventId == other.eventId);
+            Objects.equals(date, other.date) &&
+            Objects.equals(timeStart, other.timeStart) &&
+            Objects.equals(timeEnd, other.timeEnd) &&
+            Objects.equals(location, other.location) &&
+            sameMenu(other) &&
+            (eventId <= 0 || other.eventId <= 0 || eventId == other.eventId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, date, timeStart, timeEnd, location);
+    }
+
+    // Compares by id unless both menus are already loaded, so equality never loads one
+    private boolean sameMenu(Service other) {
+        if (menu == null || other.menu == null) {
+            return menu == other.menu;
+        }
+        if (menu.isLoaded() && other.menu.isLoaded()) {
+            return Objects.equals(menu.get(), other.menu.get());
+        }
+        return menu.getId() == other.menu.getId();
     }
 }
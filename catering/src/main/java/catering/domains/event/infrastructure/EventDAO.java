@@ -1,8 +1,14 @@
 package catering.domains.event.infrastructure;
 
 import catering.domains.event.domain.Event;
+import catering.domains.event.domain.EventFilter;
+import catering.domains.event.domain.EventSummary;
 import catering.domains.event.domain.Service;
+import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.BatchLoader;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
 import catering.utils.DateUtils;
 import catering.utils.LogManager;
@@ -11,24 +17,27 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class EventDAO {
     private final static Logger LOGGER = LogManager.getLogger(EventDAO.class);
 
+    // start_day is '' for events without a start date, so it is never NULL
+    private static final Keyset SUMMARY_PAGES = Keyset.descending("event summaries", "e.start_day", "e.id");
+
     public static void save(Event event) {
         String query = "INSERT INTO Events (name, date_start, date_end, chef_id) VALUES (?, ?, ?, ?)";
 
-        Long startTimestamp = event.getDateStart() != null ? event.getDateStart().getTime() : null;
-        Long endTimestamp = event.getDateEnd() != null ? event.getDateEnd().getTime() : null;
-
-        PersistenceManager.executeUpdate(query,
+        int id = PersistenceManager.executeInsert(query,
             event.getName(),
-            startTimestamp,
-            endTimestamp,
+            DateUtils.toDayKey(event.getDateStart()),
+            DateUtils.toDayKey(event.getDateEnd()),
             event.getChefId());
 
-        event.setId(PersistenceManager.getLastId());
+        event.setId(id);
 
         LOGGER.info("Saved event: " + event.getName() + " (ID: " + event.getId() + ")");
     }
@@ -36,13 +45,10 @@ public class EventDAO {
     public static void update(Event event) {
         String query = "UPDATE Events SET name = ?, date_start = ?, date_end = ?, chef_id = ? WHERE id = ?";
 
-        Long startTimestamp = event.getDateStart() != null ? event.getDateStart().getTime() : null;
-        Long endTimestamp = event.getDateEnd() != null ? event.getDateEnd().getTime() : null;
-
         PersistenceManager.executeUpdate(query,
             event.getName(),
-            startTimestamp,
-            endTimestamp,
+            DateUtils.toDayKey(event.getDateStart()),
+            DateUtils.toDayKey(event.getDateEnd()),
             event.getChefId(),
             event.getId());
 
@@ -68,25 +74,78 @@ public class EventDAO {
         return success;
     }
 
+    /**
+     * Loads every event with its services; a chef shared by several events is loaded once.
+     */
     public static List<Event> loadAll() {
-        List<Event> events = new ArrayList<>();
+        return PersistenceManager.inSession(() -> {
+            List<Event> events = new ArrayList<>();
+            BatchLoader<Integer, StaffMember> chefs = new BatchLoader<>(StaffMemberDAO::loadByIds);
+            PersistenceManager.executeQuery("SELECT * FROM Events ORDER BY date_start DESC", rs -> {
+                Event e = mapRow(rs);
+                chefs.load(rs.getInt("chef_id"), e::setChef);
+                events.add(e);
+            });
+            chefs.dispatch();
+
+            // Every service belongs to some event, so one pass over all of them fills every event
+            Map<Integer, List<Service>> services;
+            try (Stream<Service> all = ServiceDAO.streamAll()) {
+                services = all.collect(Collectors.groupingBy(Service::getEventId, Collectors.toCollection(ArrayList::new)));
+            }
+            events.forEach(e -> e.setServices(services.getOrDefault(e.getId(), new ArrayList<>())));
+            return events;
+        });
+    }
+
+    /**
+     * Streams every event with its services, newest first, one row at a time.
+     * The stream must be closed.
+     */
+    public static Stream<Event> streamAll() {
         String query = "SELECT * FROM Events ORDER BY date_start DESC";
 
-        PersistenceManager.executeQuery(query, rs -> {
+        return PersistenceManager.stream(query, rs -> {
             Event e = fromResultSet(rs);
-            events.add(e);
-        });
-
-        // Load services for each event using ServiceDAO
-        for (Event e : events) {
+            // Load services for each event using ServiceDAO
             try {
                 e.setServices(ServiceDAO.loadAllForEvent(e.getId()));
             } catch (Exception ex) {
                 e.setServices(new ArrayList<>());
             }
+            return e;
+        });
+    }
+
+    /**
+     * Lists one page of events, newest first, as flat summaries read by a single query.
+     * Pages are chained by keyset, so deep pages cost the same as the first.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     * @param limit     maximum number of summaries returned
+     */
+    public static Page<EventSummary> loadSummaries(EventFilter filter, String pageToken, int limit) {
+        StringBuilder query = new StringBuilder(
+            "SELECT e.id, e.name, e.start_day, e.end_day, e.chef_id, sm.name AS chef_name, " +
+                "sm.surname AS chef_surname, " +
+                "(SELECT COUNT(*) FROM Services s WHERE s.event_id = e.id) AS service_count " +
+                "FROM Events e LEFT JOIN StaffMembers sm ON sm.id = e.chef_id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        if (filter.getChefId() > 0) {
+            query.append(" AND e.chef_id = ?");
+            params.add(filter.getChefId());
+        }
+        if (filter.getFrom() != null) {
+            query.append(" AND e.start_day >= ?");
+            params.add(DateUtils.toDayKey(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            query.append(" AND e.start_day <= ?");
+            params.add(DateUtils.toDayKey(filter.getTo()));
         }
 
-        return events;
+        return SUMMARY_PAGES.page(query.toString(), EventDAO::summaryFromResultSet, pageToken, limit, params.toArray());
     }
 
     public static Event loadById(int id) {
@@ -120,12 +179,23 @@ public class EventDAO {
         return event;
     }
 
+    private static EventSummary summaryFromResultSet(ResultSet rs) throws SQLException {
+        String chefName = rs.getString("chef_name");
+        if (chefName != null) {
+            chefName = (chefName + " " + rs.getString("chef_surname")).trim();
+        }
+        return new EventSummary(
+            rs.getInt("id"),
+            rs.getString("name"),
+            DateUtils.fromDayKey(rs.getString("start_day")),
+            DateUtils.fromDayKey(rs.getString("end_day")),
+            rs.getInt("chef_id"),
+            chefName,
+            rs.getInt("service_count"));
+    }
+
     private static Event fromResultSet(ResultSet rs) throws SQLException {
-        Event e = new Event();
-        e.setId(rs.getInt("id"));
-        e.setName(rs.getString("name"));
-        e.setDateStart(DateUtils.getDateFromResultSet(rs, "date_start"));
-        e.setDateEnd(DateUtils.getDateFromResultSet(rs, "date_end"));
+        Event e = mapRow(rs);
 
         try {
             e.setChef(StaffMemberDAO.loadById(rs.getInt("chef_id")));
@@ -135,4 +205,14 @@ public class EventDAO {
 
         return e;
     }
+
+    // The event without its chef, for callers that batch the chefs
+    private static Event mapRow(ResultSet rs) throws SQLException {
+        Event e = new Event();
+        e.setId(rs.getInt("id"));
+        e.setName(rs.getString("name"));
+        e.setDateStart(DateUtils.fromDayKey(rs.getString("start_day")));
+        e.setDateEnd(DateUtils.fromDayKey(rs.getString("end_day")));
+        return e;
+    }
 }
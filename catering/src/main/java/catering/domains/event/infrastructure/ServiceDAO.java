@@ -3,11 +3,18 @@ package catering.domains.event.infrastructure;
 import catering.domains.event.domain.Service;
 import catering.domains.menu.domain.Menu;
 import catering.domains.menu.infrastructure.MenuDAO;
+import catering.persistence.BatchLoader;
 import catering.persistence.PersistenceManager;
+import catering.utils.DateUtils;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 public class ServiceDAO {
 
@@ -17,30 +24,26 @@ public class ServiceDAO {
         String query = "INSERT INTO Services (event_id, name, service_date, time_start, time_end, location) " +
             "VALUES (?, ?, ?, ?, ?, ?)";
 
-        Long dateTimestamp = (service.getDate() != null) ? service.getDate().getTime() : null;
-
-        PersistenceManager.executeUpdate(query,
+        int id = PersistenceManager.executeInsert(query,
             service.getEventId(),
             service.getName(),
-            dateTimestamp,
-            service.getTimeStart(),
-            service.getTimeEnd(),
+            DateUtils.toDayKey(service.getDate()),
+            DateUtils.toTimeKey(service.getTimeStart()),
+            DateUtils.toTimeKey(service.getTimeEnd()),
             service.getLocation());
 
-        service.setId(PersistenceManager.getLastId());
+        service.setId(id);
     }
 
     public static void update(Service service) {
         String query = "UPDATE Services SET name = ?, service_date = ?, time_start = ?, time_end = ?, location = ? " +
             "WHERE id = ?";
 
-        Long dateTimestamp = (service.getDate() != null) ? service.getDate().getTime() : null;
-
         PersistenceManager.executeUpdate(query,
             service.getName(),
-            dateTimestamp,
-            service.getTimeStart(),
-            service.getTimeEnd(),
+            DateUtils.toDayKey(service.getDate()),
+            DateUtils.toTimeKey(service.getTimeStart()),
+            DateUtils.toTimeKey(service.getTimeEnd()),
             service.getLocation(),
             service.getId());
     }
@@ -55,6 +58,14 @@ public class ServiceDAO {
         return loadServiceByQuery(query, id);
     }
 
+    /**
+     * @return the services found, by id; unknown ids are left out
+     */
+    public static Map<Integer, Service> loadByIds(Collection<Integer> ids) {
+        return BatchLoader.<Integer, Service>queryByKeys("SELECT * FROM Services WHERE id IN (%s)",
+            ServiceDAO::mapResultSetToService, Service::getId).apply(new ArrayList<>(ids));
+    }
+
     public static Service loadByName(String name) {
         String query = "SELECT * FROM Services WHERE name = ?";
         return loadServiceByQuery(query, name);
@@ -72,6 +83,14 @@ public class ServiceDAO {
         return services;
     }
 
+    /**
+     * Streams every service in date order, one row at a time. The stream must be closed.
+     */
+    public static Stream<Service> streamAll() {
+        String query = "SELECT * FROM Services ORDER BY service_date, time_start";
+        return PersistenceManager.stream(query, ServiceDAO::mapResultSetToService);
+    }
+
     public static void assignMenu(Service service, Menu menu) {
         String query = "UPDATE Services SET approved_menu_id = ? WHERE id = ?";
         PersistenceManager.executeUpdate(query, menu.getId(), service.getId());
@@ -89,6 +108,30 @@ public class ServiceDAO {
     }
 
 
+    /**
+     * Loads, in one batch, the approved menus the given services haven't loaded yet.
+     * Use it before walking the menus of many services.
+     */
+    public static void prefetchMenus(Collection<Service> services) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Service s : services) {
+            if (!s.isMenuLoaded()) {
+                ids.add(s.getMenuId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Menu> menus = MenuDAO.loadByIds(ids);
+        for (Service s : services) {
+            if (!s.isMenuLoaded()) {
+                s.resolveMenu(menus.get(s.getMenuId()));
+            }
+        }
+    }
+
+
     // HELPERS
     private static Service loadServiceByQuery(String query, Object param) {
         final Service[] holder = new Service[1];
@@ -100,6 +143,15 @@ public class ServiceDAO {
         return holder[0];
     }
 
+    private static Menu loadMenu(int menuId) {
+        Menu menu = MenuDAO.load(menuId);
+        if (menu.getId() == 0) {
+            LOGGER.warning("Could not load menu ID " + menuId);
+            return null;
+        }
+        return menu;
+    }
+
     private static Service mapResultSetToService(ResultSet rs) throws SQLException {
         Service s = new Service();
         s.setId(rs.getInt("id"));
@@ -110,7 +162,7 @@ public class ServiceDAO {
             String startTimeStr = rs.getString("time_start");
             String endTimeStr = rs.getString("time_end");
 
-            if (dateStr != null && !dateStr.isEmpty()) s.setDate(Date.valueOf(dateStr));
+            s.setDate(DateUtils.fromDayKey(dateStr));
             if (startTimeStr != null && !startTimeStr.isEmpty()) s.setTimeStart(Time.valueOf(startTimeStr));
             if (endTimeStr != null && !endTimeStr.isEmpty()) s.setTimeEnd(Time.valueOf(endTimeStr));
 
@@ -121,14 +173,7 @@ public class ServiceDAO {
         s.setLocation(rs.getString("location"));
         s.setEventId(rs.getInt("event_id"));
 
-        int menuId = rs.getInt("approved_menu_id");
-        if (menuId > 0) {
-            try {
-                s.setMenu(MenuDAO.load(menuId));
-            } catch (Exception e) {
-                LOGGER.warning("Could not load menu ID " + menuId + " for service ID " + s.getId());
-            }
-        }
+        s.setMenuReference(rs.getInt("approved_menu_id"), ServiceDAO::loadMenu);
 
         return s;
     }
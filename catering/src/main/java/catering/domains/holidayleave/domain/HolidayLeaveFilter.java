@@ -0,0 +1,41 @@
+package catering.domains.holidayleave.domain;
+
+import catering.domains.holidayleave.domain.HolidayLeave.RequestStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+
+/**
+ * Which leaves a leave listing returns; unset fields don't filter.
+ */
+@Data
+@NoArgsConstructor
+public class HolidayLeaveFilter {
+
+    private RequestStatus status;
+    // Leaves still running on or after this day
+    private Date from;
+    // Leaves starting on or before this day
+    private Date to;
+
+    public static HolidayLeaveFilter all() {
+        return new HolidayLeaveFilter();
+    }
+
+    public static HolidayLeaveFilter withStatus(RequestStatus status) {
+        HolidayLeaveFilter filter = new HolidayLeaveFilter();
+        filter.setStatus(status);
+        return filter;
+    }
+
+    /**
+     * Leaves overlapping the period, both days included.
+     */
+    public static HolidayLeaveFilter overlapping(Date from, Date to) {
+        HolidayLeaveFilter filter = new HolidayLeaveFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+        return filter;
+    }
+}
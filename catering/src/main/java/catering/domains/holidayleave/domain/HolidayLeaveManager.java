@@ -11,6 +11,7 @@ import catering.utils.LogManager;
 import lombok.Data;
 
 import java.util.Date;
+import java.util.List;
 import java.util.logging.Logger;
 
 @Data
@@ -36,6 +37,16 @@ public class HolidayLeaveManager {
         return leave;
     }
 
+    // Pending requests, oldest period first, for the approval dashboard
+    public List<HolidayLeave> getPendingLeaves() {
+        return HolidayLeaveDAO.loadByStatus(HolidayLeave.RequestStatus.IN_ATTESA);
+    }
+
+    // Leaves overlapping a period, e.g. to check who is away
+    public List<HolidayLeave> getLeavesBetween(java.sql.Date from, java.sql.Date to) {
+        return HolidayLeaveDAO.loadByFilter(HolidayLeaveFilter.overlapping(from, to));
+    }
+
     // Cancel a pending request by the same staff member
     public boolean cancelLeave(HolidayLeave leave) throws UseCaseLogicException {
         StaffMember currentStaffMember = CatERing.getInstance().getStaffMemberManager().getCurrentStaffMember();
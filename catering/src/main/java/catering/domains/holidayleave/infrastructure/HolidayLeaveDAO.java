@@ -2,9 +2,16 @@ package catering.domains.holidayleave.infrastructure;
 
 import catering.domains.holidayleave.domain.HolidayLeave;
 import catering.domains.holidayleave.domain.HolidayLeave.RequestStatus;
+import catering.domains.holidayleave.domain.HolidayLeaveFilter;
 import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.BatchLoader;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
+import catering.persistence.Session;
+import catering.persistence.WriteResult;
+import catering.utils.DateUtils;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -13,54 +20,77 @@ import java.util.List;
 
 public class HolidayLeaveDAO {
 
+    private static final Keyset PAGES = Keyset.ascending("holiday leaves", "start_day", "id");
+
     public static HolidayLeave loadById(int id) {
-        HolidayLeave leave = new HolidayLeave();
-        String query = "SELECT * FROM HolidayLeave WHERE id = ?";
-        PersistenceManager.executeQuery(query, rs -> mapHolidayLeave(rs, leave), id);
-        return leave.getId() > 0 ? leave : null;
+        List<HolidayLeave> leaves = loadLeaves("SELECT * FROM HolidayLeave WHERE id = ?", id);
+        return leaves.isEmpty() ? null : leaves.get(0);
     }
 
     public static List<HolidayLeave> loadAll() {
-        List<HolidayLeave> leaves = new ArrayList<>();
-        String query = "SELECT * FROM HolidayLeave";
-        PersistenceManager.executeQuery(query, rs -> {
-            HolidayLeave leave = new HolidayLeave();
-            mapHolidayLeave(rs, leave);
-            leaves.add(leave);
-        });
-        return leaves;
+        return loadLeaves("SELECT * FROM HolidayLeave");
     }
 
     public static List<HolidayLeave> loadByStaffMember(StaffMember staff) {
-        List<HolidayLeave> leaves = new ArrayList<>();
-        String query = "SELECT * FROM HolidayLeave WHERE staff_member_id = ?";
-        PersistenceManager.executeQuery(query, rs -> {
-            HolidayLeave leave = new HolidayLeave();
-            mapHolidayLeave(rs, leave);
-            leaves.add(leave);
-        }, staff.getId());
-        return leaves;
+        return PersistenceManager.inSession(() -> {
+            // The requester of every row is the given staff member
+            Session.attach(StaffMember.class, staff.getId(), staff);
+            return loadLeaves("SELECT * FROM HolidayLeave WHERE staff_member_id = ?", staff.getId());
+        });
+    }
+
+    public static List<HolidayLeave> loadByStatus(RequestStatus status) {
+        return loadByFilter(HolidayLeaveFilter.withStatus(status));
+    }
+
+    /**
+     * Loads the leaves matching the filter, by start date, with two queries whatever their number.
+     */
+    public static List<HolidayLeave> loadByFilter(HolidayLeaveFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String query = "SELECT * FROM HolidayLeave WHERE 1 = 1" + conditions(filter, params) + " ORDER BY start_day, id";
+        return loadLeaves(query, params.toArray());
+    }
+
+    /**
+     * Lists the leaves matching the filter by start date, one page at a time, each with two queries.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<HolidayLeave> loadPage(HolidayLeaveFilter filter, String pageToken, int limit) {
+        List<Object> params = new ArrayList<>();
+        String query = "SELECT * FROM HolidayLeave WHERE 1 = 1" + conditions(filter, params);
+        return PersistenceManager.inSession(() -> {
+            BatchLoader<Integer, StaffMember> requesters = new BatchLoader<>(StaffMemberDAO::loadByIds);
+            Page<HolidayLeave> page = PAGES.page(query, rs -> {
+                HolidayLeave leave = mapHolidayLeave(rs);
+                requesters.load(rs.getInt("staff_member_id"), leave::setStaffMember);
+                return leave;
+            }, pageToken, limit, params.toArray());
+            requesters.dispatch();
+            return page;
+        });
     }
 
     public static void save(HolidayLeave leave) {
         String query = "INSERT INTO HolidayLeave (staff_member_id, start_date, end_date, status) VALUES (?, ?, ?, ?)";
-        PersistenceManager.executeUpdate(query,
+        int id = PersistenceManager.executeInsert(query,
                 leave.getStaffMember().getId(),
-                leave.getStartDate(),
-                leave.getEndDate(),
+                DateUtils.toDayKey(leave.getStartDate()),
+                DateUtils.toDayKey(leave.getEndDate()),
                 leave.getStatus().name());
 
-        leave.setId(PersistenceManager.getLastId());
+        leave.setId(id);
     }
 
     public static boolean update(HolidayLeave leave) {
         String query = "UPDATE HolidayLeave SET start_date = ?, end_date = ?, status = ? WHERE id = ?";
-        int updated = PersistenceManager.executeUpdate(query,
-                leave.getStartDate(),
-                leave.getEndDate(),
+        WriteResult result = PersistenceManager.executeQueuedUpdate(query,
+                DateUtils.toDayKey(leave.getStartDate()),
+                DateUtils.toDayKey(leave.getEndDate()),
                 leave.getStatus().name(),
                 leave.getId());
-        return updated > 0;
+        return result.getRows() > 0;
     }
 
     public static boolean delete(HolidayLeave leave) {
@@ -73,12 +103,47 @@ public class HolidayLeaveDAO {
         return false;
     }
 
-    private static void mapHolidayLeave(ResultSet rs, HolidayLeave leave) throws SQLException {
+
+    // HELPERS
+
+    private static String conditions(HolidayLeaveFilter filter, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (filter.getStatus() != null) {
+            where.append(" AND status = ?");
+            params.add(filter.getStatus().name());
+        }
+        if (filter.getFrom() != null) {
+            where.append(" AND end_day >= ?");
+            params.add(DateUtils.toDayKey(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            where.append(" AND start_day <= ?");
+            params.add(DateUtils.toDayKey(filter.getTo()));
+        }
+        return where.toString();
+    }
+
+    // The rows are read first; their requesters are then loaded in one batch, once the cursor is closed
+    private static List<HolidayLeave> loadLeaves(String query, Object... params) {
+        List<HolidayLeave> leaves = new ArrayList<>();
+        PersistenceManager.runInSession(() -> {
+            BatchLoader<Integer, StaffMember> requesters = new BatchLoader<>(StaffMemberDAO::loadByIds);
+            PersistenceManager.executeQuery(query, rs -> {
+                HolidayLeave leave = mapHolidayLeave(rs);
+                requesters.load(rs.getInt("staff_member_id"), leave::setStaffMember);
+                leaves.add(leave);
+            }, params);
+            requesters.dispatch();
+        });
+        return leaves;
+    }
+
+    private static HolidayLeave mapHolidayLeave(ResultSet rs) throws SQLException {
+        HolidayLeave leave = new HolidayLeave();
         leave.setId(rs.getInt("id"));
-        leave.setStartDate(rs.getDate("start_date"));
-        leave.setEndDate(rs.getDate("end_date"));
+        leave.setStartDate(DateUtils.fromDayKey(rs.getString("start_day")));
+        leave.setEndDate(DateUtils.fromDayKey(rs.getString("end_day")));
         leave.setStatus(RequestStatus.valueOf(rs.getString("status")));
-        StaffMember staff = StaffMemberDAO.loadById(rs.getInt("staff_member_id"));
-        leave.setStaffMember(staff);
+        return leave;
     }
 }
@@ -2,6 +2,7 @@ package catering.domains.kitchen.domain;
 
 import catering.domains.recipe.domain.KitchenProcess;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 /**
@@ -17,6 +18,9 @@ public class KitchenTask {
     private int portions;
     private boolean ready;
     private boolean type; // true = Recipe, false = Preparation
+    // Sort key of the stored task within its sheet, not its index: ranks are spaced apart
+    @EqualsAndHashCode.Exclude
+    private long rank;
 
     public KitchenTask(KitchenProcess process, String description) {
         this.id = 0;
@@ -53,6 +53,20 @@ public class KitchenTaskManager {
         return SummarySheetDAO.loadAll();
     }
 
+    /**
+     * Lists the summary sheets to pick from, without loading their tasks and assignments.
+     */
+    public List<SummarySheetHeader> loadSumSheetHeaders() {
+        return SummarySheetDAO.loadHeaders();
+    }
+
+    public SummarySheet openSumSheet(SummarySheetHeader header) throws UseCaseLogicException, SummarySheetException {
+        SummarySheet ss = SummarySheetDAO.loadById(header.getId());
+        if (ss == null)
+            throw new SummarySheetException("SummarySheet " + header.getId() + " not found");
+        return openSumSheet(ss);
+    }
+
     public SummarySheet openSumSheet(SummarySheet ss) throws UseCaseLogicException, SummarySheetException {
         StaffMember staffMember = CatERing.getInstance().getStaffMemberManager().getCurrentStaffMember();
         AuthorizationService.requireCurrentUserHasRole(StaffMember.Role.CHEF);
@@ -69,7 +83,7 @@ public class KitchenTaskManager {
     public void addKitchenTask(KitchenTask t) {
         KitchenTask kitchenTask = currentSummarySheet.addTask(t);
 
-        KitchenTaskDAO.saveNewTask(currentSummarySheet.getId(), kitchenTask, currentSummarySheet.getTaskPosition(kitchenTask));
+        SummarySheetDAO.saveNewTask(currentSummarySheet, kitchenTask);
         KitchenTaskPublisher.notifyTaskAdded(kitchenTask, currentSummarySheet);
     }
 
@@ -80,7 +94,7 @@ public class KitchenTaskManager {
             throw new IllegalArgumentException();
         this.currentSummarySheet.moveTask(t, pos);
 
-        SummarySheetDAO.updateTaskPositions(currentSummarySheet);
+        SummarySheetDAO.updateTaskPosition(currentSummarySheet, t);
         KitchenTaskPublisher.notifyTaskListSorted(currentSummarySheet);
     }
 
@@ -5,11 +5,17 @@ import catering.domains.shift.domain.Shift;
 import catering.domains.staffmember.domain.StaffMember;
 import catering.exceptions.SummarySheetException;
 import catering.exceptions.UseCaseLogicException;
+import catering.utils.IndexedList;
+import catering.utils.LazyReference;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * Domain model for a summary sheet in the kitchen process.
@@ -20,17 +26,78 @@ public class SummarySheet {
     private int id;
     private Service service;
     private StaffMember owner;
-    private List<KitchenTask> tasks;
-    private List<Assignment> assignments;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LazyReference<IndexedList<KitchenTask>> tasks;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LazyReference<List<Assignment>> assignments;
 
     public SummarySheet(Service service, StaffMember owner) {
         this.service = service;
         this.owner = owner;
-        this.tasks = new ArrayList<>();
-        this.assignments = new ArrayList<>();
+        setTasks(new IndexedList<>());
+        setAssignments(new ArrayList<>());
 
         service.getMenu().getKitchenProcesses()
-            .forEach(process -> tasks.add(new KitchenTask(process, process.getName())));
+            .forEach(process -> getTasks().add(new KitchenTask(process, process.getName())));
+    }
+
+    /**
+     * @return the tasks in order, loaded on first access if the sheet was read from the database.
+     * Positions, membership and moves go by identity, in O(log n).
+     */
+    public List<KitchenTask> getTasks() {
+        return (tasks != null) ? tasks.get() : null;
+    }
+
+    public void setTasks(List<KitchenTask> tasks) {
+        this.tasks = (tasks != null) ? LazyReference.loaded(id, indexed(tasks)) : null;
+    }
+
+    /**
+     * @return the assignments, loaded on first access if the sheet was read from the database
+     */
+    public List<Assignment> getAssignments() {
+        return (assignments != null) ? assignments.get() : null;
+    }
+
+    public void setAssignments(List<Assignment> assignments) {
+        this.assignments = (assignments != null) ? LazyReference.loaded(id, assignments) : null;
+    }
+
+    /**
+     * Defers loading the tasks and assignments until first read; the loaders are called with the sheet id.
+     */
+    public void setLoaders(IntFunction<List<KitchenTask>> taskLoader, IntFunction<List<Assignment>> assignmentLoader) {
+        this.tasks = LazyReference.of(id, sheetId -> indexed(taskLoader.apply(sheetId)));
+        this.assignments = LazyReference.of(id, assignmentLoader);
+    }
+
+    public boolean isTasksLoaded() {
+        return tasks == null || tasks.isLoaded();
+    }
+
+    public boolean isAssignmentsLoaded() {
+        return assignments == null || assignments.isLoaded();
+    }
+
+    /**
+     * Hands over tasks loaded elsewhere, e.g. by a batch prefetch.
+     */
+    public void resolveTasks(List<KitchenTask> loaded) {
+        if (tasks != null) {
+            tasks.resolve(indexed(loaded));
+        }
+    }
+
+    /**
+     * Hands over assignments loaded elsewhere, e.g. by a batch prefetch.
+     */
+    public void resolveAssignments(List<Assignment> loaded) {
+        if (assignments != null) {
+            assignments.resolve(loaded);
+        }
     }
 
     public boolean isOwner(StaffMember user) {
@@ -41,21 +108,20 @@ public class SummarySheet {
     // BUSINESS LOGIC - TASKS
 
     public KitchenTask addTask(KitchenTask task) {
-        this.tasks.add(task);
+        getTasks().add(task);
         return task;
     }
 
     public void moveTask(KitchenTask task, int newPosition) {
-        tasks.remove(task);
-        tasks.add(newPosition, task);
+        indexed(getTasks()).move(task, newPosition);
     }
 
     public int getTaskPosition(KitchenTask task) {
-        return tasks.indexOf(task);
+        return getTasks().indexOf(task);
     }
 
     public KitchenTask setTaskReady(KitchenTask task) throws UseCaseLogicException {
-        if (!tasks.contains(task)) {
+        if (!getTasks().contains(task)) {
             throw new UseCaseLogicException("Task not in summary sheet");
         }
         task.setReady();
@@ -63,7 +129,7 @@ public class SummarySheet {
     }
 
     public int getTaskListSize() {
-        return tasks.size();
+        return getTasks().size();
     }
 
     public KitchenTask addTaskInformation(KitchenTask task, int quantity, int portions, long minutes) {
@@ -77,12 +143,12 @@ public class SummarySheet {
 
     public Assignment addAssignment(KitchenTask task, Shift shift, StaffMember cook) {
         Assignment assignment = new Assignment(task, shift, cook);
-        assignments.add(assignment);
+        getAssignments().add(assignment);
         return assignment;
     }
 
     public Assignment modifyAssignment(Assignment ass, Shift shift, StaffMember cook) throws SummarySheetException {
-        if (!assignments.contains(ass)) {
+        if (!getAssignments().contains(ass)) {
             throw new SummarySheetException("Assignment not part of this summary sheet");
         }
         ass.setShift(shift);
@@ -91,13 +157,23 @@ public class SummarySheet {
     }
 
     public Assignment deleteAssignment(Assignment ass) throws UseCaseLogicException {
-        if (!assignments.remove(ass)) {
+        if (!getAssignments().remove(ass)) {
             throw new UseCaseLogicException("Assignment not found");
         }
         return ass;
     }
 
 
+    // HELPERS
+
+    private static IndexedList<KitchenTask> indexed(List<KitchenTask> tasks) {
+        if (tasks == null || tasks instanceof IndexedList) {
+            return (IndexedList<KitchenTask>) tasks;
+        }
+        return new IndexedList<>(tasks);
+    }
+
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("\n\nSummarySheet [ID: ")
@@ -105,6 +181,13 @@ public class SummarySheet {
             .append(", Owner: ").append(owner != null ? owner.getEmail() : "none");
 
         sb.append(", Service: ").append(service != null ? service.getName() : "none");
+        // Not loaded on purpose: printing a sheet picked from a listing shouldn't read all its tasks
+        if (!isTasksLoaded() || !isAssignmentsLoaded()) {
+            return sb.append(", Tasks: not loaded]").toString();
+        }
+
+        List<KitchenTask> tasks = getTasks();
+        List<Assignment> assignments = getAssignments();
         sb.append(", Tasks: ").append(tasks != null ? tasks.size() : 0);
         sb.append(", Assignments: ").append(assignments != null ? assignments.size() : 0).append("]");
 
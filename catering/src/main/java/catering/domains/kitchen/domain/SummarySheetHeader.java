@@ -0,0 +1,17 @@
+package catering.domains.kitchen.domain;
+
+import lombok.Value;
+
+/**
+ * Read-only row of the summary sheet listing: enough to pick a sheet without loading it.
+ */
+@Value
+public class SummarySheetHeader {
+    int id;
+    int serviceId;
+    String serviceName;
+    int ownerId;
+    String ownerName;
+    int taskCount;
+    int assignmentCount;
+}
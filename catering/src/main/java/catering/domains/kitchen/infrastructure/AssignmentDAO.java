@@ -1,16 +1,22 @@
 package catering.domains.kitchen.infrastructure;
 
 import catering.domains.kitchen.domain.Assignment;
+import catering.domains.kitchen.domain.KitchenTask;
+import catering.domains.shift.domain.Shift;
 import catering.domains.shift.infrastructure.ShiftDAO;
+import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.infrastructure.StaffMemberDAO;
-import catering.persistence.BatchUpdateHandler;
+import catering.persistence.BatchLoader;
+import catering.persistence.BatchScope;
 import catering.persistence.PersistenceManager;
+import catering.persistence.WriteResult;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for Assignment
@@ -18,61 +24,86 @@ import java.util.List;
 public class AssignmentDAO {
 
     public static List<Assignment> loadAllBySummarySheetId(int summarySheetID) {
-        String query = "SELECT * FROM Assignment WHERE sumsheet_id = ?";
-        List<Assignment> assignments = new ArrayList<>();
-        List<Integer> shiftIds = new ArrayList<>();
-        List<Integer> taskIds = new ArrayList<>();
-        List<Integer> cookIds = new ArrayList<>();
-
-        PersistenceManager.executeQuery(query, rs -> {
-            Assignment a = new Assignment();
-            a.setId(rs.getInt("id"));
+        return loadAllBySummarySheetIds(List.of(summarySheetID), List.of()).get(summarySheetID);
+    }
 
-            shiftIds.add(rs.getInt("shift_id"));
-            taskIds.add(rs.getInt("task_id"));
-            cookIds.add(rs.getInt("cook_id"));
+    /**
+     * Loads the assignments of a sheet whose tasks are already loaded; assignments refer to those
+     * same task instances instead of loading copies.
+     */
+    public static List<Assignment> loadAllBySummarySheetId(int summarySheetID, Collection<KitchenTask> sheetTasks) {
+        return loadAllBySummarySheetIds(List.of(summarySheetID), sheetTasks).get(summarySheetID);
+    }
 
-            assignments.add(a);
-        }, summarySheetID);
+    /**
+     * Loads the assignments of several summary sheets in a fixed number of queries: one for the
+     * assignments (per 500 sheets), then one batch each for their shifts (with bookings), tasks and cooks.
+     *
+     * @param loadedTasks tasks already loaded for these sheets, reused instead of loaded again
+     * @return the assignments of each sheet, by sheet id; every id is present
+     */
+    public static Map<Integer, List<Assignment>> loadAllBySummarySheetIds(Collection<Integer> summarySheetIds,
+                                                                        Collection<KitchenTask> loadedTasks) {
+        Map<Integer, List<Assignment>> assignmentsBySheet = new LinkedHashMap<>();
+        for (Integer id : summarySheetIds) {
+            assignmentsBySheet.put(id, new ArrayList<>());
+        }
+        if (assignmentsBySheet.isEmpty()) {
+            return assignmentsBySheet;
+        }
 
-        for (int i = 0; i < assignments.size(); i++) {
-            Assignment a = assignments.get(i);
-            a.setShift(ShiftDAO.loadById(shiftIds.get(i)));
-            a.setTask(KitchenTaskDAO.loadById(taskIds.get(i)));
-            int cookId = cookIds.get(i);
-            a.setCook(cookId > 0 ? StaffMemberDAO.loadById(cookId) : null);
+        String query = "SELECT * FROM Assignment WHERE sumsheet_id IN (%s) ORDER BY sumsheet_id, id";
+        Map<Integer, KitchenTask> knownTasks = new HashMap<>();
+        for (KitchenTask task : loadedTasks) {
+            knownTasks.put(task.getId(), task);
         }
 
-        return assignments;
+        // One session for all the references, so a cook who is also booked on the shift is the same instance
+        PersistenceManager.runInSession(() -> {
+            BatchScope references = new BatchScope();
+            BatchLoader<Integer, Shift> shifts = references.loader(ShiftDAO::loadByIds);
+            BatchLoader<Integer, KitchenTask> tasks = references.loader(ids -> loadTasks(ids, knownTasks));
+            BatchLoader<Integer, StaffMember> cooks = references.loader(StaffMemberDAO::loadByIds);
+
+            BatchLoader.queryInChunks(query, assignmentsBySheet.keySet(), rs -> {
+                Assignment a = new Assignment();
+                a.setId(rs.getInt("id"));
+                shifts.load(rs.getInt("shift_id"), a::setShift);
+                tasks.load(rs.getInt("task_id"), a::setTask);
+                int cookId = rs.getInt("cook_id");
+                if (cookId > 0) {
+                    cooks.load(cookId, cook -> a.setCook(cook != null ? cook : new StaffMember()));
+                }
+                assignmentsBySheet.get(rs.getInt("sumsheet_id")).add(a);
+            });
+
+            references.dispatch();
+        });
+        return assignmentsBySheet;
     }
 
     public static void save(int summarySheetID, Assignment assignment) {
         String query = "INSERT INTO Assignment (sumsheet_id, shift_id, task_id, cook_id) VALUES (?, ?, ?, ?)";
-        PersistenceManager.executeUpdate(query,
+        WriteResult result = PersistenceManager.executeQueuedUpdate(query,
             summarySheetID,
             assignment.getShift().getId(),
             assignment.getTask().getId(),
             assignment.getCook() != null ? assignment.getCook().getId() : 0);
-        assignment.setId(PersistenceManager.getLastId());
+        assignment.setId(result.getGeneratedKey());
     }
 
     public static void saveAllNewAssignments(int summarySheetID, List<Assignment> assignments) {
         String query = "INSERT INTO Assignment (sumsheet_id, shift_id, task_id, cook_id) VALUES (?, ?, ?, ?)";
-        PersistenceManager.executeBatchUpdate(query, assignments.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                Assignment a = assignments.get(i);
-                ps.setInt(1, summarySheetID);
-                ps.setInt(2, a.getShift().getId());
-                ps.setInt(3, a.getTask().getId());
-                ps.setInt(4, a.getCook() != null ? a.getCook().getId() : 0);
-            }
-
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int i) throws SQLException {
-                assignments.get(i).setId(rs.getInt(1));
-            }
+        int[] ids = PersistenceManager.executeBatchInsert(query, assignments.size(), (ps, i) -> {
+            Assignment a = assignments.get(i);
+            ps.setInt(1, summarySheetID);
+            ps.setInt(2, a.getShift().getId());
+            ps.setInt(3, a.getTask().getId());
+            ps.setInt(4, a.getCook() != null ? a.getCook().getId() : 0);
         });
+        for (int i = 0; i < assignments.size(); i++) {
+            assignments.get(i).setId(ids[i]);
+        }
     }
 
     public static void update(Assignment assignment) {
@@ -87,4 +118,24 @@ public class AssignmentDAO {
         String query = "DELETE FROM Assignment WHERE id = ?";
         PersistenceManager.executeUpdate(query, assignment.getId());
     }
+
+
+    // HELPERS
+
+    // Tasks already loaded on the sheet are reused; only the others are read
+    private static Map<Integer, KitchenTask> loadTasks(List<Integer> ids, Map<Integer, KitchenTask> knownTasks) {
+        Map<Integer, KitchenTask> tasks = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            if (knownTasks.containsKey(id)) {
+                tasks.put(id, knownTasks.get(id));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            tasks.putAll(KitchenTaskDAO.loadByIds(missing));
+        }
+        return tasks;
+    }
 }
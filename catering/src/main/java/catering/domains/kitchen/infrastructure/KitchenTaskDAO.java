@@ -1,133 +1,181 @@
 package catering.domains.kitchen.infrastructure;
 
 import catering.domains.kitchen.domain.KitchenTask;
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
 import catering.domains.recipe.infrastructure.PreparationDAO;
 import catering.domains.recipe.infrastructure.RecipeDAO;
-import catering.persistence.BatchUpdateHandler;
+import catering.persistence.BatchLoader;
+import catering.persistence.BatchScope;
 import catering.persistence.PersistenceManager;
 
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO class for KitchenTask persistence
  */
 public class KitchenTaskDAO {
 
-    public static void saveNewTask(int summarySheetId, KitchenTask task, int position) {
+    /**
+     * Distance between the ranks of consecutive tasks when they are written in bulk, leaving
+     * room for many moves between two of them before the sheet needs renumbering.
+     */
+    public static final long RANK_GAP = 1 << 16;
+
+    /**
+     * Inserts a task with the rank it already carries.
+     */
+    public static void saveNewTask(int summarySheetId, KitchenTask task) {
         String query = "INSERT INTO Tasks (sumsheet_id, kitchenproc_id, description, type, position, ready, quantity, portions) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        PersistenceManager.executeUpdate(query,
+        int id = PersistenceManager.executeInsert(query,
             summarySheetId,
             task.getKitchenProcess().getId(),
             task.getDescription(),
             task.getKitchenProcess().isRecipe(),
-            position,
+            task.getRank(),
             task.isReady(),
             task.getQuantity(),
             task.getPortions());
 
-        task.setId(PersistenceManager.getLastId());
+        task.setId(id);
     }
 
+    /**
+     * Inserts the tasks in list order, ranked {@link #RANK_GAP} apart.
+     */
     public static void saveAllNewTasks(int summarySheetId, List<KitchenTask> tasks) {
         String query = "INSERT INTO Tasks (sumsheet_id, kitchenproc_id, description, type, position, ready, quantity, portions) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        PersistenceManager.executeBatchUpdate(query, tasks.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                KitchenTask t = tasks.get(i);
-                ps.setInt(1, summarySheetId);
-                ps.setInt(2, t.getKitchenProcess().getId());
-                ps.setString(3, t.getDescription());
-                ps.setBoolean(4, t.getKitchenProcess().isRecipe());
-                ps.setInt(5, i); // position
-                ps.setBoolean(6, t.isReady());
-                ps.setInt(7, t.getQuantity());
-                ps.setInt(8, t.getPortions());
-            }
-
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int i) throws SQLException {
-                tasks.get(i).setId(rs.getInt(1));
-            }
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setRank((i + 1) * RANK_GAP);
+        }
+        int[] ids = PersistenceManager.executeBatchInsert(query, tasks.size(), (ps, i) -> {
+            KitchenTask t = tasks.get(i);
+            ps.setInt(1, summarySheetId);
+            ps.setInt(2, t.getKitchenProcess().getId());
+            ps.setString(3, t.getDescription());
+            ps.setBoolean(4, t.getKitchenProcess().isRecipe());
+            ps.setLong(5, t.getRank());
+            ps.setBoolean(6, t.isReady());
+            ps.setInt(7, t.getQuantity());
+            ps.setInt(8, t.getPortions());
         });
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setId(ids[i]);
+        }
     }
 
     public static List<KitchenTask> loadAllBySummarySheetId(int summarySheetId) {
-        String query = "SELECT * FROM Tasks WHERE sumsheet_id = ? ORDER BY position";
-        List<KitchenTask> tasks = new ArrayList<>();
-        List<Integer> processIds = new ArrayList<>();
-        List<Boolean> types = new ArrayList<>();
-
-        PersistenceManager.executeQuery(query, rs -> {
-            KitchenTask task = new KitchenTask();
-            task.setId(rs.getInt("id"));
-            task.setDescription(rs.getString("description"));
-            task.setPortions(rs.getInt("portions"));
-            task.setQuantity(rs.getInt("quantity"));
-            task.setReady(rs.getBoolean("ready"));
-            boolean type = rs.getBoolean("type");
-            task.setType(type);
-
-            processIds.add(rs.getInt("kitchenproc_id"));
-            types.add(type);
-            tasks.add(task);
-        }, summarySheetId);
+        return loadAllBySummarySheetIds(List.of(summarySheetId)).get(summarySheetId);
+    }
 
-        for (int i = 0; i < tasks.size(); i++) {
-            int procId = processIds.get(i);
-            boolean isRecipe = types.get(i);
-            tasks.get(i).setKitchenProcess(isRecipe
-                ? RecipeDAO.loadRecipeById(procId)
-                : PreparationDAO.loadPreparationById(procId));
+    /**
+     * Loads the tasks of several summary sheets with one query per 500 sheets.
+     *
+     * @return the tasks of each sheet in position order, by sheet id; every id is present
+     */
+    public static Map<Integer, List<KitchenTask>> loadAllBySummarySheetIds(Collection<Integer> summarySheetIds) {
+        Map<Integer, List<KitchenTask>> tasksBySheet = new LinkedHashMap<>();
+        for (Integer id : summarySheetIds) {
+            tasksBySheet.put(id, new ArrayList<>());
         }
+        if (tasksBySheet.isEmpty()) {
+            return tasksBySheet;
+        }
+
+        String query = "SELECT * FROM Tasks WHERE sumsheet_id IN (%s) ORDER BY sumsheet_id, position, id";
+        BatchScope processes = new BatchScope();
+        BatchLoader<Integer, Recipe> recipes = processes.loader(RecipeDAO::loadRecipesByIds);
+        BatchLoader<Integer, Preparation> preparations = processes.loader(PreparationDAO::loadPreparationsByIds);
+
+        BatchLoader.queryInChunks(query, tasksBySheet.keySet(), rs -> {
+            KitchenTask task = mapRowToTask(rs, recipes, preparations);
+            tasksBySheet.get(rs.getInt("sumsheet_id")).add(task);
+        });
 
-        return tasks;
+        processes.dispatch();
+        return tasksBySheet;
     }
 
-    public static KitchenTask loadById(int id) {
-        String query = "SELECT * FROM Tasks WHERE id = ?";
-        final KitchenTask[] taskHolder = new KitchenTask[1];
-        final int[] procId = new int[1];
-        final boolean[] typeHolder = new boolean[1];
-
-        PersistenceManager.executeQuery(query, rs -> {
-            KitchenTask task = new KitchenTask();
-            task.setId(rs.getInt("id"));
-            task.setDescription(rs.getString("description"));
-            task.setQuantity(rs.getInt("quantity"));
-            task.setPortions(rs.getInt("portions"));
-            task.setReady(rs.getBoolean("ready"));
-            boolean type = rs.getBoolean("type");
-
-            task.setType(type);
-            procId[0] = rs.getInt("kitchenproc_id");
-            typeHolder[0] = type;
-            taskHolder[0] = task;
-        }, id);
-
-        if (taskHolder[0] == null) return null;
-
-        KitchenTask task = taskHolder[0];
-        task.setKitchenProcess(typeHolder[0]
-            ? RecipeDAO.loadRecipeById(procId[0])
-            : PreparationDAO.loadPreparationById(procId[0]));
+    /**
+     * Loads several tasks with one query per 500 ids, plus one each for their recipes and preparations.
+     *
+     * @return the tasks found, by id; unknown ids are left out
+     */
+    public static Map<Integer, KitchenTask> loadByIds(Collection<Integer> ids) {
+        Map<Integer, KitchenTask> found = new LinkedHashMap<>();
+        Set<Integer> distinct = new LinkedHashSet<>(ids);
+        if (distinct.isEmpty()) {
+            return found;
+        }
 
-        return task;
+        String query = "SELECT * FROM Tasks WHERE id IN (%s)";
+        BatchScope processes = new BatchScope();
+        BatchLoader<Integer, Recipe> recipes = processes.loader(RecipeDAO::loadRecipesByIds);
+        BatchLoader<Integer, Preparation> preparations = processes.loader(PreparationDAO::loadPreparationsByIds);
+
+        BatchLoader.queryInChunks(query, distinct, rs -> {
+            KitchenTask task = mapRowToTask(rs, recipes, preparations);
+            found.put(task.getId(), task);
+        });
+
+        processes.dispatch();
+        return found;
+    }
+
+    public static KitchenTask loadById(int id) {
+        return loadByIds(List.of(id)).get(id);
     }
 
     public static void update(KitchenTask task) {
         String query = "UPDATE Tasks SET description = ?, quantity = ?, portions = ?, ready = ? WHERE id = ?";
 
-        PersistenceManager.executeUpdate(query,
+        PersistenceManager.executeQueuedUpdate(query,
             task.getDescription(),
             task.getQuantity(),
             task.getPortions(),
             task.isReady(),
             task.getId());
     }
+
+    /**
+     * Writes the rank of a single task, the only row a move has to touch.
+     */
+    public static void updateRank(KitchenTask task) {
+        PersistenceManager.executeUpdate("UPDATE Tasks SET position = ? WHERE id = ?", task.getRank(), task.getId());
+    }
+
+
+    // HELPERS
+
+    // The process is set when the loaders are dispatched
+    private static KitchenTask mapRowToTask(ResultSet rs, BatchLoader<Integer, Recipe> recipes,
+                                            BatchLoader<Integer, Preparation> preparations) throws SQLException {
+        KitchenTask task = new KitchenTask();
+        task.setId(rs.getInt("id"));
+        task.setDescription(rs.getString("description"));
+        task.setPortions(rs.getInt("portions"));
+        task.setQuantity(rs.getInt("quantity"));
+        task.setReady(rs.getBoolean("ready"));
+        task.setRank(rs.getLong("position"));
+        boolean type = rs.getBoolean("type");
+        task.setType(type);
+
+        int processId = rs.getInt("kitchenproc_id");
+        if (type) {
+            recipes.load(processId, task::setKitchenProcess);
+        } else {
+            preparations.load(processId, task::setKitchenProcess);
+        }
+        return task;
+    }
 }
@@ -1,54 +1,82 @@
 package catering.domains.kitchen.infrastructure;
 
+import catering.domains.event.domain.Service;
 import catering.domains.event.infrastructure.ServiceDAO;
+import catering.domains.kitchen.domain.Assignment;
+import catering.domains.kitchen.domain.KitchenTask;
 import catering.domains.kitchen.domain.SummarySheet;
+import catering.domains.kitchen.domain.SummarySheetHeader;
+import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.infrastructure.StaffMemberDAO;
-import catering.persistence.BatchUpdateHandler;
+import catering.persistence.BatchLoader;
+import catering.persistence.BatchScope;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
+import catering.persistence.RowMapper;
 
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for loading and saving SummarySheet entities.
  */
 public class SummarySheetDAO {
 
+    // Header projection: counts instead of the tasks and assignments themselves
+    private static final String HEADER_QUERY = "SELECT ss.id, ss.service_id, sv.name AS service_name, ss.owner_id, " +
+        "sm.name AS owner_name, sm.surname AS owner_surname, " +
+        "(SELECT COUNT(*) FROM Tasks t WHERE t.sumsheet_id = ss.id) AS task_count, " +
+        "(SELECT COUNT(*) FROM Assignment a WHERE a.sumsheet_id = ss.id) AS assignment_count " +
+        "FROM SummarySheets ss " +
+        "LEFT JOIN Services sv ON sv.id = ss.service_id " +
+        "LEFT JOIN StaffMembers sm ON sm.id = ss.owner_id";
+
+    private static final Keyset PAGES = Keyset.ascending("summary sheets", "id");
+    private static final Keyset HEADER_PAGES = Keyset.ascending("summary sheet headers", "ss.id");
+
     public static void save(SummarySheet sheet) {
         String insert = "INSERT INTO SummarySheets (service_id, owner_id) VALUES (?, ?)";
 
-        int[] result = PersistenceManager.executeBatchUpdate(insert, 1, new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                ps.setInt(1, sheet.getService().getId());
-                ps.setInt(2, sheet.getOwner().getId());
-            }
+        PersistenceManager.tryRunInTransaction(() -> {
+            sheet.setId(PersistenceManager.executeInsert(insert, sheet.getService().getId(), sheet.getOwner().getId()));
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                if (count == 0) {
-                    sheet.setId(rs.getInt(1));
+            if (sheet.getId() > 0) {
+                PersistenceManager.afterRollback(() -> sheet.setId(0));
+                if (!sheet.getTasks().isEmpty()) {
+                    KitchenTaskDAO.saveAllNewTasks(sheet.getId(), sheet.getTasks());
+                }
+                if (!sheet.getAssignments().isEmpty()) {
+                    AssignmentDAO.saveAllNewAssignments(sheet.getId(), sheet.getAssignments());
                 }
             }
         });
-
-        if (result[0] > 0) {
-            if (!sheet.getTasks().isEmpty()) {
-                KitchenTaskDAO.saveAllNewTasks(sheet.getId(), sheet.getTasks());
-            }
-            if (!sheet.getAssignments().isEmpty()) {
-                AssignmentDAO.saveAllNewAssignments(sheet.getId(), sheet.getAssignments());
-            }
-        }
     }
 
     public static List<SummarySheet> loadAll() {
         return loadSummarySheets("SELECT * FROM SummarySheets");
     }
 
+    /**
+     * Lists the summary sheets by id one page at a time; their content loads as for {@link #loadAll()}.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<SummarySheet> loadPage(String pageToken, int limit) {
+        BatchScope references = new BatchScope();
+        RowMapper<SummarySheet> mapper = sheetMapper(references);
+        Page<SummarySheet> page = PAGES.page("SELECT * FROM SummarySheets WHERE 1 = 1", mapper, pageToken, limit);
+        references.dispatch();
+        return page;
+    }
+
+    /**
+     * Loads a sheet with its service and owner; tasks and assignments are loaded on first access.
+     */
     public static SummarySheet loadById(int id) {
         List<SummarySheet> sheets = loadSummarySheets("SELECT * FROM SummarySheets WHERE id = ?", id);
         return sheets.isEmpty() ? null : sheets.get(0);
@@ -58,45 +86,170 @@ public class SummarySheetDAO {
         return loadSummarySheets("SELECT * FROM SummarySheets WHERE service_id = ?", serviceId);
     }
 
+    /**
+     * Inserts a task already placed in the sheet, ranked between its neighbours.
+     */
+    public static void saveNewTask(SummarySheet sheet, KitchenTask task) {
+        PersistenceManager.tryRunInTransaction(() -> {
+            boolean renumbered = rank(sheet, task);
+            KitchenTaskDAO.saveNewTask(sheet.getId(), task);
+            if (renumbered) {
+                updateTaskPositions(sheet);
+            }
+        });
+    }
+
+    /**
+     * Stores the new place of a moved task. Its rank is set halfway between its neighbours'
+     * so only its row is written; when they leave no room, the whole sheet is renumbered
+     * in one transaction.
+     */
+    public static void updateTaskPosition(SummarySheet sheet, KitchenTask task) {
+        PersistenceManager.tryRunInTransaction(() -> {
+            if (rank(sheet, task)) {
+                updateTaskPositions(sheet);
+            } else {
+                KitchenTaskDAO.updateRank(task);
+            }
+        });
+    }
+
+    /**
+     * Renumbers every task of the sheet, {@link KitchenTaskDAO#RANK_GAP} apart, in list order.
+     */
     public static void updateTaskPositions(SummarySheet sheet) {
         String query = "UPDATE Tasks SET position = ? WHERE id = ?";
+        List<KitchenTask> tasks = new ArrayList<>(sheet.getTasks());
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setRank((i + 1) * KitchenTaskDAO.RANK_GAP);
+        }
+
+        PersistenceManager.executeBatchUpdate(query, tasks.size(), (ps, i) -> {
+            ps.setLong(1, tasks.get(i).getRank());
+            ps.setInt(2, tasks.get(i).getId());
+        });
+    }
 
-        PersistenceManager.executeBatchUpdate(query, sheet.getTasks().size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                ps.setInt(1, i);
-                ps.setInt(2, sheet.getTasks().get(i).getId());
+    /**
+     * Lists every summary sheet as a header, with a single query.
+     */
+    public static List<SummarySheetHeader> loadHeaders() {
+        return loadHeaders(HEADER_QUERY + " ORDER BY ss.id");
+    }
+
+    /**
+     * Lists the summary sheets owned by a staff member as headers, with a single query.
+     */
+    public static List<SummarySheetHeader> loadHeadersByOwnerId(int ownerId) {
+        return loadHeaders(HEADER_QUERY + " WHERE ss.owner_id = ? ORDER BY ss.id", ownerId);
+    }
+
+    /**
+     * Lists the summary sheets as headers by id, one page at a time, each with a single query.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<SummarySheetHeader> loadHeaderPage(String pageToken, int limit) {
+        return HEADER_PAGES.page(HEADER_QUERY + " WHERE 1 = 1", SummarySheetDAO::mapHeader, pageToken, limit);
+    }
+
+    /**
+     * Loads, in one batch, the tasks and assignments the given sheets haven't loaded yet.
+     * Use it before walking the tasks of many sheets.
+     */
+    public static void prefetch(Collection<SummarySheet> sheets) {
+        List<Integer> taskSheetIds = new ArrayList<>();
+        List<Integer> assignmentSheetIds = new ArrayList<>();
+        for (SummarySheet sheet : sheets) {
+            if (!sheet.isTasksLoaded()) taskSheetIds.add(sheet.getId());
+            if (!sheet.isAssignmentsLoaded()) assignmentSheetIds.add(sheet.getId());
+        }
+
+        PersistenceManager.runInSession(() -> {
+            Map<Integer, List<KitchenTask>> tasks = KitchenTaskDAO.loadAllBySummarySheetIds(taskSheetIds);
+            List<KitchenTask> loadedTasks = new ArrayList<>();
+            for (SummarySheet sheet : sheets) {
+                if (tasks.containsKey(sheet.getId())) sheet.resolveTasks(tasks.get(sheet.getId()));
+                if (!sheet.isAssignmentsLoaded()) loadedTasks.addAll(sheet.getTasks());
             }
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) {
-                // No ID generation
+            Map<Integer, List<Assignment>> assignments =
+                AssignmentDAO.loadAllBySummarySheetIds(assignmentSheetIds, loadedTasks);
+            for (SummarySheet sheet : sheets) {
+                if (assignments.containsKey(sheet.getId())) sheet.resolveAssignments(assignments.get(sheet.getId()));
             }
         });
     }
 
-    // Helper method shared across load methods
+
+    // HELPERS
+
+    // Ranks the task between its neighbours in the sheet; true if they leave no room and the sheet must be renumbered
+    private static boolean rank(SummarySheet sheet, KitchenTask task) {
+        List<KitchenTask> tasks = sheet.getTasks();
+        int index = sheet.getTaskPosition(task);
+        KitchenTask before = index > 0 ? tasks.get(index - 1) : null;
+        KitchenTask after = index < tasks.size() - 1 ? tasks.get(index + 1) : null;
+
+        if (before == null && after == null) {
+            task.setRank(KitchenTaskDAO.RANK_GAP);
+        } else if (after == null) {
+            task.setRank(before.getRank() + KitchenTaskDAO.RANK_GAP);
+        } else if (before == null) {
+            task.setRank(after.getRank() - KitchenTaskDAO.RANK_GAP);
+        } else if (after.getRank() - before.getRank() > 1) {
+            task.setRank(before.getRank() + (after.getRank() - before.getRank()) / 2);
+        } else {
+            return true;
+        }
+        return false;
+    }
+
+    private static List<SummarySheetHeader> loadHeaders(String query, Object... params) {
+        List<SummarySheetHeader> headers = new ArrayList<>();
+        PersistenceManager.executeQuery(query, rs -> headers.add(mapHeader(rs)), params);
+        return headers;
+    }
+
+    private static SummarySheetHeader mapHeader(ResultSet rs) throws SQLException {
+        String ownerName = rs.getString("owner_name");
+        if (ownerName != null) {
+            ownerName = (ownerName + " " + rs.getString("owner_surname")).trim();
+        }
+        return new SummarySheetHeader(
+            rs.getInt("id"),
+            rs.getInt("service_id"),
+            rs.getString("service_name"),
+            rs.getInt("owner_id"),
+            ownerName,
+            rs.getInt("task_count"),
+            rs.getInt("assignment_count"));
+    }
+
+    // Shared across load methods: services and owners are loaded in one query each,
+    // tasks and assignments only when first read (or by prefetch)
     private static List<SummarySheet> loadSummarySheets(String query, Object... params) {
         List<SummarySheet> sheets = new ArrayList<>();
-        List<Integer> serviceIds = new ArrayList<>();
-        List<Integer> ownerIds = new ArrayList<>();
+        BatchScope references = new BatchScope();
+        RowMapper<SummarySheet> mapper = sheetMapper(references);
+        PersistenceManager.executeQuery(query, rs -> sheets.add(mapper.map(rs)), params);
+        references.dispatch();
+        return sheets;
+    }
 
-        PersistenceManager.executeQuery(query, rs -> {
+    // Maps sheets whose service and owner are filled in when the scope is dispatched
+    private static RowMapper<SummarySheet> sheetMapper(BatchScope references) {
+        BatchLoader<Integer, Service> services = references.loader(ServiceDAO::loadByIds);
+        BatchLoader<Integer, StaffMember> owners = references.loader(StaffMemberDAO::loadByIds);
+        return rs -> {
             SummarySheet s = new SummarySheet();
             s.setId(rs.getInt("id"));
-            sheets.add(s);
-            serviceIds.add(rs.getInt("service_id"));
-            ownerIds.add(rs.getInt("owner_id"));
-        }, params);
-
-        for (int i = 0; i < sheets.size(); i++) {
-            SummarySheet sheet = sheets.get(i);
-            sheet.setService(ServiceDAO.loadById(serviceIds.get(i)));
-            sheet.setOwner(StaffMemberDAO.loadById(ownerIds.get(i)));
-            sheet.setTasks(KitchenTaskDAO.loadAllBySummarySheetId(sheet.getId()));
-            sheet.setAssignments(AssignmentDAO.loadAllBySummarySheetId(sheet.getId()));
-        }
-
-        return sheets;
+            // Assignments point at the sheet's own tasks, so reading them loads the tasks first
+            s.setLoaders(KitchenTaskDAO::loadAllBySummarySheetId,
+                id -> AssignmentDAO.loadAllBySummarySheetId(id, s.getTasks()));
+            services.load(rs.getInt("service_id"), s::setService);
+            owners.load(rs.getInt("owner_id"), s::setOwner);
+            return s;
+        };
     }
 }
@@ -3,14 +3,20 @@ package catering.domains.menu.infrastructure;
 import catering.domains.menu.domain.MenuItem;
 import catering.domains.menu.domain.Section;
 import catering.domains.menu.domain.Menu;
+import catering.domains.recipe.domain.Recipe;
+import catering.domains.recipe.infrastructure.RecipeDAO;
+import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.infrastructure.StaffMemberDAO;
-import catering.persistence.BatchUpdateHandler;
+import catering.persistence.BatchLoader;
 import catering.persistence.PersistenceManager;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 public class MenuDAO {
@@ -18,57 +24,91 @@ public class MenuDAO {
     public static void create(Menu m) {
         String query = "INSERT INTO Menus (title, owner_id, published) VALUES (?, ?, ?);";
 
-        int[] result = PersistenceManager.executeBatchUpdate(query, 1, new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
-                ps.setString(1, m.getTitle());
-                ps.setInt(2, m.getOwner().getId());
-                ps.setBoolean(3, m.isPublished());
-            }
+        PersistenceManager.tryRunInTransaction(() -> {
+            m.setId(PersistenceManager.executeInsert(query, m.getTitle(), m.getOwner().getId(), m.isPublished()));
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                if (rs.next()) {
-                    m.setId(rs.getInt(1));
+            if (m.getId() > 0) {
+                PersistenceManager.afterRollback(() -> m.setId(0));
+                saveFeaturesToDB(m);
+                if (!m.getSections().isEmpty()) {
+                    SectionDAO.create(m.getId(), m.getSections());
+                }
+                if (!m.getFreeItems().isEmpty()) {
+                    MenuItemDAO.create(m.getId(), 0, m.getFreeItems());
                 }
             }
         });
-
-        if (result[0] > 0) {
-            saveFeaturesToDB(m);
-            if (!m.getSections().isEmpty()) {
-                SectionDAO.create(m.getId(), m.getSections());
-            }
-            if (!m.getFreeItems().isEmpty()) {
-                MenuItemDAO.create(m.getId(), 0, m.getFreeItems());
-            }
-        }
     }
 
+    /**
+     * Loads a menu with its owner, sections, items, recipes and features.
+     *
+     * @return the menu, or an empty one with id 0 if it doesn't exist
+     * @see #loadByIds(Collection)
+     */
     public static Menu load(Integer id) {
-        String query = "SELECT * FROM Menus WHERE id = ?";
-        Menu m = new Menu();
+        Menu m = loadByIds(List.of(id)).get(id);
+        return m != null ? m : new Menu();
+    }
 
-        PersistenceManager.executeQuery(query, rs -> {
-            m.setId(id);
+    /**
+     * Loads several menus with their owners, sections, items, recipes and features.
+     * The whole graph costs a fixed number of queries whatever the size of the menus:
+     * one each (per 500 menus) for the menus, their owners, sections, items, the
+     * recipes they use and their features. Recipes already cached cost nothing.
+     *
+     * @return the menus found, by id; unknown ids are left out
+     */
+    public static Map<Integer, Menu> loadByIds(Collection<Integer> ids) {
+        Map<Integer, Menu> menus = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return menus;
+        }
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        Map<Integer, Integer> ownerIds = new HashMap<>();
+        String query = "SELECT m.*, EXISTS (SELECT 1 FROM Services s WHERE s.approved_menu_id = m.id) AS in_use "
+            + "FROM Menus m WHERE m.id IN (%s)";
+        BatchLoader.queryInChunks(query, distinct, rs -> {
+            Menu m = new Menu();
+            m.setId(rs.getInt("id"));
             m.setTitle(rs.getString("title"));
             m.setPublished(rs.getBoolean("published"));
-            m.setOwner(StaffMemberDAO.loadById(rs.getInt("owner_id")));
+            m.setInUse(rs.getBoolean("in_use"));
+            m.setSections(new ArrayList<>());
+            m.setFreeItems(new ArrayList<>());
+            m.setFeatures(new EnumMap<>(Menu.Feature.class));
+            menus.put(m.getId(), m);
+            ownerIds.put(m.getId(), rs.getInt("owner_id"));
+        });
+        if (menus.isEmpty()) {
+            return menus;
+        }
 
-            m.setSections(SectionDAO.loadSections(id));
-            m.setFreeItems(MenuItemDAO.loadItems(id, 0));
-            loadFeaturesFromDB(m);
-            checkIfMenuIsInUse(m);
-        }, id);
+        Map<Integer, StaffMember> owners = StaffMemberDAO.loadByIds(ownerIds.values());
+        for (Menu m : menus.values()) {
+            StaffMember owner = owners.get(ownerIds.get(m.getId()));
+            m.setOwner(owner != null ? owner : new StaffMember());
+        }
+        loadItemsFromDB(menus, distinct);
+        loadFeaturesFromDB(menus, distinct);
 
-        return m;
+        Map<Integer, Menu> ordered = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            if (menus.containsKey(id)) {
+                ordered.put(id, menus.get(id));
+            }
+        }
+        return ordered;
     }
 
     public static void delete(Menu m) {
-        PersistenceManager.executeUpdate("DELETE FROM MenuItems WHERE menu_id = ?", m.getId());
-        PersistenceManager.executeUpdate("DELETE FROM MenuSections WHERE menu_id = ?", m.getId());
-        PersistenceManager.executeUpdate("DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId());
-        PersistenceManager.executeUpdate("DELETE FROM Menus WHERE id = ?", m.getId());
+        PersistenceManager.tryRunInTransaction(() -> {
+            PersistenceManager.executeUpdate("DELETE FROM MenuItems WHERE menu_id = ?", m.getId());
+            PersistenceManager.executeUpdate("DELETE FROM MenuSections WHERE menu_id = ?", m.getId());
+            PersistenceManager.executeUpdate("DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId());
+            PersistenceManager.executeUpdate("DELETE FROM Menus WHERE id = ?", m.getId());
+        });
     }
 
     public static void saveTitle(Menu m) {
@@ -86,41 +126,27 @@ public class MenuDAO {
     }
 
     public static void saveFeatures(Menu m) {
-        PersistenceManager.executeUpdate(
-            "DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId()
-        );
-        saveFeaturesToDB(m);
+        PersistenceManager.tryRunInTransaction(() -> {
+            PersistenceManager.executeUpdate(
+                "DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId()
+            );
+            saveFeaturesToDB(m);
+        });
     }
 
     public static void saveSectionOrder(Menu m) {
         String query = "UPDATE MenuSections SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(query, m.getSections().size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                ps.setInt(1, i);
-                ps.setInt(2, m.getSections().get(i).getId());
-            }
-
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) {
-                // No-op
-            }
+        PersistenceManager.executeBatchUpdate(query, m.getSections().size(), (ps, i) -> {
+            ps.setInt(1, i);
+            ps.setInt(2, m.getSections().get(i).getId());
         });
     }
 
     public static void saveFreeItemOrder(Menu m) {
         String query = "UPDATE MenuItems SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(query, m.getFreeItems().size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                ps.setInt(1, i);
-                ps.setInt(2, m.getFreeItems().get(i).getId());
-            }
-
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) {
-                // No-op
-            }
+        PersistenceManager.executeBatchUpdate(query, m.getFreeItems().size(), (ps, i) -> {
+            ps.setInt(1, i);
+            ps.setInt(2, m.getFreeItems().get(i).getId());
         });
     }
 
@@ -131,42 +157,69 @@ public class MenuDAO {
         String query = "INSERT INTO MenuFeatures (menu_id, name, value) VALUES (?, ?, ?)";
         Map<Menu.Feature, Boolean> featureMap = m.getFeatures();
 
-        PersistenceManager.executeBatchUpdate(query, featureMap.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                Menu.Feature feature = Menu.Feature.values()[i];
-                ps.setInt(1, m.getId());
-                ps.setString(2, feature.name());
-                ps.setBoolean(3, featureMap.getOrDefault(feature, false));
+        PersistenceManager.executeBatchUpdate(query, featureMap.size(), (ps, i) -> {
+            Menu.Feature feature = Menu.Feature.values()[i];
+            ps.setInt(1, m.getId());
+            ps.setString(2, feature.name());
+            ps.setBoolean(3, featureMap.getOrDefault(feature, false));
+        });
+    }
+
+    /**
+     * Loads sections and items with one query each, then every recipe they use at
+     * once, and stitches them together. Free items (section 0) are kept apart;
+     * items of a section that no longer exists are skipped.
+     */
+    private static void loadItemsFromDB(Map<Integer, Menu> menus, List<Integer> ids) {
+        Map<Integer, Section> sectionsById = new HashMap<>();
+        String sectionQuery = "SELECT * FROM MenuSections WHERE menu_id IN (%s) ORDER BY menu_id, position";
+        BatchLoader.queryInChunks(sectionQuery, ids, rs -> {
+            Section s = new Section(rs.getString("name"));
+            s.setId(rs.getInt("id"));
+            menus.get(rs.getInt("menu_id")).getSections().add(s);
+            sectionsById.put(s.getId(), s);
+        });
+
+        List<MenuItem> items = new ArrayList<>();
+        List<Integer> recipeIds = new ArrayList<>();
+        String itemQuery = "SELECT * FROM MenuItems WHERE menu_id IN (%s) ORDER BY menu_id, position";
+        BatchLoader.queryInChunks(itemQuery, ids, rs -> {
+            int sectionId = rs.getInt("section_id");
+            Section section = sectionsById.get(sectionId);
+            if (section == null && sectionId != 0) {
+                return;
             }
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) {
-                // No-op
+            MenuItem item = new MenuItem();
+            item.setId(rs.getInt("id"));
+            item.setDescription(rs.getString("description"));
+            if (section != null) {
+                section.getMenuItems().add(item);
+            } else {
+                menus.get(rs.getInt("menu_id")).getFreeItems().add(item);
             }
+            items.add(item);
+            recipeIds.add(rs.getInt("recipe_id"));
         });
+
+        Map<Integer, Recipe> recipes = RecipeDAO.loadRecipesByIds(recipeIds);
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setRecipe(recipes.get(recipeIds.get(i)));
+        }
     }
 
-    private static void loadFeaturesFromDB(Menu m) {
-        String query = "SELECT name, value FROM MenuFeatures WHERE menu_id = ?";
-        EnumMap<Menu.Feature, Boolean> featureMap = new EnumMap<>(Menu.Feature.class);
+    private static void loadFeaturesFromDB(Map<Integer, Menu> menus, List<Integer> ids) {
+        String query = "SELECT menu_id, name, value FROM MenuFeatures WHERE menu_id IN (%s)";
 
-        PersistenceManager.executeQuery(query, rs -> {
+        BatchLoader.queryInChunks(query, ids, rs -> {
             String name = rs.getString("name");
             boolean value = rs.getBoolean("value");
             try {
                 Menu.Feature feature = Menu.Feature.valueOf(name);
-                featureMap.put(feature, value);
+                menus.get(rs.getInt("menu_id")).getFeatures().put(feature, value);
             } catch (IllegalArgumentException e) {
                 // Unknown feature name in DB, ignore
             }
-        }, m.getId());
-
-        m.setFeatures(featureMap);
-    }
-
-    private static void checkIfMenuIsInUse(Menu m) {
-        String query = "SELECT 1 FROM Services WHERE approved_menu_id = ?";
-        PersistenceManager.executeQuery(query, rs -> m.setInUse(true), m.getId());
+        });
     }
 }
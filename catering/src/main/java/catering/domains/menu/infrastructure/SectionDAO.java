@@ -1,12 +1,8 @@
 package catering.domains.menu.infrastructure;
 
 import catering.domains.menu.domain.Section;
-import catering.persistence.BatchUpdateHandler;
 import catering.persistence.PersistenceManager;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,8 +10,7 @@ public class SectionDAO {
 
     public static void create(int menuId, Section section, int posInMenu) {
         String query = "INSERT INTO MenuSections (menu_id, name, position) VALUES (?, ?, ?)";
-        PersistenceManager.executeUpdate(query, menuId, section.getName(), posInMenu);
-        section.setId(PersistenceManager.getLastId());
+        section.setId(PersistenceManager.executeInsert(query, menuId, section.getName(), posInMenu));
 
         if (!section.getMenuItems().isEmpty()) {
             MenuItemDAO.create(menuId, section.getId(), section.getMenuItems());
@@ -24,21 +19,14 @@ public class SectionDAO {
 
     public static void create(int menuId, List<Section> sections) {
         String query = "INSERT INTO MenuSections (menu_id, name, position) VALUES (?, ?, ?)";
-        PersistenceManager.executeBatchUpdate(query, sections.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                ps.setInt(1, menuId);
-                ps.setString(2, sections.get(i).getName());
-                ps.setInt(3, i);
-            }
-
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                if (rs.next()) {
-                    sections.get(count).setId(rs.getInt(1));
-                }
-            }
+        int[] ids = PersistenceManager.executeBatchInsert(query, sections.size(), (ps, i) -> {
+            ps.setInt(1, menuId);
+            ps.setString(2, sections.get(i).getName());
+            ps.setInt(3, i);
         });
+        for (int i = 0; i < sections.size(); i++) {
+            sections.get(i).setId(ids[i]);
+        }
 
         for (Section s : sections) {
             if (!s.getMenuItems().isEmpty()) {
@@ -76,17 +64,9 @@ public class SectionDAO {
 
     public static void saveItemOrder(Section s) {
         String query = "UPDATE MenuItems SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(query, s.getMenuItems().size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int i) throws SQLException {
-                ps.setInt(1, i);
-                ps.setInt(2, s.getMenuItems().get(i).getId());
-            }
-
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) {
-                // no-op
-            }
+        PersistenceManager.executeBatchUpdate(query, s.getMenuItems().size(), (ps, i) -> {
+            ps.setInt(1, i);
+            ps.setInt(2, s.getMenuItems().get(i).getId());
         });
     }
 }
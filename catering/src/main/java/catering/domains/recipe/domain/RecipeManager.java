@@ -1,9 +1,11 @@
 package catering.domains.recipe.domain;
 
+import catering.domains.recipe.infrastructure.PreparationDAO;
 import catering.domains.recipe.infrastructure.RecipeDAO;
 import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @NoArgsConstructor
 public class RecipeManager {
@@ -11,4 +13,21 @@ public class RecipeManager {
     public ArrayList<Recipe> getRecipeBook() {
         return RecipeDAO.loadAllRecipes();
     }
+
+    // The recipes affected by a change to the preparation
+    public List<Recipe> getRecipesUsing(Preparation preparation) {
+        return PreparationDAO.getRecipesUsingPreparation(preparation);
+    }
+
+    public boolean createRecipe(Recipe recipe) {
+        return RecipeDAO.saveRecipe(recipe);
+    }
+
+    public boolean updateRecipe(Recipe recipe) {
+        return RecipeDAO.updateRecipe(recipe);
+    }
+
+    public boolean updatePreparation(Preparation preparation) {
+        return PreparationDAO.updatePreparation(preparation);
+    }
 }
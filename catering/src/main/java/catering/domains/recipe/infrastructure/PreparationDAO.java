@@ -2,8 +2,12 @@ package catering.domains.recipe.infrastructure;
 
 import catering.domains.recipe.domain.Preparation;
 import catering.domains.recipe.domain.Recipe;
+import catering.persistence.BatchLoader;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
@@ -12,42 +16,34 @@ import java.util.*;
  */
 public class PreparationDAO {
 
+    private static final Keyset PAGES = Keyset.ascending("preparations", "COALESCE(name, '')", "id");
+
     public static ArrayList<Preparation> loadAllPreparations() {
         ArrayList<Preparation> preparations = new ArrayList<>();
 
-        String query = "SELECT * FROM Preparations";
-        PersistenceManager.executeQuery(query, rs -> {
-            Preparation prep = new Preparation(rs.getString("name"));
-            prep.setId(rs.getInt("id"));
-            try {
-                prep.setDescription(rs.getString("description"));
-            } catch (SQLException e) {
-                prep.setDescription("");
-            }
-            preparations.add(prep);
-        });
-
-        preparations.sort(Comparator.comparing(Preparation::getName));
+        String query = "SELECT * FROM Preparations ORDER BY COALESCE(name, ''), id";
+        PersistenceManager.executeQuery(query, rs -> preparations.add(mapPreparation(rs)));
         return preparations;
     }
 
-    public static Preparation loadPreparationById(int id) {
-        Preparation[] holder = new Preparation[1];
+    /**
+     * Lists the preparations by name one page at a time.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<Preparation> loadPreparationPage(String pageToken, int limit) {
+        return PAGES.page("SELECT * FROM Preparations WHERE 1 = 1", PreparationDAO::mapPreparation, pageToken, limit);
+    }
 
-        String query = "SELECT * FROM Preparations WHERE id = ?";
-        PersistenceManager.executeQuery(query, rs -> {
-            Preparation prep = new Preparation();
-            prep.setName(rs.getString("name"));
-            prep.setId(id);
-            try {
-                prep.setDescription(rs.getString("description"));
-            } catch (SQLException e) {
-                prep.setDescription("");
-            }
-            holder[0] = prep;
-        }, id);
+    public static Preparation loadPreparationById(int id) {
+        return RecipeCache.getPreparation(id, PreparationDAO::fetchPreparationById);
+    }
 
-        return holder[0];
+    /**
+     * @return the preparations found, by id; unknown ids are left out
+     */
+    public static Map<Integer, Preparation> loadPreparationsByIds(Collection<Integer> ids) {
+        return RecipeCache.getPreparations(new ArrayList<>(new LinkedHashSet<>(ids)), PreparationDAO::fetchPreparationsByIds);
     }
 
     public static boolean savePreparation(Preparation prep) {
@@ -55,8 +51,7 @@ public class PreparationDAO {
             return false;
 
         String query = "INSERT INTO Preparations (name, description) VALUES (?, ?)";
-        PersistenceManager.executeUpdate(query, prep.getName(), prep.getDescription());
-        prep.setId(PersistenceManager.getLastId());
+        prep.setId(PersistenceManager.executeInsert(query, prep.getName(), prep.getDescription()));
 
         return true;
     }
@@ -68,23 +63,57 @@ public class PreparationDAO {
         String query = "UPDATE Preparations SET name = ?, description = ? WHERE id = ?";
         int rows = PersistenceManager.executeUpdate(query, prep.getName(), prep.getDescription(), prep.getId());
 
+        if (rows > 0) {
+            RecipePublisher.notifyPreparationUpdated(prep);
+        }
         return rows > 0;
     }
 
+    /**
+     * @return the recipes using the preparation, found through {@link RecipeIndex}
+     */
     public static List<Recipe> getRecipesUsingPreparation(Preparation prep) {
-        List<Recipe> recipes = new ArrayList<>();
-
         if (prep.getId() == 0)
-            return recipes;
+            return new ArrayList<>();
+
+        return new ArrayList<>(RecipeDAO.loadRecipesByIds(RecipeIndex.getRecipeIds(prep.getId())).values());
+    }
+
+
+    // HELPERS
 
-        String query = "SELECT recipe_id FROM RecipePreparations WHERE preparation_id = ?";
+    private static Preparation mapPreparation(ResultSet rs) throws SQLException {
+        Preparation prep = new Preparation(rs.getString("name"));
+        prep.setId(rs.getInt("id"));
+        try {
+            prep.setDescription(rs.getString("description"));
+        } catch (SQLException e) {
+            prep.setDescription("");
+        }
+        return prep;
+    }
+
+    private static Preparation fetchPreparationById(int id) {
+        Preparation[] holder = new Preparation[1];
+
+        String query = "SELECT * FROM Preparations WHERE id = ?";
         PersistenceManager.executeQuery(query, rs -> {
-            int recipeId = rs.getInt("recipe_id");
-            Recipe recipe = RecipeDAO.loadRecipeById(recipeId);
-            if (recipe != null)
-                recipes.add(recipe);
-        }, prep.getId());
+            Preparation prep = new Preparation();
+            prep.setName(rs.getString("name"));
+            prep.setId(id);
+            try {
+                prep.setDescription(rs.getString("description"));
+            } catch (SQLException e) {
+                prep.setDescription("");
+            }
+            holder[0] = prep;
+        }, id);
+
+        return holder[0];
+    }
 
-        return recipes;
+    private static Map<Integer, Preparation> fetchPreparationsByIds(List<Integer> ids) {
+        return BatchLoader.<Integer, Preparation>queryByKeys("SELECT * FROM Preparations WHERE id IN (%s)",
+            PreparationDAO::mapPreparation, Preparation::getId).apply(ids);
     }
 }
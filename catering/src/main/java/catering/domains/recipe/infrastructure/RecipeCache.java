@@ -0,0 +1,135 @@
+package catering.domains.recipe.infrastructure;
+
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+import catering.persistence.CacheStats;
+import catering.persistence.LruCache;
+import catering.persistence.PersistenceManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Process-wide cache of the recipe book behind {@link RecipeDAO} and {@link PreparationDAO}.
+ * <p>
+ * Entries are private copies: callers always get a fresh copy they are free to
+ * modify. The DAOs announce every successful write through {@link RecipePublisher}, and the
+ * affected entries are dropped once the writing transaction has ended. Lookups made inside a
+ * transaction bypass the cache, since they may see rows that are not committed yet.
+ */
+public class RecipeCache implements RecipeSubscriber {
+
+    private static final int MAX_RECIPES = Integer.getInteger("catering.cache.recipes.maxSize", 1024);
+    private static final int MAX_PREPARATIONS = Integer.getInteger("catering.cache.preparations.maxSize", 4096);
+
+    private static final RecipeCache INSTANCE = new RecipeCache();
+
+    static {
+        RecipePublisher.registerReceiver(INSTANCE);
+        PersistenceManager.addResetListener(RecipeCache::clear);
+    }
+
+    private final LruCache<Integer, Recipe> recipes = new LruCache<>("recipes", MAX_RECIPES);
+    private final LruCache<Integer, Preparation> preparations = new LruCache<>("preparations", MAX_PREPARATIONS);
+
+    private RecipeCache() {
+    }
+
+    static Recipe getRecipe(int id, Function<Integer, Recipe> loader) {
+        if (PersistenceManager.isInTransaction()) {
+            return loader.apply(id);
+        }
+        return copyOf(INSTANCE.recipes.get(id, loader));
+    }
+
+    /**
+     * Looks up several recipes at once; the ones not cached are handed to the loader in a single call.
+     */
+    static Map<Integer, Recipe> getRecipes(List<Integer> ids, Function<List<Integer>, Map<Integer, Recipe>> loader) {
+        if (PersistenceManager.isInTransaction()) {
+            return loader.apply(ids);
+        }
+        Map<Integer, Recipe> copies = new LinkedHashMap<>();
+        INSTANCE.recipes.getAll(ids, loader).forEach((id, recipe) -> copies.put(id, copyOf(recipe)));
+        return copies;
+    }
+
+    static Preparation getPreparation(int id, Function<Integer, Preparation> loader) {
+        if (PersistenceManager.isInTransaction()) {
+            return loader.apply(id);
+        }
+        return copyOf(INSTANCE.preparations.get(id, loader));
+    }
+
+    /**
+     * Looks up several preparations at once; the ones not cached are handed to the loader in a single call.
+     */
+    static Map<Integer, Preparation> getPreparations(List<Integer> ids,
+                                                     Function<List<Integer>, Map<Integer, Preparation>> loader) {
+        if (PersistenceManager.isInTransaction()) {
+            return loader.apply(ids);
+        }
+        Map<Integer, Preparation> copies = new LinkedHashMap<>();
+        INSTANCE.preparations.getAll(ids, loader).forEach((id, prep) -> copies.put(id, copyOf(prep)));
+        return copies;
+    }
+
+    public static CacheStats getRecipeStats() {
+        return INSTANCE.recipes.getStats();
+    }
+
+    public static CacheStats getPreparationStats() {
+        return INSTANCE.preparations.getStats();
+    }
+
+    public static void clear() {
+        INSTANCE.recipes.clear();
+        INSTANCE.preparations.clear();
+    }
+
+    @Override
+    public void updateRecipeCreated(Recipe recipe) {
+        int id = recipe.getId();
+        PersistenceManager.afterTransaction(() -> recipes.invalidate(id));
+    }
+
+    @Override
+    public void updateRecipeUpdated(Recipe recipe) {
+        int id = recipe.getId();
+        PersistenceManager.afterTransaction(() -> recipes.invalidate(id));
+    }
+
+    @Override
+    public void updatePreparationUpdated(Preparation preparation) {
+        int id = preparation.getId();
+        PersistenceManager.afterTransaction(() -> {
+            preparations.invalidate(id);
+            // Cached recipes embed their preparations
+            recipes.invalidateIf(r -> r.getPreparations().stream().anyMatch(p -> p.getId() == id));
+        });
+    }
+
+
+    // HELPERS
+
+    private static Recipe copyOf(Recipe recipe) {
+        if (recipe == null) return null;
+        Recipe copy = new Recipe(recipe.getName());
+        copy.setId(recipe.getId());
+        copy.setDescription(recipe.getDescription());
+        for (Preparation prep : recipe.getPreparations()) {
+            copy.addPreparation(copyOf(prep));
+        }
+        return copy;
+    }
+
+    private static Preparation copyOf(Preparation prep) {
+        if (prep == null) return null;
+        Preparation copy = new Preparation(prep.getName());
+        copy.setId(prep.getId());
+        copy.setDescription(prep.getDescription());
+        return copy;
+    }
+}
@@ -2,48 +2,67 @@ package catering.domains.recipe.infrastructure;
 
 import catering.domains.recipe.domain.Preparation;
 import catering.domains.recipe.domain.Recipe;
+import catering.persistence.BatchLoader;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
+import catering.persistence.Session;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * DAO class for managing persistence of Recipe objects.
  */
 public class RecipeDAO {
 
+    private static final Keyset PAGES = Keyset.ascending("recipes", "COALESCE(name, '')", "id");
+
     public static ArrayList<Recipe> loadAllRecipes() {
         ArrayList<Recipe> recipes = new ArrayList<>();
 
-        String query = "SELECT * FROM Recipes";
+        String query = "SELECT * FROM Recipes ORDER BY COALESCE(name, ''), id";
         PersistenceManager.executeQuery(query, rs -> {
             Recipe rec = createRecipeFromResultSet(rs);
             recipes.add(rec);
         });
 
-        for (Recipe recipe : recipes) {
-            loadPreparationsForRecipe(recipe);
-        }
-
-        recipes.sort(Comparator.comparing(Recipe::getName));
+        addPreparations(recipes);
+        recipes.replaceAll(r -> Session.attach(Recipe.class, r.getId(), r));
         return recipes;
     }
 
-    public static Recipe loadRecipeById(int id) {
-        Recipe[] holder = new Recipe[1];
-        String query = "SELECT * FROM Recipes WHERE id = ?";
+    /**
+     * Lists the recipes by name one page at a time, with their preparations.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<Recipe> loadRecipePage(String pageToken, int limit) {
+        Page<Recipe> page = PAGES.page("SELECT * FROM Recipes WHERE 1 = 1", RecipeDAO::createRecipeFromResultSet,
+            pageToken, limit);
+
+        List<Recipe> recipes = new ArrayList<>(page.getItems());
+        addPreparations(recipes);
+        recipes.replaceAll(r -> Session.attach(Recipe.class, r.getId(), r));
+        return page.withItems(recipes);
+    }
 
-        PersistenceManager.executeQuery(query, rs -> {
-            holder[0] = createRecipeFromResultSet(rs);
-        }, id);
+    public static Recipe loadRecipeById(int id) {
+        return Session.resolve(Recipe.class, id, key -> RecipeCache.getRecipe(key, RecipeDAO::fetchRecipeById));
+    }
 
-        Recipe recipe = holder[0];
-        if (recipe != null) {
-            loadPreparationsForRecipe(recipe);
-        }
-        return recipe;
+    /**
+     * Loads several recipes with their preparations, reading the ones not cached in a single query.
+     *
+     * @return the recipes found, by id; unknown ids are left out
+     */
+    public static Map<Integer, Recipe> loadRecipesByIds(Collection<Integer> ids) {
+        return Session.resolveAll(Recipe.class, ids, missing -> RecipeCache.getRecipes(missing, RecipeDAO::fetchRecipesByIds));
     }
 
     public static Recipe loadRecipeByName(String name) {
@@ -57,6 +76,7 @@ public class RecipeDAO {
         Recipe recipe = holder[0];
         if (recipe != null) {
             loadPreparationsForRecipe(recipe);
+            recipe = Session.attach(Recipe.class, recipe.getId(), recipe);
         }
         return recipe;
     }
@@ -66,11 +86,24 @@ public class RecipeDAO {
             return false;
 
         String query = "INSERT INTO Recipes (name, description) VALUES (?, ?)";
-        PersistenceManager.executeUpdate(query, recipe.getName(), recipe.getDescription());
-        recipe.setId(PersistenceManager.getLastId());
-
-        savePreparationRelationships(recipe);
-        return true;
+        boolean saved = PersistenceManager.tryRunInTransaction(() -> {
+            int id = PersistenceManager.executeInsert(query, recipe.getName(), recipe.getDescription());
+            recipe.setId(id);
+            if (id == 0) return;
+
+            Session.attach(Recipe.class, id, recipe);
+            PersistenceManager.afterRollback(() -> {
+                Session.evict(Recipe.class, id);
+                recipe.setId(0);
+            });
+
+            savePreparationRelationships(recipe);
+        }) && recipe.getId() != 0;
+
+        if (saved) {
+            RecipePublisher.notifyRecipeCreated(recipe);
+        }
+        return saved;
     }
 
     public static boolean updateRecipe(Recipe recipe) {
@@ -78,14 +111,62 @@ public class RecipeDAO {
             return false;
 
         String query = "UPDATE Recipes SET name = ?, description = ? WHERE id = ?";
-        int rows = PersistenceManager.executeUpdate(query, recipe.getName(), recipe.getDescription(), recipe.getId());
+        boolean updated = PersistenceManager.tryInTransaction(false, () -> {
+            int rows = PersistenceManager.executeUpdate(query, recipe.getName(), recipe.getDescription(), recipe.getId());
 
-        savePreparationRelationships(recipe);
-        return rows > 0;
+            savePreparationRelationships(recipe);
+            return rows > 0;
+        });
+
+        if (updated) {
+            RecipePublisher.notifyRecipeUpdated(recipe);
+        }
+        return updated;
     }
 
 
     // HELPERS
+    private static Recipe fetchRecipeById(int id) {
+        Recipe[] holder = new Recipe[1];
+        String query = "SELECT * FROM Recipes WHERE id = ?";
+
+        PersistenceManager.executeQuery(query, rs -> {
+            holder[0] = createRecipeFromResultSet(rs);
+        }, id);
+
+        Recipe recipe = holder[0];
+        if (recipe != null) {
+            loadPreparationsForRecipe(recipe);
+        }
+        return recipe;
+    }
+
+    private static Map<Integer, Recipe> fetchRecipesByIds(List<Integer> ids) {
+        Map<Integer, Recipe> recipes = new LinkedHashMap<>();
+        String query = "SELECT r.*, p.id AS prep_id, p.name AS prep_name, p.description AS prep_description "
+            + "FROM Recipes r "
+            + "LEFT JOIN RecipePreparations rp ON rp.recipe_id = r.id "
+            + "LEFT JOIN Preparations p ON p.id = rp.preparation_id "
+            + "WHERE r.id IN (%s) "
+            + "ORDER BY r.id, rp.rowid";
+
+        BatchLoader.queryInChunks(query, ids, rs -> {
+            Recipe recipe = recipes.get(rs.getInt("id"));
+            if (recipe == null) {
+                recipe = createRecipeFromResultSet(rs);
+                recipes.put(recipe.getId(), recipe);
+            }
+            int prepId = rs.getInt("prep_id");
+            if (!rs.wasNull()) {
+                Preparation prep = new Preparation(rs.getString("prep_name"));
+                prep.setId(prepId);
+                prep.setDescription(rs.getString("prep_description"));
+                recipe.addPreparation(prep);
+            }
+        });
+        return recipes;
+    }
+
     private static Recipe createRecipeFromResultSet(ResultSet rs) throws SQLException {
         Recipe recipe = new Recipe(rs.getString("name"));
         recipe.setId(rs.getInt("id"));
@@ -97,29 +178,47 @@ public class RecipeDAO {
         return recipe;
     }
 
+    // Links from the index, then every preparation in one batch, added in link order
+    private static void addPreparations(List<Recipe> recipes) {
+        BatchLoader<Integer, Preparation> preparations = new BatchLoader<>(PreparationDAO::loadPreparationsByIds);
+        for (Recipe recipe : recipes) {
+            for (int prepId : RecipeIndex.getPreparationIds(recipe.getId())) {
+                preparations.load(prepId, prep -> {
+                    if (prep != null) {
+                        recipe.addPreparation(prep);
+                    }
+                });
+            }
+        }
+        preparations.dispatch();
+    }
+
+    // The links come from the index, so only the preparations not cached are read
     private static void loadPreparationsForRecipe(Recipe recipe) {
-        String query = "SELECT preparation_id FROM RecipePreparations WHERE recipe_id = ?";
-        PersistenceManager.executeQuery(query, rs -> {
-            int prepId = rs.getInt("preparation_id");
-            Preparation prep = PreparationDAO.loadPreparationById(prepId);
+        List<Integer> ids = RecipeIndex.getPreparationIds(recipe.getId());
+        Map<Integer, Preparation> preparations = PreparationDAO.loadPreparationsByIds(ids);
+        for (int id : ids) {
+            Preparation prep = preparations.get(id);
             if (prep != null) {
                 recipe.addPreparation(prep);
             }
-        }, recipe.getId());
+        }
     }
 
     private static void savePreparationRelationships(Recipe recipe) {
         if (recipe.getId() == 0)
             return;
 
-        String deleteQuery = "DELETE FROM RecipePreparations WHERE recipe_id = ?";
-        PersistenceManager.executeUpdate(deleteQuery, recipe.getId());
+        PersistenceManager.runInTransaction(() -> {
+            String deleteQuery = "DELETE FROM RecipePreparations WHERE recipe_id = ?";
+            PersistenceManager.executeUpdate(deleteQuery, recipe.getId());
 
-        for (Preparation prep : recipe.getPreparations()) {
-            if (prep.getId() != 0) {
-                String insertQuery = "INSERT INTO RecipePreparations (recipe_id, preparation_id) VALUES (?, ?)";
-                PersistenceManager.executeUpdate(insertQuery, recipe.getId(), prep.getId());
+            for (Preparation prep : recipe.getPreparations()) {
+                if (prep.getId() != 0) {
+                    String insertQuery = "INSERT INTO RecipePreparations (recipe_id, preparation_id) VALUES (?, ?)";
+                    PersistenceManager.executeUpdate(insertQuery, recipe.getId(), prep.getId());
+                }
             }
-        }
+        });
     }
 }
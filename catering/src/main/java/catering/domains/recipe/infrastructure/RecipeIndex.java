@@ -0,0 +1,160 @@
+package catering.domains.recipe.infrastructure;
+
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+import catering.persistence.PersistenceManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide index of the links between recipes and preparations, both ways, so
+ * "which preparations does this recipe need" and "which recipes use this preparation"
+ * are answered from memory.
+ * <p>
+ * The index is read from RecipePreparations on first use and rebuilt after the database
+ * is reset. When a recipe is saved, its links are read again once the writing transaction
+ * has ended. Lookups made inside a transaction bypass the index and query, since
+ * they may need links that are not committed yet.
+ */
+public class RecipeIndex implements RecipeSubscriber {
+
+    private static final RecipeIndex INSTANCE = new RecipeIndex();
+
+    static {
+        RecipePublisher.registerReceiver(INSTANCE);
+        PersistenceManager.addResetListener(RecipeIndex::clear);
+    }
+
+    // Null until first used. The lists and sets are replaced, never modified, so callers may keep them.
+    private Map<Integer, List<Integer>> preparationsOf;
+    private Map<Integer, Set<Integer>> recipesUsing;
+
+    private RecipeIndex() {
+    }
+
+    /**
+     * @return the ids of the preparations the recipe uses, in recipe order
+     */
+    public static List<Integer> getPreparationIds(int recipeId) {
+        if (PersistenceManager.isInTransaction()) {
+            return fetchPreparationIds(recipeId);
+        }
+        synchronized (INSTANCE) {
+            INSTANCE.build();
+            return INSTANCE.preparationsOf.getOrDefault(recipeId, Collections.emptyList());
+        }
+    }
+
+    /**
+     * @return the ids of the recipes using the preparation
+     */
+    public static Set<Integer> getRecipeIds(int preparationId) {
+        if (PersistenceManager.isInTransaction()) {
+            Set<Integer> ids = new LinkedHashSet<>();
+            PersistenceManager.executeQuery("SELECT recipe_id FROM RecipePreparations WHERE preparation_id = ? ORDER BY recipe_id",
+                rs -> ids.add(rs.getInt("recipe_id")), preparationId);
+            return ids;
+        }
+        synchronized (INSTANCE) {
+            INSTANCE.build();
+            return INSTANCE.recipesUsing.getOrDefault(preparationId, Collections.emptySet());
+        }
+    }
+
+    public static boolean isBuilt() {
+        synchronized (INSTANCE) {
+            return INSTANCE.preparationsOf != null;
+        }
+    }
+
+    /**
+     * Drops the index; the next lookup reads it again.
+     */
+    public static void clear() {
+        synchronized (INSTANCE) {
+            INSTANCE.preparationsOf = null;
+            INSTANCE.recipesUsing = null;
+        }
+    }
+
+    @Override
+    public void updateRecipeCreated(Recipe recipe) {
+        int id = recipe.getId();
+        PersistenceManager.afterTransaction(() -> refresh(id));
+    }
+
+    @Override
+    public void updateRecipeUpdated(Recipe recipe) {
+        int id = recipe.getId();
+        PersistenceManager.afterTransaction(() -> refresh(id));
+    }
+
+    @Override
+    public void updatePreparationUpdated(Preparation preparation) {
+        // Links don't change with the preparation's name or description
+    }
+
+
+    // HELPERS
+
+    // Reads the committed links, so a rolled back save leaves the index as it was
+    private synchronized void refresh(int recipeId) {
+        if (preparationsOf == null) {
+            return;
+        }
+        List<Integer> before = preparationsOf.getOrDefault(recipeId, Collections.emptyList());
+        List<Integer> after = Collections.unmodifiableList(fetchPreparationIds(recipeId));
+
+        for (int prepId : before) {
+            if (!after.contains(prepId)) {
+                Set<Integer> recipes = new LinkedHashSet<>(recipesUsing.get(prepId));
+                recipes.remove(recipeId);
+                recipesUsing.put(prepId, Collections.unmodifiableSet(recipes));
+            }
+        }
+        for (int prepId : after) {
+            Set<Integer> recipes = new LinkedHashSet<>(recipesUsing.getOrDefault(prepId, Collections.emptySet()));
+            if (recipes.add(recipeId)) {
+                recipesUsing.put(prepId, Collections.unmodifiableSet(recipes));
+            }
+        }
+        if (after.isEmpty()) {
+            preparationsOf.remove(recipeId);
+        } else {
+            preparationsOf.put(recipeId, after);
+        }
+    }
+
+    private void build() {
+        if (preparationsOf != null) {
+            return;
+        }
+        Map<Integer, List<Integer>> forward = new HashMap<>();
+        Map<Integer, Set<Integer>> reverse = new HashMap<>();
+        PersistenceManager.executeQuery("SELECT recipe_id, preparation_id FROM RecipePreparations ORDER BY recipe_id, rowid",
+            rs -> {
+                int recipeId = rs.getInt("recipe_id");
+                int prepId = rs.getInt("preparation_id");
+                forward.computeIfAbsent(recipeId, k -> new ArrayList<>()).add(prepId);
+                reverse.computeIfAbsent(prepId, k -> new LinkedHashSet<>()).add(recipeId);
+            });
+
+        forward.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        reverse.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+        preparationsOf = forward;
+        recipesUsing = reverse;
+    }
+
+    private static List<Integer> fetchPreparationIds(int recipeId) {
+        List<Integer> ids = new ArrayList<>();
+        PersistenceManager.executeQuery("SELECT preparation_id FROM RecipePreparations WHERE recipe_id = ? ORDER BY rowid",
+            rs -> ids.add(rs.getInt("preparation_id")), recipeId);
+        return ids;
+    }
+}
@@ -0,0 +1,36 @@
+package catering.domains.recipe.infrastructure;
+
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class RecipePublisher {
+
+    // Registered from static initializers while other threads may be notifying
+    private static final CopyOnWriteArrayList<RecipeSubscriber> receivers = new CopyOnWriteArrayList<>();
+
+    public static void registerReceiver(RecipeSubscriber receiver) {
+        if (receiver != null) {
+            receivers.addIfAbsent(receiver);
+        }
+    }
+
+    public static void notifyRecipeCreated(Recipe recipe) {
+        for (RecipeSubscriber receiver : receivers) {
+            receiver.updateRecipeCreated(recipe);
+        }
+    }
+
+    public static void notifyRecipeUpdated(Recipe recipe) {
+        for (RecipeSubscriber receiver : receivers) {
+            receiver.updateRecipeUpdated(recipe);
+        }
+    }
+
+    public static void notifyPreparationUpdated(Preparation preparation) {
+        for (RecipeSubscriber receiver : receivers) {
+            receiver.updatePreparationUpdated(preparation);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package catering.domains.recipe.infrastructure;
+
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+
+public interface RecipeSubscriber {
+    void updateRecipeCreated(Recipe recipe);
+    void updateRecipeUpdated(Recipe recipe);
+    void updatePreparationUpdated(Preparation preparation);
+}
@@ -0,0 +1,98 @@
+package catering.domains.shift.domain;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of shifts bucketed by day. Looking up a day or an interval costs
+ * O(log n) plus the shifts returned, and shifts are added, moved or removed one at a time,
+ * so the index never has to be rebuilt. Not thread-safe.
+ */
+public class ShiftCalendar {
+
+    private static final Comparator<Shift> BY_START = Comparator.comparing(Shift::getStartTime,
+        Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final NavigableMap<LocalDate, Map<Integer, Shift>> days = new TreeMap<>();
+    private final Map<Integer, LocalDate> dayOfShift = new HashMap<>();
+
+    public ShiftCalendar() {
+    }
+
+    public ShiftCalendar(Collection<Shift> shifts) {
+        shifts.forEach(this::put);
+    }
+
+    /**
+     * Adds a shift, or replaces the one with the same id, moving it if its day changed.
+     * Shifts without an id or a date are ignored.
+     */
+    public void put(Shift shift) {
+        if (shift.getId() <= 0 || shift.getDate() == null) {
+            return;
+        }
+        remove(shift.getId());
+        LocalDate day = shift.getDate().toLocalDate();
+        days.computeIfAbsent(day, d -> new LinkedHashMap<>()).put(shift.getId(), shift);
+        dayOfShift.put(shift.getId(), day);
+    }
+
+    /**
+     * @return the removed shift, or null if it wasn't in the calendar
+     */
+    public Shift remove(int shiftId) {
+        LocalDate day = dayOfShift.remove(shiftId);
+        if (day == null) {
+            return null;
+        }
+        Map<Integer, Shift> bucket = days.get(day);
+        Shift removed = bucket.remove(shiftId);
+        if (bucket.isEmpty()) {
+            days.remove(day);
+        }
+        return removed;
+    }
+
+    public Shift get(int shiftId) {
+        LocalDate day = dayOfShift.get(shiftId);
+        return day != null ? days.get(day).get(shiftId) : null;
+    }
+
+    /**
+     * @return the shifts of the day, by start time
+     */
+    public List<Shift> getShifts(Date day) {
+        return getShifts(day, day);
+    }
+
+    /**
+     * @return the shifts between two days, both included, in chronological order
+     */
+    public List<Shift> getShifts(Date from, Date to) {
+        List<Shift> shifts = new ArrayList<>();
+        LocalDate first = from.toLocalDate();
+        LocalDate last = to.toLocalDate();
+        if (first.isAfter(last)) {
+            return shifts;
+        }
+        for (Map<Integer, Shift> bucket : days.subMap(first, true, last, true).values()) {
+            List<Shift> day = new ArrayList<>(bucket.values());
+            day.sort(BY_START);
+            shifts.addAll(day);
+        }
+        return shifts;
+    }
+
+    public int size() {
+        return dayOfShift.size();
+    }
+}
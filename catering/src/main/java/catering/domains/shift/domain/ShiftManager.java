@@ -7,7 +7,8 @@ import lombok.NoArgsConstructor;
 
 import java.sql.Date;
 import java.sql.Time;
-import java.util.ArrayList;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -21,6 +22,26 @@ import java.util.logging.Logger;
 public class ShiftManager {
     private final static Logger LOGGER = LogManager.getLogger(ShiftManager.class);
 
+    // When set, day and interval views are answered from memory instead of the database
+    private ShiftCalendar calendar;
+
+    /**
+     * Loads every shift into an in-memory calendar, kept up to date by this manager,
+     * which then answers day and interval views without querying.
+     */
+    public void enableCalendar() {
+        calendar = new ShiftCalendar(ShiftDAO.loadAll());
+        LOGGER.info("Shift calendar enabled with " + calendar.size() + " shifts");
+    }
+
+    public void disableCalendar() {
+        calendar = null;
+    }
+
+    public boolean isCalendarEnabled() {
+        return calendar != null;
+    }
+
     public List<Shift> getShiftTable() {
         return ShiftDAO.loadAll();
     }
@@ -31,7 +52,9 @@ public class ShiftManager {
 
     public Shift createShift(Date date, Time startTime, Time endTime, String workPlace, boolean isKitchen) {
         LOGGER.info("Creating new shift on " + date + " at " + workPlace);
-        return ShiftDAO.create(date, startTime, endTime);
+        Shift shift = ShiftDAO.create(date, startTime, endTime);
+        track(shift);
+        return shift;
     }
 
     public Shift loadShiftById(int id) {
@@ -42,12 +65,14 @@ public class ShiftManager {
     public void updateShift(Shift shift) {
         LOGGER.info("Updating shift with ID: " + shift.getId());
         ShiftDAO.update(shift);
+        track(shift);
     }
 
     public void bookStaffMemberForShift(Shift shift, StaffMember staffMember) {
         if (isAvailable(staffMember, shift)) {
             LOGGER.info("Booking user " + staffMember.getEmail() + " for shift ID: " + shift.getId());
             shift.addBooking(staffMember);
+            track(shift);
         } else {
             LOGGER.warning("StaffMember " + staffMember.getEmail() + " is already booked for shift ID: " + shift.getId());
         }
@@ -55,7 +80,9 @@ public class ShiftManager {
 
     public StaffMember removeStaffMemberFromShift(Shift shift, StaffMember staffMember) {
         LOGGER.info("Removing user " + staffMember.getEmail() + " from shift ID: " + shift.getId());
-        return ShiftDAO.removeBooking(shift, staffMember);
+        StaffMember removed = ShiftDAO.removeBooking(shift, staffMember);
+        track(shift);
+        return removed;
     }
 
     public Map<Integer, StaffMember> getBookedStaffMembers(Shift shift) {
@@ -63,12 +90,30 @@ public class ShiftManager {
     }
 
     public List<Shift> getShiftsForDate(Date date) {
-        List<Shift> dateShifts = new ArrayList<>();
-        for (Shift shift : getShiftTable()) {
-            if (shift.getDate().equals(date)) {
-                dateShifts.add(shift);
-            }
+        return getShiftsBetween(date, date);
+    }
+
+    public List<Shift> getShiftsForWeek(Date date) {
+        if (calendar == null) {
+            return ShiftDAO.loadWeek(date);
+        }
+        LocalDate monday = date.toLocalDate().with(DayOfWeek.MONDAY);
+        return calendar.getShifts(Date.valueOf(monday), Date.valueOf(monday.plusDays(6)));
+    }
+
+    /**
+     * @return the shifts between two days, both included, in chronological order
+     */
+    public List<Shift> getShiftsBetween(Date from, Date to) {
+        return calendar != null ? calendar.getShifts(from, to) : ShiftDAO.loadBetween(from, to);
+    }
+
+
+    // HELPERS
+
+    private void track(Shift shift) {
+        if (calendar != null) {
+            calendar.put(shift);
         }
-        return dateShifts;
     }
 }
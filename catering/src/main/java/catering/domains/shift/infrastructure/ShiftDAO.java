@@ -3,25 +3,41 @@ package catering.domains.shift.infrastructure;
 import catering.domains.shift.domain.Shift;
 import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.BatchLoader;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
+import catering.persistence.ResultHandler;
+import catering.persistence.Session;
+import catering.utils.DateUtils;
 import catering.utils.LogManager;
 
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public class ShiftDAO {
     private static final Logger LOGGER = LogManager.getLogger(ShiftDAO.class);
 
+    private static final Keyset PAGES = Keyset.ascending("shifts", "day", "start_time", "id");
+    private static final String BOOKINGS_BY_SHIFT = "SELECT shift_id, staff_member_id FROM ShiftBookings WHERE shift_id IN (%s)";
+
+    private static final Comparator<Shift> CHRONOLOGICAL = Comparator.comparing(Shift::getDate)
+        .thenComparing(Shift::getStartTime);
+
     public static boolean save(Shift s) {
         if (s.getId() > 0) {
             return update(s);
         } else {
             Shift created = create(s.getDate(), s.getStartTime(), s.getEndTime());
             s.setId(created.getId());
+            Session.attach(Shift.class, s.getId(), s);
             return true;
         }
     }
@@ -31,47 +47,109 @@ public class ShiftDAO {
             return save(s);
         }
         String sql = "UPDATE Shifts SET date = ?, start_time = ?, end_time = ? WHERE id = ?";
-        PersistenceManager.executeUpdate(sql, s.getDate(), s.getStartTime(), s.getEndTime(), s.getId());
+        PersistenceManager.executeUpdate(sql, DateUtils.toDayKey(s.getDate()),
+            DateUtils.toTimeKey(s.getStartTime()), DateUtils.toTimeKey(s.getEndTime()), s.getId());
         return true;
     }
 
     public static Shift loadById(int id) {
-        String query = "SELECT * FROM Shifts WHERE id = ?";
-        final Shift[] holder = new Shift[1];
-
-        PersistenceManager.executeQuery(query, rs -> {
-            Shift s = mapRowToShift(rs);
-            s.getBookedStaffMembers().clear();
-            s.getBookedStaffMembers().putAll(loadBookings(s));
-            holder[0] = s;
-        }, id);
+        return Session.resolve(Shift.class, id, key -> {
+            Shift s = fetchByIds(List.of(key)).get(key);
+            if (s == null) {
+                LOGGER.warning("Shift with ID " + key + " not found");
+            }
+            return s;
+        });
+    }
 
-        if (holder[0] == null) {
-            LOGGER.warning("Shift with ID " + id + " not found");
-        }
-        return holder[0];
+    /**
+     * Loads several shifts with their bookings: one query per 500 ids for the shifts, as
+     * many for their bookings and one for the booked staff members.
+     *
+     * @return the shifts found, by id; unknown ids are left out
+     */
+    public static Map<Integer, Shift> loadByIds(Collection<Integer> ids) {
+        return Session.resolveAll(Shift.class, ids, ShiftDAO::fetchByIds);
     }
 
+    /**
+     * Loads every shift with its bookings; staff members booked on several shifts are loaded once.
+     */
     public static List<Shift> loadAll() {
         String query = "SELECT * FROM Shifts";
         List<Shift> shifts = new ArrayList<>();
 
-        PersistenceManager.executeQuery(query, rs -> {
-            Shift s = mapRowToShift(rs);
-            s.getBookedStaffMembers().clear();
-            s.getBookedStaffMembers().putAll(loadBookings(s));
-            shifts.add(s);
+        PersistenceManager.runInSession(() -> {
+            PersistenceManager.executeQuery(query, rs -> shifts.add(mapRowToShift(rs)));
+            loadBookings(shifts, handler -> PersistenceManager.executeQuery("SELECT shift_id, staff_member_id FROM ShiftBookings", handler));
+            shifts.replaceAll(s -> Session.attach(Shift.class, s.getId(), s));
+        });
+
+        shifts.sort(CHRONOLOGICAL);
+        return shifts;
+    }
+
+    /**
+     * Lists the shifts in chronological order one page at a time, with their bookings.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<Shift> loadPage(String pageToken, int limit) {
+        return PersistenceManager.inSession(() -> {
+            Page<Shift> page = PAGES.page("SELECT * FROM Shifts WHERE 1 = 1", ShiftDAO::mapRowToShift, pageToken, limit);
+            List<Shift> shifts = new ArrayList<>(page.getItems());
+            if (!shifts.isEmpty()) {
+                List<Integer> ids = new ArrayList<>();
+                shifts.forEach(s -> ids.add(s.getId()));
+                loadBookings(shifts, handler -> BatchLoader.queryInChunks(BOOKINGS_BY_SHIFT, ids, handler));
+            }
+            shifts.replaceAll(s -> Session.attach(Shift.class, s.getId(), s));
+            return page.withItems(shifts);
+        });
+    }
+
+    /**
+     * Loads the shifts of one day with their bookings.
+     */
+    public static List<Shift> loadByDate(Date day) {
+        return loadBetween(day, day);
+    }
+
+    /**
+     * Loads the shifts of the week, Monday to Sunday, that contains the given day.
+     */
+    public static List<Shift> loadWeek(Date day) {
+        LocalDate monday = day.toLocalDate().with(DayOfWeek.MONDAY);
+        return loadBetween(Date.valueOf(monday), Date.valueOf(monday.plusDays(6)));
+    }
+
+    /**
+     * Loads the shifts between two days, both included, in chronological order.
+     * Looks them up through the index on their day, so the cost depends on the
+     * shifts in the range rather than on the whole history.
+     */
+    public static List<Shift> loadBetween(Date from, Date to) {
+        String range = "day BETWEEN ? AND ?";
+        List<Shift> shifts = new ArrayList<>();
+
+        PersistenceManager.runInSession(() -> {
+            PersistenceManager.executeQuery("SELECT * FROM Shifts WHERE " + range,
+                rs -> shifts.add(mapRowToShift(rs)), DateUtils.toDayKey(from), DateUtils.toDayKey(to));
+            String bookingsInRange = "SELECT shift_id, staff_member_id FROM ShiftBookings " +
+                "WHERE shift_id IN (SELECT id FROM Shifts WHERE " + range + ")";
+            loadBookings(shifts, handler -> PersistenceManager.executeQuery(bookingsInRange, handler,
+                DateUtils.toDayKey(from), DateUtils.toDayKey(to)));
+            shifts.replaceAll(s -> Session.attach(Shift.class, s.getId(), s));
         });
 
-        shifts.sort(Comparator.comparing(Shift::getDate)
-            .thenComparing(Shift::getStartTime));
+        shifts.sort(CHRONOLOGICAL);
         return shifts;
     }
 
     public static Shift create(Date date, Time start, Time end) {
         String sql = "INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)";
-        PersistenceManager.executeUpdate(sql, date, start, end);
-        int id = PersistenceManager.getLastId();
+        int id = PersistenceManager.executeInsert(sql,
+            DateUtils.toDayKey(date), DateUtils.toTimeKey(start), DateUtils.toTimeKey(end));
         LOGGER.info("Created new shift ID " + id + " on " + date);
         Shift s = new Shift(date, start, end);
         s.setId(id);
@@ -95,12 +173,12 @@ public class ShiftDAO {
 
 
     // HELPERS
-    
+
     private static Shift mapRowToShift(ResultSet rs) throws SQLException {
         Shift s = new Shift();
         s.setId(rs.getInt("id"));
         try {
-            s.setDate(Date.valueOf(rs.getString("date")));
+            s.setDate(DateUtils.fromDayKey(rs.getString("date")));
             s.setStartTime(Time.valueOf(rs.getString("start_time")));
             s.setEndTime(Time.valueOf(rs.getString("end_time")));
         } catch (IllegalArgumentException ex) {
@@ -109,15 +187,39 @@ public class ShiftDAO {
         return s;
     }
 
-    private static Map<Integer, StaffMember> loadBookings(Shift s) {
-        Map<Integer, StaffMember> map = new HashMap<>();
-        String sql = "SELECT staff_member_id FROM ShiftBookings WHERE shift_id = ?";
-        PersistenceManager.executeQuery(sql, rs -> {
+    private static Map<Integer, Shift> fetchByIds(List<Integer> ids) {
+        Map<Integer, Shift> shifts = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return shifts;
+        }
+        BatchLoader.queryInChunks("SELECT * FROM Shifts WHERE id IN (%s)", ids, rs -> {
+            Shift s = mapRowToShift(rs);
+            shifts.put(s.getId(), s);
+        });
+        loadBookings(shifts.values(), handler -> BatchLoader.queryInChunks(BOOKINGS_BY_SHIFT, ids, handler));
+        return shifts;
+    }
+
+    // The bookings query is handed the row handler; the booked staff members then take one more batch
+    private static void loadBookings(Collection<Shift> shifts, Consumer<ResultHandler> bookingsQuery) {
+        Map<Integer, Map<Integer, StaffMember>> bookings = new HashMap<>();
+        for (Shift s : shifts) {
+            bookings.put(s.getId(), new HashMap<>());
+        }
+
+        BatchLoader<Integer, StaffMember> staff = new BatchLoader<>(StaffMemberDAO::loadByIds);
+        bookingsQuery.accept(rs -> {
+            Map<Integer, StaffMember> booked = bookings.get(rs.getInt("shift_id"));
             int uid = rs.getInt("staff_member_id");
-            StaffMember sm = StaffMemberDAO.loadById(uid);
-            map.put(uid, sm);
-        }, s.getId());
-        LOGGER.fine("Loaded " + map.size() + " bookings for shift ID " + s.getId());
-        return map;
+            if (booked != null) {
+                staff.load(uid, sm -> booked.put(uid, sm != null ? sm : new StaffMember()));
+            }
+        });
+        staff.dispatch();
+
+        for (Shift s : shifts) {
+            // getBookedStaffMembers() returns a copy, so the map is replaced
+            s.setBookedStaffMembers(bookings.get(s.getId()));
+        }
     }
 }
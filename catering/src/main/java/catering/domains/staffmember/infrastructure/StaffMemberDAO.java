@@ -3,93 +3,175 @@ package catering.domains.staffmember.infrastructure;
 import catering.domains.staffmember.domain.StaffMember;
 import catering.domains.staffmember.domain.StaffMember.EmploymentType;
 import catering.domains.staffmember.domain.StaffMember.Role;
+import catering.persistence.BatchLoader;
+import catering.persistence.Keyset;
+import catering.persistence.Page;
 import catering.persistence.PersistenceManager;
+import catering.persistence.QueryCursor;
+import catering.persistence.Session;
 import catering.utils.DateUtils;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StaffMemberDAO {
 
-    public static StaffMember loadById(int id) {
-        StaffMember staff = new StaffMember();
-        String query = "SELECT * FROM StaffMembers WHERE id = ?";
-        PersistenceManager.executeQuery(query, rs -> mapStaffMember(rs, staff), id);
+    // Staff columns plus one row per role; a staff member without roles comes back once with NULL role columns
+    private static final String SELECT_WITH_ROLES = "SELECT s.*, r.role_id, r.job FROM StaffMembers s "
+        + "LEFT JOIN StaffMemberRoles r ON r.staff_member_id = s.id";
 
-        if (staff.getId() > 0) loadRolesForStaffMember(staff);
-        return staff;
+    private static final Keyset PAGES = Keyset.ascending("staff members", "id");
+
+    public static StaffMember loadById(int id) {
+        StaffMember staff = Session.resolve(StaffMember.class, id, key -> {
+            List<StaffMember> found = loadWithRoles(SELECT_WITH_ROLES + " WHERE s.id = ?", key);
+            return found.isEmpty() ? null : found.get(0);
+        });
+        return staff != null ? staff : new StaffMember();
     }
 
     public static StaffMember loadByEmail(String email) {
-        StaffMember staff = new StaffMember();
-        String query = "SELECT * FROM StaffMembers WHERE email = ?";
-        PersistenceManager.executeQuery(query, rs -> mapStaffMember(rs, staff), email);
+        List<StaffMember> found = loadWithRoles(SELECT_WITH_ROLES + " WHERE s.email = ?", email);
+        return found.isEmpty() ? null : found.get(0);
+    }
 
-        if (staff.getId() > 0) {
-            loadRolesForStaffMember(staff);
-            return staff;
-        }
-        return null;
+    /**
+     * Loads the given staff members with their roles, with as few queries as
+     * {@link BatchLoader#queryInChunks} allows.
+     *
+     * @return the staff members found, by id; unknown ids are left out
+     */
+    public static Map<Integer, StaffMember> loadByIds(Collection<Integer> ids) {
+        return Session.resolveAll(StaffMember.class, ids, StaffMemberDAO::fetchByIds);
     }
 
     public static List<StaffMember> loadAll() {
-        List<StaffMember> staffList = new ArrayList<>();
-        String query = "SELECT * FROM StaffMembers";
+        return loadWithRoles(SELECT_WITH_ROLES);
+    }
 
-        PersistenceManager.executeQuery(query, rs -> {
-            StaffMember staff = new StaffMember();
-            mapStaffMember(rs, staff);
-            loadRolesForStaffMember(staff);
-            staffList.add(staff);
-        });
+    /**
+     * Lists the staff members by id one page at a time, with their roles. The page is read
+     * by id first, since a staff member spans one row per role.
+     *
+     * @param pageToken the token of the previous page, or null for the first page
+     */
+    public static Page<StaffMember> loadPage(String pageToken, int limit) {
+        Page<Integer> ids = PAGES.page("SELECT id FROM StaffMembers WHERE 1 = 1", rs -> rs.getInt("id"), pageToken, limit);
+        Map<Integer, StaffMember> byId = loadByIds(ids.getItems());
+
+        List<StaffMember> staff = new ArrayList<>(byId.size());
+        for (int id : ids.getItems()) {
+            StaffMember s = byId.get(id);
+            if (s != null) {
+                staff.add(s);
+            }
+        }
+        return ids.withItems(staff);
+    }
+
+    /**
+     * Streams every staff member with their roles, one staff member at a time. The stream must be closed.
+     */
+    public static Stream<StaffMember> streamAll() {
+        QueryCursor<StaffMember> rows = PersistenceManager.openCursor(SELECT_WITH_ROLES + " ORDER BY s.id",
+            PersistenceManager.DEFAULT_FETCH_SIZE, rs -> {
+                StaffMember staff = new StaffMember();
+                mapStaffMember(rs, staff);
+                mapRole(rs, staff);
+                return staff;
+            });
+
+        Iterator<StaffMember> folded = new Iterator<>() {
+            private StaffMember pending;
+
+            @Override
+            public boolean hasNext() {
+                return pending != null || rows.hasNext();
+            }
+
+            @Override
+            public StaffMember next() {
+                StaffMember staff = pending != null ? pending : rows.next();
+                pending = null;
+                // The rows of one staff member are adjacent, merge them until the id changes
+                while (rows.hasNext()) {
+                    StaffMember row = rows.next();
+                    if (row.getId() != staff.getId()) {
+                        pending = row;
+                        break;
+                    }
+                    row.getInternalRolesMap().forEach((role, jobs) ->
+                        staff.getInternalRolesMap().computeIfAbsent(role, k -> new HashSet<>()).addAll(jobs));
+                }
+                return staff;
+            }
+        };
 
-        return staffList;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(folded, Spliterator.ORDERED), false)
+            .onClose(rows::close);
     }
 
     public static void save(StaffMember staff) {
         String query = "INSERT INTO StaffMembers (email, name, surname, dateOfBirth, address, phone, wage, employmentType_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        PersistenceManager.executeUpdate(query,
-                staff.getEmail(),
-                staff.getName(),
-                staff.getSurname(),
-                staff.getDateOfBirth(),
-                staff.getAddress(),
-                staff.getPhone(),
-                staff.getWage(),
-                staff.getEmploymentType() == EmploymentType.PERMANENTE ? 0 : 1);
+        PersistenceManager.tryRunInTransaction(() -> {
+            int id = PersistenceManager.executeInsert(query,
+                    staff.getEmail(),
+                    staff.getName(),
+                    staff.getSurname(),
+                    staff.getDateOfBirth(),
+                    staff.getAddress(),
+                    staff.getPhone(),
+                    staff.getWage(),
+                    staff.getEmploymentType() == EmploymentType.PERMANENTE ? 0 : 1);
+
+            staff.setId(id);
+            if (id == 0) return;
 
-        staff.setId(PersistenceManager.getLastId());
-        saveRoles(staff);
+            Session.attach(StaffMember.class, id, staff);
+            // The row is gone if the transaction rolls back, and SQLite may hand its id out again
+            PersistenceManager.afterRollback(() -> {
+                Session.evict(StaffMember.class, id);
+                staff.setId(0);
+            });
+            saveRoles(staff);
+        });
     }
 
     public static boolean update(StaffMember staff) {
         String query = "UPDATE StaffMembers SET email = ?, name = ?, surname = ?, dateOfBirth = ?, address = ?, phone = ?, wage = ?, employmentType_id = ? WHERE id = ?";
 
-        int updated = PersistenceManager.executeUpdate(query,
-                staff.getEmail(),
-                staff.getName(),
-                staff.getSurname(),
-                staff.getDateOfBirth(),
-                staff.getAddress(),
-                staff.getPhone(),
-                staff.getWage(),
-                staff.getEmploymentType() == EmploymentType.PERMANENTE ? 0 : 1,
-                staff.getId());
+        return PersistenceManager.tryInTransaction(false, () -> {
+            int updated = PersistenceManager.executeUpdate(query,
+                    staff.getEmail(),
+                    staff.getName(),
+                    staff.getSurname(),
+                    staff.getDateOfBirth(),
+                    staff.getAddress(),
+                    staff.getPhone(),
+                    staff.getWage(),
+                    staff.getEmploymentType() == EmploymentType.PERMANENTE ? 0 : 1,
+                    staff.getId());
 
-        saveRoles(staff);
-        return updated > 0;
+            saveRoles(staff);
+            return updated > 0;
+        });
     }
 
     public static boolean delete(StaffMember staff) {
         int id = staff.getId();
         if (id == 0) return false;
 
-        PersistenceManager.executeUpdate("DELETE FROM StaffMemberRoles WHERE staff_member_id = ?", id);
-        int rows = PersistenceManager.executeUpdate("DELETE FROM StaffMembers WHERE id = ?", id);
+        int rows = PersistenceManager.tryInTransaction(0, () -> {
+            PersistenceManager.executeUpdate("DELETE FROM StaffMemberRoles WHERE staff_member_id = ?", id);
+            return PersistenceManager.executeUpdate("DELETE FROM StaffMembers WHERE id = ?", id);
+        });
 
         if (rows > 0) {
+            Session.evict(StaffMember.class, id);
             staff.setId(0);
             return true;
         }
@@ -111,36 +193,73 @@ public class StaffMemberDAO {
         staff.setEmploymentType(rs.getInt("employmentType_id") == 0 ? EmploymentType.PERMANENTE : EmploymentType.OCCASIONALE);
     }
 
-    private static void loadRolesForStaffMember(StaffMember staff) {
-        String query = "SELECT * FROM StaffMemberRoles WHERE staff_member_id = ?";
+    /**
+     * Runs a query over {@link #SELECT_WITH_ROLES} and folds its rows into staff members, in id order.
+     */
+    private static List<StaffMember> loadWithRoles(String query, Object... params) {
+        Map<Integer, StaffMember> byId = new TreeMap<>();
+        PersistenceManager.executeQuery(query, rs -> foldRow(rs, byId), params);
+        return attachAll(byId.values());
+    }
+
+    private static Map<Integer, StaffMember> fetchByIds(List<Integer> ids) {
+        Map<Integer, StaffMember> byId = new TreeMap<>();
+        BatchLoader.queryInChunks(SELECT_WITH_ROLES + " WHERE s.id IN (%s)", ids, rs -> foldRow(rs, byId));
+
+        Map<Integer, StaffMember> result = new LinkedHashMap<>();
+        for (StaffMember staff : attachAll(byId.values())) {
+            result.put(staff.getId(), staff);
+        }
+        return result;
+    }
+
+    // A staff member spans one row per role: the first row maps it, every row adds its role
+    private static void foldRow(ResultSet rs, Map<Integer, StaffMember> byId) throws SQLException {
+        StaffMember staff = byId.get(rs.getInt("id"));
+        if (staff == null) {
+            staff = new StaffMember();
+            mapStaffMember(rs, staff);
+            byId.put(staff.getId(), staff);
+        }
+        mapRole(rs, staff);
+    }
+
+    private static List<StaffMember> attachAll(Collection<StaffMember> loaded) {
+        List<StaffMember> staff = new ArrayList<>(loaded.size());
+        for (StaffMember s : loaded) {
+            staff.add(Session.attach(StaffMember.class, s.getId(), s));
+        }
+        return staff;
+    }
 
-        PersistenceManager.executeQuery(query, rs -> {
-            Role role = Role.values()[rs.getInt("role_id")];
-            String job = rs.getString("job");
+    private static void mapRole(ResultSet rs, StaffMember staff) throws SQLException {
+        int roleId = rs.getInt("role_id");
+        if (rs.wasNull()) return;
 
-            staff.getInternalRolesMap()
-                .computeIfAbsent(role, k -> new HashSet<>())
-                .add(job);
-        }, staff.getId());
+        staff.getInternalRolesMap()
+            .computeIfAbsent(Role.values()[roleId], k -> new HashSet<>())
+            .add(rs.getString("job"));
     }
 
     private static void saveRoles(StaffMember staff) {
         if (staff.getId() == 0) return;
 
-        PersistenceManager.executeUpdate("DELETE FROM StaffMemberRoles WHERE staff_member_id = ?", staff.getId());
+        PersistenceManager.runInTransaction(() -> {
+            PersistenceManager.executeUpdate("DELETE FROM StaffMemberRoles WHERE staff_member_id = ?", staff.getId());
 
-        for (Map.Entry<Role, Set<String>> entry : staff.getInternalRolesMap().entrySet()) {
-            int roleId = entry.getKey().getRoleId();
-            Set<String> jobs = entry.getValue();
+            for (Map.Entry<Role, Set<String>> entry : staff.getInternalRolesMap().entrySet()) {
+                int roleId = entry.getKey().getRoleId();
+                Set<String> jobs = entry.getValue();
 
-            if (jobs.isEmpty()) {
-                PersistenceManager.executeUpdate("INSERT INTO StaffMemberRoles (staff_member_id, role_id) VALUES (?, ?)", staff.getId(), roleId);
-            } else {
-                for (String job : jobs) {
-                    PersistenceManager.executeUpdate("INSERT INTO StaffMemberRoles (staff_member_id, role_id, job) VALUES (?, ?, ?)",
-                        staff.getId(), roleId, job);
+                if (jobs.isEmpty()) {
+                    PersistenceManager.executeUpdate("INSERT INTO StaffMemberRoles (staff_member_id, role_id) VALUES (?, ?)", staff.getId(), roleId);
+                } else {
+                    for (String job : jobs) {
+                        PersistenceManager.executeUpdate("INSERT INTO StaffMemberRoles (staff_member_id, role_id, job) VALUES (?, ?, ?)",
+                            staff.getId(), roleId, job);
+                    }
                 }
             }
-        }
+        });
     }
 }
@@ -0,0 +1,139 @@
+package catering.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces lookups by key into batches, in the style of DataLoader: callers register
+ * the keys they need while reading rows, and {@link #dispatch()} fetches all of them
+ * with one call to the batch function, then hands each caller its value.
+ * <p>
+ * Keys are de-duplicated, and a key loaded once is not fetched again by the same
+ * loader. Callbacks run in the order they were registered, so they may rebuild
+ * ordered collections. Not thread-safe: a loader belongs to the code that created it.
+ *
+ * @see BatchScope
+ */
+public class BatchLoader<K, V> {
+
+    // Keys bound per query by queryInChunks, well below SQLite's parameter limit
+    private static final int MAX_KEYS_PER_QUERY = 500;
+
+    private final Function<? super List<K>, ? extends Map<K, V>> batchFunction;
+    private final List<Map.Entry<K, Consumer<? super V>>> pending = new ArrayList<>();
+    private final Map<K, V> loaded = new HashMap<>();
+    private int batches;
+
+    /**
+     * @param batchFunction loads the given distinct keys; keys it leaves out resolve to null
+     */
+    public BatchLoader(Function<? super List<K>, ? extends Map<K, V>> batchFunction) {
+        this.batchFunction = batchFunction;
+    }
+
+    /**
+     * Registers a key; the callback receives its value, or null if it doesn't exist, at the next dispatch.
+     */
+    public void load(K key, Consumer<? super V> callback) {
+        pending.add(Map.entry(key, callback));
+    }
+
+    /**
+     * @return a future completed with the value of the key, or null, at the next dispatch
+     */
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        load(key, future::complete);
+        return future;
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * @return the number of calls made to the batch function so far
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Fetches every key registered since the last dispatch that wasn't loaded before,
+     * with a single call to the batch function, then runs the callbacks.
+     * Callbacks may register more keys; those wait for the next dispatch.
+     *
+     * @return the number of callbacks run
+     */
+    public int dispatch() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<K, Consumer<? super V>>> batch = new ArrayList<>(pending);
+        pending.clear();
+
+        Set<K> missing = new LinkedHashSet<>();
+        for (Map.Entry<K, Consumer<? super V>> entry : batch) {
+            if (!loaded.containsKey(entry.getKey())) {
+                missing.add(entry.getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            batches++;
+            Map<K, V> values = batchFunction.apply(new ArrayList<>(missing));
+            for (K key : missing) {
+                loaded.put(key, values.get(key));
+            }
+        }
+
+        for (Map.Entry<K, Consumer<? super V>> entry : batch) {
+            entry.getValue().accept(loaded.get(entry.getKey()));
+        }
+        return batch.size();
+    }
+
+    /**
+     * Builds a batch function out of a query with a {@code %s} where the key list goes,
+     * e.g. {@code SELECT * FROM Preparations WHERE id IN (%s)}. Runs one query per
+     * {@value #MAX_KEYS_PER_QUERY} keys.
+     *
+     * @param keyOf the key of a mapped row; rows sharing a key keep the first one
+     */
+    public static <K, V> Function<List<K>, Map<K, V>> queryByKeys(String query, RowMapper<? extends V> mapper,
+                                                                  Function<? super V, ? extends K> keyOf) {
+        return keys -> {
+            Map<K, V> values = new LinkedHashMap<>();
+            queryInChunks(query, keys, rs -> {
+                V value = mapper.map(rs);
+                values.putIfAbsent(keyOf.apply(value), value);
+            });
+            return values;
+        };
+    }
+
+    /**
+     * Runs a query with a {@code %s} where the key list goes, once per
+     * {@value #MAX_KEYS_PER_QUERY} distinct keys, so any number of keys stays within
+     * SQLite's parameter limit. The rows of a key all come from the same query, so
+     * an ORDER BY starting with the key column keeps each key's rows in order.
+     * Any other {@code %} in the query is left alone.
+     */
+    public static void queryInChunks(String query, Collection<?> keys, ResultHandler handler) {
+        List<?> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        for (int from = 0; from < distinct.size(); from += MAX_KEYS_PER_QUERY) {
+            List<?> chunk = distinct.subList(from, Math.min(from + MAX_KEYS_PER_QUERY, distinct.size()));
+            String sql = query.replace("%s", String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            PersistenceManager.executeQuery(sql, handler, chunk.toArray());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package catering.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A group of {@link BatchLoader}s flushed together: {@link #dispatch()} keeps dispatching
+ * them until none has keys pending, so lookups registered by callbacks (a task's recipe,
+ * then the recipe's preparations) are batched as well, one call per type and round.
+ * Not thread-safe.
+ */
+public class BatchScope {
+
+    private final List<BatchLoader<?, ?>> loaders = new ArrayList<>();
+
+    /**
+     * @return a new loader dispatched with this scope
+     */
+    public <K, V> BatchLoader<K, V> loader(Function<? super List<K>, ? extends Map<K, V>> batchFunction) {
+        BatchLoader<K, V> loader = new BatchLoader<>(batchFunction);
+        loaders.add(loader);
+        return loader;
+    }
+
+    /**
+     * Dispatches every loader, in creation order, until no keys are left pending.
+     */
+    public void dispatch() {
+        boolean pending = true;
+        while (pending) {
+            pending = false;
+            for (BatchLoader<?, ?> loader : loaders) {
+                if (loader.dispatch() > 0) {
+                    pending = true;
+                }
+            }
+        }
+    }
+}
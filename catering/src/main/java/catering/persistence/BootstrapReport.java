@@ -0,0 +1,61 @@
+package catering.persistence;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Timings of the one-time database bootstrap, phase by phase.
+ */
+public class BootstrapReport {
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final long startedAt = System.nanoTime();
+    private long phaseStartedAt = startedAt;
+    private long totalNanos;
+
+    @Getter
+    private boolean databaseCreated;
+
+    void markDatabaseCreated() {
+        this.databaseCreated = true;
+    }
+
+    /**
+     * Closes the current phase under the given name and starts timing the next one.
+     */
+    void endPhase(String phase) {
+        long now = System.nanoTime();
+        phaseNanos.merge(phase, now - phaseStartedAt, Long::sum);
+        phaseStartedAt = now;
+    }
+
+    void finish() {
+        totalNanos = System.nanoTime() - startedAt;
+    }
+
+    public Map<String, Long> getPhaseNanos() {
+        return Collections.unmodifiableMap(phaseNanos);
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("Database bootstrap took %.2fms", getTotalMillis()));
+        if (databaseCreated) {
+            sb.append(" (new database)");
+        }
+        sb.append(" [");
+        String sep = "";
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            sb.append(sep).append(phase.getKey()).append(String.format("=%.2fms", phase.getValue() / 1_000_000.0));
+            sep = ", ";
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,30 @@
+package catering.persistence;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How {@link PersistenceManager#executeBulkInsert} splits and commits a bulk insert.
+ */
+@Data
+@NoArgsConstructor
+public class BulkInsertOptions {
+
+    public enum TransactionScope {
+        // All chunks commit together, or none does
+        PER_CALL,
+        // Each chunk commits on its own; a failure keeps the chunks already committed. Inside
+        // an outer transaction the chunks can only roll back on their own, they commit with it
+        PER_CHUNK
+    }
+
+    // Rows per chunk; capped so a chunk never binds more than SQLite's parameter limit
+    private int chunkSize = 500;
+    private TransactionScope transactionScope = TransactionScope.PER_CALL;
+    // Rewrite each chunk into one INSERT ... VALUES (...), (...) statement
+    private boolean multiRowValues = true;
+
+    public static BulkInsertOptions defaults() {
+        return new BulkInsertOptions();
+    }
+}
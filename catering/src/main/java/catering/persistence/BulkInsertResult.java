@@ -0,0 +1,25 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * Keys and throughput of a bulk insert.
+ */
+@Value
+public class BulkInsertResult {
+    // Generated key of each row, in input order; 0 for rows that weren't inserted
+    int[] keys;
+    int rows;
+    int chunks;
+    long elapsedNanos;
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkInsertResult[rows=%d, chunks=%d, elapsed=%.2fms, %.0f rows/s]",
+            rows, chunks, elapsedNanos / 1_000_000.0, getRowsPerSecond());
+    }
+}
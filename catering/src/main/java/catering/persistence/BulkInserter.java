@@ -0,0 +1,201 @@
+package catering.persistence;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import catering.utils.LogManager;
+
+/**
+ * Runs a bulk insert in chunks, each chunk as one multi-row
+ * {@code INSERT ... VALUES (...), (...) RETURNING rowid} statement.
+ * <p>
+ * The keys are read back from the RETURNING rows rather than computed, so gaps left by
+ * deleted rows or AUTOINCREMENT don't matter. SQLite doesn't promise to return them in
+ * insert order, but the rowids it gives the rows of one statement increase, so the
+ * sorted keys line up with the rows. This holds for tables whose key is the rowid
+ * (INTEGER PRIMARY KEY) as long as the insert doesn't supply the key itself.
+ */
+final class BulkInserter {
+
+    private static final Logger LOGGER = LogManager.getLogger(BulkInserter.class);
+
+    // SQLITE_MAX_VARIABLE_NUMBER of the bundled SQLite
+    private static final int MAX_PARAMETERS = 32_766;
+
+    private static final Pattern SINGLE_ROW_INSERT =
+        Pattern.compile("(?is)^\\s*(INSERT\\s.+?\\)\\s*VALUES)\\s*(\\([^()]*\\))\\s*;?\\s*$");
+
+    private final ConnectionPool writer;
+    private final String insert;
+    private final int itemNumber;
+    private final BatchUpdateHandler handler;
+    private final BulkInsertOptions options;
+
+    // Multi-row rewrite, null when the statement can't be rewritten
+    private final String prefix;
+    private final String rowValues;
+    private final int parametersPerRow;
+    private final int chunkSize;
+
+    private final int[] keys;
+    private int insertedRows;
+    private int chunks;
+
+    BulkInserter(ConnectionPool writer, String insert, int itemNumber, BatchUpdateHandler handler, BulkInsertOptions options) {
+        this.writer = writer;
+        this.insert = insert;
+        this.itemNumber = itemNumber;
+        this.handler = handler;
+        this.options = options;
+        this.keys = new int[itemNumber];
+
+        Matcher m = SINGLE_ROW_INSERT.matcher(insert);
+        if (options.isMultiRowValues() && m.matches()) {
+            this.prefix = m.group(1);
+            this.rowValues = m.group(2);
+            this.parametersPerRow = (int) rowValues.chars().filter(c -> c == '?').count();
+        } else {
+            this.prefix = null;
+            this.rowValues = null;
+            this.parametersPerRow = 0;
+        }
+        int maxRows = parametersPerRow > 0 ? MAX_PARAMETERS / parametersPerRow : Integer.MAX_VALUE;
+        this.chunkSize = Math.max(1, Math.min(options.getChunkSize(), maxRows));
+    }
+
+    BulkInsertResult run() {
+        long start = System.nanoTime();
+        boolean perCall = options.getTransactionScope() == BulkInsertOptions.TransactionScope.PER_CALL;
+        if (!perCall && Transaction.isActive()) {
+            LOGGER.warning("Bulk insert with PER_CHUNK scope inside a transaction: its chunks commit with "
+                + "the transaction, a failed chunk only rolls back to its savepoint: " + insert);
+        }
+        if (perCall) {
+            try {
+                Transaction.run(writer, () -> {
+                    for (int from = 0; from < itemNumber; from += chunkSize) {
+                        insertChunk(from, Math.min(chunkSize, itemNumber - from));
+                    }
+                    return null;
+                });
+            } catch (SQLException ex) {
+                fail(ex);
+                Arrays.fill(keys, 0);
+                insertedRows = 0;
+            }
+        } else {
+            for (int from = 0; from < itemNumber; from += chunkSize) {
+                int first = from;
+                int rows = Math.min(chunkSize, itemNumber - from);
+                try {
+                    Transaction.run(writer, () -> {
+                        insertChunk(first, rows);
+                        return null;
+                    });
+                } catch (SQLException ex) {
+                    fail(ex);
+                    Arrays.fill(keys, first, first + rows, 0);
+                    break;
+                }
+            }
+        }
+
+        BulkInsertResult result = new BulkInsertResult(keys, insertedRows, chunks, System.nanoTime() - start);
+        LOGGER.fine(() -> "Bulk insert " + result + ": " + insert);
+        return result;
+    }
+
+
+    // HELPERS
+
+    private void insertChunk(int from, int rows) throws SQLException {
+        PooledConnection pc = writer.borrow();
+        try {
+            if (prefix != null) {
+                insertMultiRow(pc, from, rows);
+            } else {
+                insertRowByRow(pc, from, rows);
+            }
+            insertedRows += rows;
+            chunks++;
+        } finally {
+            writer.release(pc);
+        }
+    }
+
+    private void insertMultiRow(PooledConnection pc, int from, int rows) throws SQLException {
+        String sql = prefix + " " + String.join(", ", Collections.nCopies(rows, rowValues)) + " RETURNING rowid";
+        // Large and seldom repeated: caching it would evict the statements the DAOs reuse
+        try (StatementCache.Lease lease = pc.prepareUncached(sql, false)) {
+            PreparedStatement ps = lease.getStatement();
+            int[] offset = new int[1];
+            PreparedStatement shifted = shiftParameters(ps, offset);
+            for (int j = 0; j < rows; j++) {
+                offset[0] = j * parametersPerRow;
+                handler.handleBatchItem(shifted, from + j);
+            }
+
+            int[] inserted = new int[rows];
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (count == rows) {
+                        throw new SQLException("Inserted more than the " + rows + " rows of the chunk");
+                    }
+                    inserted[count++] = rs.getInt(1);
+                }
+            }
+            if (count != rows) {
+                throw new SQLException("Expected to insert " + rows + " rows but inserted " + count);
+            }
+            Arrays.sort(inserted);
+            System.arraycopy(inserted, 0, keys, from, rows);
+        }
+    }
+
+    private void insertRowByRow(PooledConnection pc, int from, int rows) throws SQLException {
+        try (StatementCache.Lease lease = pc.prepare(insert, true)) {
+            PreparedStatement ps = lease.getStatement();
+            for (int j = 0; j < rows; j++) {
+                handler.handleBatchItem(ps, from + j);
+                ps.executeUpdate();
+                keys[from + j] = PersistenceManager.readGeneratedKey(ps);
+            }
+        }
+    }
+
+    /**
+     * Wraps the statement so that handlers written for a single row
+     * ({@code ps.setX(1, ...)}) bind the parameters of row {@code offset[0] / parametersPerRow}.
+     */
+    private static PreparedStatement shiftParameters(PreparedStatement ps, int[] offset) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class},
+            (proxy, method, args) -> {
+                if (method.getName().startsWith("set") && args != null && args.length >= 2
+                    && method.getParameterTypes()[0] == int.class) {
+                    args[0] = (Integer) args[0] + offset[0];
+                }
+                try {
+                    return method.invoke(ps, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private void fail(SQLException ex) {
+        LOGGER.log(Level.SEVERE, "Error executing bulk insert: " + insert, ex);
+        Transaction.markRollbackOnly();
+    }
+}
@@ -0,0 +1,28 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the usage metrics of an {@link LruCache}.
+ */
+@Value
+public class CacheStats {
+    String cacheName;
+    int size;
+    int maxSize;
+    long hits;
+    long misses;
+    long evictions;
+    long invalidations;
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats[%s: size=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d, hitRatio=%.2f]",
+            cacheName, size, maxSize, hits, misses, evictions, invalidations, getHitRatio());
+    }
+}
@@ -0,0 +1,320 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.utils.LogManager;
+import lombok.Getter;
+
+/**
+ * Bounded pool of long-lived JDBC connections.
+ * <p>
+ * Borrowing is re-entrant per thread: a thread that already holds a connection
+ * gets the same one back, so nested DAO calls (a query issued from inside another
+ * query's {@link ResultHandler}) never need a second connection and can't
+ * exhaust the pool.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens a new physical connection.
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+
+    @Getter
+    private final String name;
+    @Getter
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // Keyed by the borrowing thread, so a release from any thread frees the right entry
+    private final Map<Thread, PooledConnection> owned = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    @Getter
+    private final StatementCacheStats statementCacheStats;
+
+    public ConnectionPool(String name, ConnectionFactory factory, PoolConfig config) {
+        this(name, factory, config, new StatementCacheStats());
+    }
+
+    /**
+     * Creates a pool whose statement caches report into the given (possibly shared) counters.
+     */
+    public ConnectionPool(String name, ConnectionFactory factory, PoolConfig config, StatementCacheStats statementCacheStats) {
+        this.name = name;
+        this.factory = factory;
+        this.config = config;
+        this.statementCacheStats = statementCacheStats;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-housekeeper-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting at most {@link PoolConfig#getMaxWaitMillis()}.
+     * Every borrow must be paired with a {@link #release(PooledConnection)}.
+     *
+     * @return the connection bound to the calling thread
+     * @throws SQLException if the pool is exhausted or a connection can't be opened
+     */
+    public PooledConnection borrow() throws SQLException {
+        PooledConnection current = owned.get(Thread.currentThread());
+        if (current != null) {
+            current.hold();
+            return current;
+        }
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getMaxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + config.getMaxWaitMillis()
+                    + "ms waiting for a connection from pool '" + name + "' " + getStats());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        PooledConnection pc;
+        try {
+            pc = takeIdle();
+            if (pc == null) {
+                pc = open();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        pc.markBorrowed(config.getLeakThresholdMillis() > 0 && config.isLeakTraceEnabled());
+        borrowed.add(pc);
+        owned.put(Thread.currentThread(), pc);
+        borrowCount.incrementAndGet();
+        return pc;
+    }
+
+    /**
+     * Gives a borrowed connection back. Inner re-entrant borrows only decrement
+     * the hold count; the outermost release returns it to the idle set.
+     */
+    public void release(PooledConnection pc) {
+        if (pc == null || pc.unhold() > 0) {
+            return;
+        }
+
+        Thread borrower = pc.getBorrower();
+        if (borrower != null) {
+            owned.remove(borrower, pc);
+        }
+        borrowed.remove(pc);
+        pc.markReturned();
+
+        boolean reusable = !closed && resetState(pc);
+        if (reusable) {
+            synchronized (idle) {
+                idle.push(pc);
+            }
+        } else {
+            destroy(pc);
+        }
+        permits.release();
+    }
+
+    /**
+     * Opens connections until {@link PoolConfig#getMinIdle()} are idle, so the first
+     * requests after startup don't pay for opening them.
+     */
+    public void warmUp() {
+        List<PooledConnection> opened = new ArrayList<>();
+        try {
+            int missing;
+            synchronized (idle) {
+                missing = config.getMinIdle() - idle.size();
+            }
+            for (int i = 0; i < missing; i++) {
+                opened.add(open());
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to warm up pool '" + name + "'", e);
+        }
+        synchronized (idle) {
+            opened.forEach(idle::push);
+        }
+    }
+
+    /**
+     * @return true if the calling thread currently holds a connection from this pool
+     */
+    public boolean isHeldByCurrentThread() {
+        return owned.containsKey(Thread.currentThread());
+    }
+
+    public PoolStats getStats() {
+        int idleSize;
+        synchronized (idle) {
+            idleSize = idle.size();
+        }
+        return new PoolStats(name, config.getMaxSize(), borrowed.size(), idleSize,
+            borrowCount.get(), createdCount.get(), destroyedCount.get(), timeoutCount.get(),
+            leakCount.get(), totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Closes every idle connection and stops housekeeping. Connections still
+     * borrowed are closed as soon as they are released.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        toClose.forEach(this::destroy);
+        LOGGER.info("Closed connection pool " + getStats());
+    }
+
+
+    // HELPERS
+
+    private PooledConnection takeIdle() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.poll();
+            }
+            if (pc == null) {
+                return null;
+            }
+            boolean needsValidation = now - pc.getLastUsedAt() >= config.getValidationIntervalMillis();
+            if (!needsValidation || pc.isValid(config.getValidationTimeoutSeconds())) {
+                return pc;
+            }
+            LOGGER.fine(() -> "Discarding invalid connection from pool '" + name + "'");
+            destroy(pc);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection pc = new PooledConnection(this, factory.create(), config.getStatementCacheSize(), statementCacheStats);
+        createdCount.incrementAndGet();
+        LOGGER.fine(() -> "Opened new connection for pool '" + name + "' (" + createdCount.get() + " total)");
+        return pc;
+    }
+
+    private boolean resetState(PooledConnection pc) {
+        try {
+            Connection conn = pc.getConnection();
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (!conn.getAutoCommit()) {
+                LOGGER.warning("Connection returned to pool '" + name + "' with an open transaction, rolling back");
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to reset pooled connection, discarding it", e);
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        pc.closeQuietly();
+        destroyedCount.incrementAndGet();
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Housekeeping failed for pool '" + name + "'", e);
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            // Oldest idle connections sit at the tail of the LIFO deque
+            while (idle.size() > config.getMinIdle()
+                && now - idle.peekLast().getLastUsedAt() >= config.getIdleTimeoutMillis()) {
+                evicted.add(idle.pollLast());
+            }
+        }
+        evicted.forEach(this::destroy);
+        if (!evicted.isEmpty()) {
+            LOGGER.fine(() -> "Evicted " + evicted.size() + " idle connection(s) from pool '" + name + "'");
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.getLeakThresholdMillis();
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : borrowed) {
+            Thread borrower = pc.getBorrower();
+            if (!pc.isLeakReported() && borrower != null && now - pc.getBorrowedAt() >= threshold) {
+                pc.markLeakReported();
+                leakCount.incrementAndGet();
+                String hint = pc.getBorrowTrace() == null ? " (set catering.db.pool.leakTraceEnabled to see where)" : "";
+                LOGGER.log(Level.WARNING, "Possible connection leak in pool '" + name + "': held by thread "
+                    + borrower.getName() + " for " + (now - pc.getBorrowedAt()) + "ms" + hint, pc.getBorrowTrace());
+            }
+        }
+    }
+}
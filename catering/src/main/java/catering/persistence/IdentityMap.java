@@ -0,0 +1,115 @@
+package catering.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * First-level cache mapping the ids of one entity type to the single instance
+ * loaded for each of them within a {@link Session}. Not thread-safe: a session
+ * and its maps belong to one thread.
+ */
+public class IdentityMap<K, V> {
+
+    private final Map<K, V> entries = new HashMap<>();
+    private final AtomicLong[] totals;
+    private long hits;
+    private long misses;
+
+    IdentityMap(AtomicLong[] totals) {
+        this.totals = totals;
+    }
+
+    /**
+     * @param loader loads the entity on a miss; a null result is returned but not remembered
+     * @return the instance already mapped to the key, or the one just loaded
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = entries.get(key);
+        if (value != null) {
+            recordHits(1);
+            return value;
+        }
+        recordMisses(1);
+        value = loader.apply(key);
+        if (value != null) {
+            entries.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Resolves several keys at once, loading every missing one with a single call.
+     *
+     * @param loader loads the missing keys; keys it leaves out are treated as not found
+     * @return the instances found, in the order of the keys
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<? super List<K>, ? extends Map<K, V>> loader) {
+        Collection<K> distinct = new LinkedHashSet<>(keys);
+        List<K> missing = new ArrayList<>();
+        for (K key : distinct) {
+            if (!entries.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        recordHits(distinct.size() - missing.size());
+        recordMisses(missing.size());
+        if (!missing.isEmpty()) {
+            loader.apply(missing).forEach(this::attach);
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = entries.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Maps the key to the given instance unless it is already mapped.
+     *
+     * @return the instance the key is mapped to after the call
+     */
+    public V attach(K key, V value) {
+        V current = entries.putIfAbsent(key, value);
+        return current != null ? current : value;
+    }
+
+    public void evict(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+
+    // HELPERS
+
+    private void recordHits(long n) {
+        hits += n;
+        totals[0].addAndGet(n);
+    }
+
+    private void recordMisses(long n) {
+        misses += n;
+        totals[1].addAndGet(n);
+    }
+}
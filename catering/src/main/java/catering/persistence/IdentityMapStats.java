@@ -0,0 +1,24 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the lookup counters of the identity maps of one entity type.
+ */
+@Value
+public class IdentityMapStats {
+    String entityType;
+    long hits;
+    long misses;
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IdentityMapStats[%s: hits=%d, misses=%d, hitRatio=%.2f]",
+            entityType, hits, misses, getHitRatio());
+    }
+}
@@ -0,0 +1,207 @@
+package catering.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keyset ("seek") pagination for a listing ordered by a fixed list of key expressions,
+ * the last of which must be unique, usually the id. Each page starts right after the
+ * last row of the previous one, with {@code WHERE (k1, id) > (?, ?) ORDER BY k1, id LIMIT ?},
+ * so deep pages cost the same as the first, and rows written in between don't shift
+ * the pages. Keys must not be NULL: wrap nullable columns in {@code COALESCE}.
+ * <p>
+ * Continuation tokens are opaque to callers. They carry the keys of that last row and
+ * the name of the listing, so a token from one listing is refused by another.
+ */
+public class Keyset {
+
+    private static final String SELECT = "SELECT ";
+
+    private final String name;
+    private final List<String> keys;
+    private final boolean descending;
+
+    private Keyset(String name, boolean descending, String... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("a keyset needs at least one key");
+        }
+        this.name = name;
+        this.keys = Collections.unmodifiableList(Arrays.asList(keys));
+        this.descending = descending;
+    }
+
+    /**
+     * @param keys the SQL expressions the listing is ordered by, ending with a unique one
+     */
+    public static Keyset ascending(String name, String... keys) {
+        return new Keyset(name, false, keys);
+    }
+
+    /**
+     * @param keys the SQL expressions the listing is ordered by, newest first, ending with a unique one
+     */
+    public static Keyset descending(String name, String... keys) {
+        return new Keyset(name, true, keys);
+    }
+
+    /**
+     * Reads one page of the listing with a single query.
+     *
+     * @param query a SELECT with a WHERE clause, {@code WHERE 1 = 1} if nothing filters, and no ORDER BY
+     * @param token the token of the previous page, or null for the first page
+     * @param limit maximum number of rows returned
+     * @throws IllegalArgumentException if the limit isn't positive or the token isn't one of this listing
+     */
+    public <T> Page<T> page(String query, RowMapper<? extends T> mapper, String token, int limit, Object... params) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        if (!query.regionMatches(true, 0, SELECT, 0, SELECT.length())) {
+            throw new IllegalArgumentException("not a SELECT: " + query);
+        }
+
+        // The keys are selected under known labels, so the last row's can be read back whatever the query
+        StringBuilder sql = new StringBuilder(SELECT);
+        for (int i = 0; i < keys.size(); i++) {
+            sql.append(keys.get(i)).append(" AS page_key").append(i).append(", ");
+        }
+        sql.append(query.substring(SELECT.length()));
+
+        List<Object> args = new ArrayList<>(Arrays.asList(params));
+        if (token != null) {
+            List<Object> after = decode(token);
+            String comparison = descending ? " < " : " > ";
+            if (keys.size() == 1) {
+                sql.append(" AND ").append(keys.get(0)).append(comparison).append("?");
+            } else {
+                // The plain bound lets SQLite seek an index on the first key; the row value breaks the ties
+                sql.append(" AND ").append(keys.get(0)).append(descending ? " <= ?" : " >= ?");
+                args.add(after.get(0));
+                sql.append(" AND (").append(String.join(", ", keys)).append(")").append(comparison)
+                    .append("(").append(String.join(", ", Collections.nCopies(keys.size(), "?"))).append(")");
+            }
+            args.addAll(after);
+        }
+
+        List<String> order = new ArrayList<>();
+        for (String key : keys) {
+            order.add(descending ? key + " DESC" : key);
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", order)).append(" LIMIT ?");
+        // One row more than asked tells whether there is a next page
+        args.add(limit + 1);
+
+        List<T> items = new ArrayList<>();
+        Object[] lastKeys = new Object[keys.size()];
+        boolean[] more = new boolean[1];
+        PersistenceManager.executeQuery(sql.toString(), rs -> {
+            if (items.size() == limit) {
+                more[0] = true;
+                return;
+            }
+            items.add(mapper.map(rs));
+            for (int i = 0; i < lastKeys.length; i++) {
+                lastKeys[i] = rs.getObject("page_key" + i);
+            }
+        }, args.toArray());
+
+        return new Page<>(items, more[0] ? encode(lastKeys) : null);
+    }
+
+
+    // HELPERS
+
+    // Length-prefixed fields, "<tag><length>:<text>": the listing name, then one per key
+    private String encode(Object[] values) {
+        StringBuilder sb = new StringBuilder();
+        appendField(sb, 'k', name);
+        for (Object value : values) {
+            if (value == null) {
+                appendField(sb, 'n', "");
+            } else if (value instanceof Integer || value instanceof Long) {
+                appendField(sb, 'l', value.toString());
+            } else if (value instanceof Number) {
+                appendField(sb, 'd', Double.toString(((Number) value).doubleValue()));
+            } else {
+                appendField(sb, 's', value.toString());
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Object> decode(String token) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw invalid(token);
+        }
+
+        List<Object> values = new ArrayList<>();
+        int pos = 0;
+        boolean named = false;
+        while (pos < text.length()) {
+            char tag = text.charAt(pos);
+            int colon = text.indexOf(':', pos);
+            if (colon < 0) {
+                throw invalid(token);
+            }
+            int length;
+            try {
+                length = Integer.parseInt(text.substring(pos + 1, colon));
+            } catch (NumberFormatException ex) {
+                throw invalid(token);
+            }
+            int end = colon + 1 + length;
+            if (length < 0 || end > text.length()) {
+                throw invalid(token);
+            }
+            String field = text.substring(colon + 1, end);
+            pos = end;
+
+            try {
+                switch (tag) {
+                    case 'k':
+                        if (named || !field.equals(name)) {
+                            throw invalid(token);
+                        }
+                        named = true;
+                        break;
+                    case 'n':
+                        values.add(null);
+                        break;
+                    case 'l':
+                        values.add(Long.parseLong(field));
+                        break;
+                    case 'd':
+                        values.add(Double.parseDouble(field));
+                        break;
+                    case 's':
+                        values.add(field);
+                        break;
+                    default:
+                        throw invalid(token);
+                }
+            } catch (NumberFormatException ex) {
+                throw invalid(token);
+            }
+        }
+
+        if (!named || values.size() != keys.size()) {
+            throw invalid(token);
+        }
+        return values;
+    }
+
+    private static void appendField(StringBuilder sb, char tag, String text) {
+        sb.append(tag).append(text.length()).append(':').append(text);
+    }
+
+    private IllegalArgumentException invalid(String token) {
+        return new IllegalArgumentException("Not a page token of the " + name + " listing: " + token);
+    }
+}
@@ -0,0 +1,152 @@
+package catering.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Process-wide, size-bounded read-through cache that evicts the least recently
+ * used entry once full. Safe for concurrent use.
+ * <p>
+ * Loaders run outside the lock. A value loaded while an invalidation was in
+ * progress is returned to its caller but not stored, so an invalidation is never
+ * undone by a load that read the old row just before it.
+ */
+public class LruCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public LruCache(String name, int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param loader loads the value on a miss; a null result is returned but not cached
+     * @return the cached value, or the one just loaded
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits.incrementAndGet();
+                return value;
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Batch counterpart of {@link #get(Object, Function)}: every key not cached is
+     * handed to the loader in a single call.
+     *
+     * @param loader loads the missing keys; keys it leaves out are treated as not found
+     * @return the values found, in the order of the keys
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<? super List<K>, ? extends Map<K, V>> loader) {
+        Map<K, V> result = new LinkedHashMap<>();
+        List<K> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (K key : new LinkedHashSet<>(keys)) {
+                V value = entries.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                } else {
+                    missing.add(key);
+                }
+            }
+            loadGeneration = generation;
+        }
+        hits.addAndGet(result.size());
+        misses.addAndGet(missing.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<K, V> loaded = loader.apply(missing);
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                entries.putAll(loaded);
+            }
+        }
+        Map<K, V> ordered = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return the cached value, or null; doesn't count as a hit or miss
+     */
+    public synchronized V getIfPresent(K key) {
+        return entries.get(key);
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes every entry whose value matches the predicate.
+     */
+    public synchronized void invalidateIf(Predicate<? super V> predicate) {
+        generation++;
+        int before = entries.size();
+        entries.values().removeIf(predicate);
+        invalidations.addAndGet(before - entries.size());
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), maxSize, hits.get(), misses.get(), evictions.get(), invalidations.get());
+    }
+}
@@ -0,0 +1,14 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * One versioned schema change, loaded from a {@code V<version>__<description>.sql} file.
+ */
+@Value
+public class Migration {
+    int version;
+    String description;
+    String checksum;
+    String script;
+}
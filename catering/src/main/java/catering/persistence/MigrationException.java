@@ -0,0 +1,17 @@
+package catering.persistence;
+
+/**
+ * Thrown when the migrations on disk don't match the ones recorded in the database,
+ * or when a migration fails to apply. Unchecked, as the application can't run on a
+ * schema other than the one its code expects.
+ */
+public class MigrationException extends RuntimeException {
+
+    public MigrationException(String message) {
+        super(message);
+    }
+
+    public MigrationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,207 @@
+package catering.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import catering.utils.LogManager;
+
+/**
+ * Applies the versioned SQL migrations found in a directory to a database.
+ * <p>
+ * Migration files are named {@code V<version>__<description>.sql} and applied in
+ * version order, each in its own transaction. Every applied migration is recorded
+ * in the {@code schema_version} table together with a checksum of its script, so
+ * an existing database is upgraded in place by running only what it is missing,
+ * and a migration edited after it was applied is reported instead of silently
+ * diverging.
+ */
+public class MigrationRunner {
+
+    private static final Logger LOGGER = LogManager.getLogger(MigrationRunner.class);
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS `schema_version` ("
+        + "`version` INTEGER PRIMARY KEY, "
+        + "`description` TEXT NOT NULL, "
+        + "`checksum` TEXT NOT NULL, "
+        + "`installed_on` INTEGER NOT NULL, "
+        + "`execution_millis` INTEGER NOT NULL)";
+
+    private final File directory;
+
+    public MigrationRunner(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the migrations on disk, sorted by version.
+     *
+     * @throws MigrationException if two files share a version
+     */
+    public List<Migration> load() throws IOException, MigrationException {
+        List<Migration> migrations = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return migrations;
+        }
+
+        for (File file : files) {
+            Matcher m = FILE_NAME.matcher(file.getName());
+            if (!m.matches()) {
+                continue;
+            }
+            String script = Files.readString(file.toPath()).replace("\r\n", "\n");
+            migrations.add(new Migration(Integer.parseInt(m.group(1)), m.group(2).replace('_', ' '),
+                checksum(script), script));
+        }
+
+        migrations.sort(Comparator.comparingInt(Migration::getVersion));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).getVersion() == migrations.get(i - 1).getVersion()) {
+                throw new MigrationException("Duplicate migration version " + migrations.get(i).getVersion()
+                    + " in " + directory);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Brings the database up to the latest migration.
+     *
+     * @param conn connection to the database to migrate, in auto-commit mode
+     * @return the migrations applied by this call, empty if the schema was up to date
+     * @throws MigrationException if an applied migration changed or went missing, or one fails to apply
+     */
+    public List<Migration> migrate(Connection conn) throws SQLException {
+        List<Migration> available;
+        try {
+            available = load();
+        } catch (IOException e) {
+            throw new MigrationException("Failed to read migrations from " + directory, e);
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CREATE_TABLE);
+        }
+        Map<Integer, String> applied = readApplied(conn);
+        int current = applied.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : available) {
+            String checksum = applied.remove(migration.getVersion());
+            if (checksum == null) {
+                if (migration.getVersion() < current) {
+                    throw new MigrationException("Migration V" + migration.getVersion()
+                        + " is older than the current schema version " + current);
+                }
+                pending.add(migration);
+            } else if (!checksum.equals(migration.getChecksum())) {
+                throw new MigrationException("Migration V" + migration.getVersion()
+                    + " was modified after it was applied");
+            }
+        }
+        if (!applied.isEmpty()) {
+            throw new MigrationException("Applied migrations missing from " + directory + ": " + applied.keySet());
+        }
+
+        for (Migration migration : pending) {
+            apply(conn, migration);
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.info("Applied " + pending.size() + " migration(s), schema now at version "
+                + pending.get(pending.size() - 1).getVersion());
+        }
+        return pending;
+    }
+
+    /**
+     * @return the highest applied migration version, 0 if none
+     */
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CREATE_TABLE);
+            try (ResultSet rs = stmt.executeQuery("SELECT coalesce(max(version), 0) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Forgets every applied migration, for a database whose tables were just
+     * recreated from the baseline script.
+     */
+    public static void clearHistory(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE IF EXISTS `schema_version`");
+        }
+    }
+
+
+    // HELPERS
+
+    private static Map<Integer, String> readApplied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try {
+            PersistenceManager.runStatements(conn, migration.getScript());
+            try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, checksum, installed_on, execution_millis) VALUES (?, ?, ?, ?, ?)")) {
+                ps.setInt(1, migration.getVersion());
+                ps.setString(2, migration.getDescription());
+                ps.setString(3, migration.getChecksum());
+                ps.setLong(4, start);
+                ps.setLong(5, System.currentTimeMillis() - start);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            LOGGER.info("Applied migration V" + migration.getVersion() + " (" + migration.getDescription() + ")");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new MigrationException("Migration V" + migration.getVersion() + " failed", e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static String checksum(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
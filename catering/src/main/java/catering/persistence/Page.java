@@ -0,0 +1,26 @@
+package catering.persistence;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of a listing read through a {@link Keyset}.
+ */
+@Value
+public class Page<T> {
+    List<T> items;
+    // Opaque token for the next page, null on the last page
+    String nextToken;
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * @return a page holding the given items in place of these, with the same continuation
+     */
+    public <R> Page<R> withItems(List<R> items) {
+        return new Page<>(items, nextToken);
+    }
+}
@@ -2,13 +2,23 @@ package catering.persistence;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import catering.utils.LogManager;
-import lombok.Getter;
+import org.sqlite.SQLiteConfig;
 
 
 public class PersistenceManager {
@@ -17,39 +27,238 @@ public class PersistenceManager {
     private static final String DB_PATH = new File("database", "catering.db").getAbsolutePath();
     private static final String SCRIPT_PATH = new File("database", "catering_init_sqlite.sql").getAbsolutePath();
     private static final String URL = "jdbc:sqlite:" + DB_PATH;
+    private static final File MIGRATIONS_DIR = new File("database", "migrations").getAbsoluteFile();
 
-    @Getter
-    private static int lastId;
+    private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Rows fetched per round trip by {@link #stream(String, RowMapper, Object...)}
+     * unless another fetch size is given.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    // Statements handed to the driver per executeBatch() call by executeBatchUpdate
+    private static final int BATCH_CHUNK_SIZE = 500;
+
+    /**
+     * Holds the connection pools. The JVM initializes this class exactly once, on the
+     * first database access or on an explicit {@link #bootstrap()}, so the hot paths
+     * read the pools without any per-call existence check.
+     * <p>
+     * Under {@link StorageProfile#ROLLBACK_JOURNAL} both fields point to the same pool.
+     */
+    private static final class Storage {
+        static final StorageConfig CONFIG = StorageConfig.fromSystemProperties();
+        static final BootstrapReport REPORT = new BootstrapReport();
+        static final StatementCacheStats STATEMENT_STATS = new StatementCacheStats();
+        static final ConnectionPool WRITER = openWriter(CONFIG, REPORT);
+        static final ConnectionPool READERS = openReaders(CONFIG, WRITER, REPORT);
+        static final WriteQueue WRITES = new WriteQueue("catering", WRITER, CONFIG.getWriteQueue());
+    }
+
+    // Set when the schema migrations fail, cleared once initializeDatabase applies them
+    private static volatile MigrationException migrationFailure;
+
+    // Caches holding data read from the database, cleared whenever it is re-initialized
+    private static final List<Runnable> RESET_LISTENERS = new CopyOnWriteArrayList<>();
 
     // Make constructor private to prevent instantiation
     private PersistenceManager() {}
 
-    // Ensure the database file exists
-    private static void ensureDbExists() {
+    /**
+     * Runs the one-time database bootstrap if it hasn't run yet: creates the
+     * database when it is missing or empty, applies the storage profile and warms
+     * up the connection pools. Later calls return the same report.
+     *
+     * @return phase timings of the bootstrap
+     * @throws MigrationException if the schema migrations failed
+     */
+    public static BootstrapReport bootstrap() {
+        BootstrapReport report = Storage.REPORT;
+        writer();
+        return report;
+    }
+
+    /**
+     * @return the storage profile the database was opened with
+     */
+    public static StorageProfile getStorageProfile() {
+        return Storage.CONFIG.getProfile();
+    }
+
+    private static ConnectionPool openWriter(StorageConfig storage, BootstrapReport report) {
         File dbFile = new File(DB_PATH);
-        if (!dbFile.exists()) {
-            try {
-                // Create the parent directory if it doesn't exist
-                dbFile.getParentFile().mkdirs();
+        boolean exists = dbFile.exists();
+        if (!exists) {
+            // Create the parent directory if it doesn't exist
+            dbFile.getParentFile().mkdirs();
+        }
 
-                try (Connection ignored = DriverManager.getConnection(URL)) {
-                    // Connection is automatically closed by try-with-resources
-                }
+        ConnectionPool pool = openWriterPool(URL, storage, Storage.STATEMENT_STATS);
+        report.endPhase("pool");
 
-                // After creating the empty database, initialize it with schema
-                initializeDatabase(SCRIPT_PATH);
+        PooledConnection pc = null;
+        try {
+            pc = pool.borrow();
+            report.endPhase("open");
 
+            if (!exists || !hasSchema(pc.getConnection())) {
+                runScript(pc.getConnection(), new File(SCRIPT_PATH));
+                report.markDatabaseCreated();
                 LOGGER.info("Database created and initialized at: " + dbFile.getAbsolutePath());
-            } catch (SQLException ex) {
-                LOGGER.log(Level.SEVERE, "Failed to create database", ex);
+            }
+            report.endPhase("schema");
+
+            try {
+                migrate(pc.getConnection(), MIGRATIONS_DIR);
+            } catch (MigrationException ex) {
+                // Thrown from a class initializer it would turn every later call into a
+                // NoClassDefFoundError; writer() reports it on each access instead
+                migrationFailure = ex;
+            }
+            report.endPhase("migrate");
+        } catch (SQLException | IOException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to bootstrap database at: " + dbFile.getAbsolutePath(), ex);
+        } finally {
+            pool.release(pc);
+        }
+
+        pool.warmUp();
+        report.endPhase("warmup");
+        return pool;
+    }
+
+    private static ConnectionPool openReaders(StorageConfig storage, ConnectionPool writer, BootstrapReport report) {
+        // Opened after the writer, which has created the database and switched it to WAL
+        ConnectionPool readers = openReaderPool(URL, storage, writer, Storage.STATEMENT_STATS);
+        if (readers != writer) {
+            readers.warmUp();
+            report.endPhase("readers");
+        }
+        report.finish();
+        LOGGER.info(report + " using " + storage.getProfile() + " storage");
+        return readers;
+    }
+
+    /**
+     * @return the writer pool
+     * @throws MigrationException if the schema migrations failed and haven't been applied since
+     */
+    private static ConnectionPool writer() {
+        ConnectionPool writer = Storage.WRITER;
+        MigrationException failure = migrationFailure;
+        if (failure != null) {
+            throw new MigrationException("The database schema is not up to date, its migrations failed", failure);
+        }
+        return writer;
+    }
+
+    /**
+     * Opens the pool every write goes through. Under {@link StorageProfile#WAL} it is
+     * capped to one connection: SQLite lets one writer in at a time, so more
+     * connections would only wait on its lock.
+     */
+    static ConnectionPool openWriterPool(String url, StorageConfig storage, StatementCacheStats stats) {
+        if (storage.getProfile() == StorageProfile.WAL) {
+            storage.getWriterPool().setMaxSize(1);
+            storage.getWriterPool().setMinIdle(1);
+        }
+        return new ConnectionPool("catering", () -> openConnection(url, storage, false), storage.getWriterPool(), stats);
+    }
+
+    /**
+     * Opens the read-only pool queries go through under {@link StorageProfile#WAL},
+     * sized by {@link StorageConfig#getReaderPool()}. Otherwise reads share the writer.
+     *
+     * @return the reader pool, or {@code writer} itself
+     */
+    static ConnectionPool openReaderPool(String url, StorageConfig storage, ConnectionPool writer, StatementCacheStats stats) {
+        if (storage.getProfile() != StorageProfile.WAL) {
+            return writer;
+        }
+        return new ConnectionPool("catering-readers", () -> openConnection(url, storage, true), storage.getReaderPool(), stats);
+    }
+
+    /**
+     * Opens a physical connection with the PRAGMAs of the storage profile applied.
+     */
+    static Connection openConnection(String url, StorageConfig storage, boolean readOnly) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+
+        if (storage.getProfile() == StorageProfile.WAL) {
+            config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+            config.setCacheSize(-storage.getCacheSizeKib());
+            config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(storage.getMmapSizeBytes()));
+        }
+
+        if (readOnly) {
+            config.setReadOnly(true);
+        } else {
+            // The journal mode is persistent, so the writer switches the file to the
+            // profile's mode (and back) on open
+            config.setJournalMode(storage.getProfile() == StorageProfile.WAL
+                ? SQLiteConfig.JournalMode.WAL
+                : SQLiteConfig.JournalMode.DELETE);
+            // Take the write lock when a transaction begins, so two units of work never
+            // deadlock upgrading from a read to a write lock
+            config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        }
+        return DriverManager.getConnection(url, config.toProperties());
+    }
+
+    private static boolean hasSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT count(*) FROM sqlite_master WHERE type = 'table'")) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    /**
+     * Applies the pending migrations. Any failure is fatal: left on an older schema, the
+     * application would only fail later, on every query using what the migrations add.
+     *
+     * @throws MigrationException if the migrations can't be applied or don't match the database
+     */
+    static void migrate(Connection conn, File migrationsDir) {
+        try {
+            new MigrationRunner(migrationsDir).migrate(conn);
+        } catch (MigrationException ex) {
+            LOGGER.log(Level.SEVERE, "Database schema migration failed", ex);
+            throw ex;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Database schema migration failed", ex);
+            throw new MigrationException("Failed to migrate the database", ex);
+        }
+    }
+
+    private static void runScript(Connection conn, File scriptFile) throws IOException, SQLException {
+        // Read the SQL file content
+        String sqlScript = Files.readString(scriptFile.toPath());
+        runStatements(conn, sqlScript);
+    }
+
+    static void runStatements(Connection conn, String sqlScript) throws SQLException {
+        // Split the script into individual statements using semicolon as delimiter
+        String[] statements = sqlScript.split(";");
+
+        // Execute each statement
+        try (Statement stmt = conn.createStatement()) {
+            for (String statement : statements) {
+                String trimmedStmt = statement.trim();
+                if (!trimmedStmt.isEmpty()) {
+                    stmt.executeUpdate(trimmedStmt);
+                }
             }
         }
     }
 
     /**
-     * Initializes the database using an SQL script file
+     * Initializes the database using an SQL script file, then applies the schema migrations
      *
      * @param scriptFilePath path to the SQL script file
+     * @throws MigrationException if the migrations can't be applied
      */
     public static void initializeDatabase(String scriptFilePath) {
         File scriptFile = new File(scriptFilePath);
@@ -58,33 +267,160 @@ public class PersistenceManager {
             return;
         }
 
+        PooledConnection pc = null;
         try {
-            // Read the SQL file content
-            String sqlScript = Files.readString(scriptFile.toPath());
-
-            // Split the script into individual statements using semicolon as delimiter
-            String[] statements = sqlScript.split(";");
-
-            // Execute each statement
-            try (Connection conn = DriverManager.getConnection(URL);
-                 Statement stmt = conn.createStatement()) {
-
-                for (String statement : statements) {
-                    String trimmedStmt = statement.trim();
-                    if (!trimmedStmt.isEmpty()) {
-                        stmt.executeUpdate(trimmedStmt);
-                    }
-                }
-
-                LOGGER.info("Database initialized successfully from " + scriptFilePath);
+            pc = Storage.WRITER.borrow();
+            runScript(pc.getConnection(), scriptFile);
+            // The tables are back to the baseline, so every migration has to run again
+            MigrationRunner.clearHistory(pc.getConnection());
+            try {
+                migrate(pc.getConnection(), MIGRATIONS_DIR);
+                migrationFailure = null;
+            } catch (MigrationException ex) {
+                migrationFailure = ex;
+                throw ex;
             }
+            LOGGER.info("Database initialized successfully from " + scriptFilePath);
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error reading SQL file: " + scriptFilePath, e);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error executing SQL from file: " + scriptFilePath, e);
+        } finally {
+            Storage.WRITER.release(pc);
+            RESET_LISTENERS.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Registers a callback run after {@link #initializeDatabase(String)} replaced the
+     * contents of the database, for caches that must drop what they hold.
+     */
+    public static void addResetListener(Runnable listener) {
+        RESET_LISTENERS.add(listener);
+    }
+
+    /**
+     * Runs the given work in a single transaction on a connection bound to the
+     * current thread. Every DAO call made by the work joins the transaction, so
+     * the whole use case commits at once. Nested calls run in a savepoint.
+     * <p>
+     * The transaction rolls back if the work throws, or if any of its statements
+     * fails.
+     *
+     * @param work the work to run
+     * @return the result of the work
+     * @throws E whatever the work throws, after rolling back
+     * @throws TransactionException if the transaction can't be started or committed, or
+     *                              was rolled back because one of its statements failed
+     */
+    public static <T, E extends Exception> T inTransaction(UnitOfWork<T, E> work) throws E {
+        return Transaction.run(writer(), work);
+    }
+
+    /**
+     * Same as {@link #inTransaction(UnitOfWork)} for work without a result.
+     */
+    public static <E extends Exception> void runInTransaction(VoidUnitOfWork<E> work) throws E {
+        Transaction.run(writer(), () -> {
+            work.execute();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a DAO write in a transaction like {@link #inTransaction(UnitOfWork)}, but keeps
+     * the contract of {@link #executeUpdate(String, Object...)}: if the transaction can't
+     * commit, the error is logged and {@code fallback} is returned instead of thrown.
+     *
+     * @param fallback the result when the transaction rolls back
+     * @param work     the work to run
+     * @return the result of the work, or {@code fallback}
+     */
+    public static <T> T tryInTransaction(T fallback, UnitOfWork<T, RuntimeException> work) {
+        try {
+            return inTransaction(work);
+        } catch (TransactionException ex) {
+            LOGGER.log(Level.SEVERE, "Write rolled back", ex);
+            return fallback;
         }
     }
 
+    /**
+     * Same as {@link #tryInTransaction(Object, UnitOfWork)} for work without a result.
+     *
+     * @return false if the transaction rolled back
+     */
+    public static boolean tryRunInTransaction(VoidUnitOfWork<RuntimeException> work) {
+        return tryInTransaction(false, () -> {
+            work.execute();
+            return true;
+        });
+    }
+
+    /**
+     * Runs the given read-only work so that all its queries see one consistent
+     * snapshot of the database. Under the WAL profile this holds a reader
+     * connection and never blocks the writer; otherwise it runs as a transaction.
+     *
+     * @param work the work to run
+     * @return the result of the work
+     * @throws E whatever the work throws
+     */
+    public static <T, E extends Exception> T inReadSnapshot(UnitOfWork<T, E> work) throws E {
+        ConnectionPool writer = writer();
+        if (Storage.READERS == writer || writer.isHeldByCurrentThread()) {
+            return inTransaction(work);
+        }
+        return Transaction.runSnapshot(Storage.READERS, work);
+    }
+
+    /**
+     * Runs the given work in a {@link Session}: every entity a DAO loads by id while
+     * it runs is loaded once and shared, so one id maps to one instance. Joins the
+     * session already open on the current thread, if any. Independent of transactions.
+     *
+     * @param work the work to run
+     * @return the result of the work
+     * @throws E whatever the work throws
+     */
+    public static <T, E extends Exception> T inSession(UnitOfWork<T, E> work) throws E {
+        return Session.run(work);
+    }
+
+    /**
+     * Same as {@link #inSession(UnitOfWork)} for work without a result.
+     */
+    public static <E extends Exception> void runInSession(VoidUnitOfWork<E> work) throws E {
+        Session.run(() -> {
+            work.execute();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the callback once the current transaction has ended, or right away
+     * outside a transaction. Meant for cache invalidation: by the time it runs,
+     * other threads can no longer read the rows the transaction replaced.
+     */
+    public static void afterTransaction(Runnable callback) {
+        Transaction.afterCompletion(callback);
+    }
+
+    /**
+     * Runs the callback if the current transaction rolls back, e.g. to forget the id
+     * given to an object whose insert was undone. Does nothing outside a transaction.
+     */
+    public static void afterRollback(Runnable callback) {
+        Transaction.afterRollback(callback);
+    }
+
+    /**
+     * @return true if the current thread is running inside {@link #inTransaction(UnitOfWork)}
+     */
+    public static boolean isInTransaction() {
+        return Transaction.isActive();
+    }
+
     /**
      * Executes a SQL query with parameters and processes the results with a handler
      * 
@@ -93,55 +429,144 @@ public class PersistenceManager {
      * @param params  Variable argument list of parameters to bind to the query
      */
     public static void executeQuery(String query, ResultHandler handler, Object... params) {
-        ensureDbExists();
-        try (Connection conn = DriverManager.getConnection(URL);
-                PreparedStatement ps = conn.prepareStatement(query)) {
+        ConnectionPool pool = null;
+        PooledConnection pc = null;
+        try {
+            pool = readPool();
+            pc = pool.borrow();
+            try (StatementCache.Lease lease = pc.prepare(query, false)) {
+                PreparedStatement ps = lease.getStatement();
 
-            // Set parameters if any
-            setParameters(ps, params);
+                // Set parameters if any
+                setParameters(ps, params);
 
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    handler.handle(rs);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(rs);
+                    }
                 }
             }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Error executing query: " + query, ex);
+        } finally {
+            if (pool != null) {
+                pool.release(pc);
+            }
         }
     }
 
     /**
-     * Executes a batch update with a parameterized query
+     * Runs a query and returns its rows as a lazily populated stream bound to an
+     * open cursor, so large results can be processed in constant memory.
+     * The stream must be closed (try-with-resources) unless it is fully consumed.
+     *
+     * @param query  SQL query with ? placeholders for parameters
+     * @param mapper RowMapper turning each row into an object
+     * @param params Variable argument list of parameters to bind to the query
+     * @return the mapped rows, empty if the query failed
+     * @see QueryCursor
+     */
+    public static <T> Stream<T> stream(String query, RowMapper<T> mapper, Object... params) {
+        return stream(query, DEFAULT_FETCH_SIZE, mapper, params);
+    }
+
+    /**
+     * Same as {@link #stream(String, RowMapper, Object...)} with an explicit fetch size.
+     */
+    public static <T> Stream<T> stream(String query, int fetchSize, RowMapper<T> mapper, Object... params) {
+        return openCursor(query, fetchSize, mapper, params).stream();
+    }
+
+    /**
+     * Runs a query and returns an iterator over its rows bound to an open cursor.
+     * The cursor must be closed (try-with-resources) unless it is fully consumed.
+     *
+     * @param query     SQL query with ? placeholders for parameters
+     * @param fetchSize number of rows to fetch per round trip
+     * @param mapper    RowMapper turning each row into an object
+     * @param params    Variable argument list of parameters to bind to the query
+     * @return the open cursor, empty if the query failed
+     */
+    public static <T> QueryCursor<T> openCursor(String query, int fetchSize, RowMapper<T> mapper, Object... params) {
+        return QueryCursor.open(readPool(), query, fetchSize, mapper, params);
+    }
+
+    /**
+     * Executes a batch update with a parameterized query. The batch runs in one
+     * transaction, joining the caller's if there is one, and is sent to the driver
+     * {@value #BATCH_CHUNK_SIZE} statements at a time.
      * 
      * @param parametrizedQuery SQL query with ? placeholders
      * @param itemNumber        Number of items to process in the batch
-     * @param handler           BatchUpdateHandler for setting parameters and
-     *                          handling generated keys
-     * @return Array of row counts for each batch operation
+     * @param handler           BatchUpdateHandler for setting parameters
+     * @return Array of row counts for each batch operation, empty if the batch failed
      */
     public static int[] executeBatchUpdate(String parametrizedQuery, int itemNumber, BatchUpdateHandler handler) {
-        ensureDbExists();
-        int[] result = new int[0];
-        try (
-                Connection conn = DriverManager.getConnection(URL);
-                PreparedStatement ps = conn.prepareStatement(parametrizedQuery, Statement.RETURN_GENERATED_KEYS)) {
-            for (int i = 0; i < itemNumber; i++) {
-                handler.handleBatchItem(ps, i);
-                ps.addBatch();
-            }
-            result = ps.executeBatch();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                int count = 0;
-                while (keys.next()) {
-                    handler.handleGeneratedIds(keys, count);
-                    count++;
+        if (itemNumber == 0) {
+            return new int[0];
+        }
+        ConnectionPool writer = writer();
+        try {
+            return Transaction.run(writer, () -> {
+                int[] result = new int[itemNumber];
+                PooledConnection pc = writer.borrow();
+                try (StatementCache.Lease lease = pc.prepare(parametrizedQuery, false)) {
+                    PreparedStatement ps = lease.getStatement();
+                    try {
+                        for (int from = 0; from < itemNumber; from += BATCH_CHUNK_SIZE) {
+                            int to = Math.min(from + BATCH_CHUNK_SIZE, itemNumber);
+                            for (int i = from; i < to; i++) {
+                                handler.handleBatchItem(ps, i);
+                                ps.addBatch();
+                            }
+                            System.arraycopy(ps.executeBatch(), 0, result, from, to - from);
+                        }
+                    } catch (SQLException ex) {
+                        // The statement goes back to the cache, without the rows of the failed chunk
+                        ps.clearBatch();
+                        throw ex;
+                    }
+                } finally {
+                    writer.release(pc);
                 }
-            }
-        } catch (SQLException ex) {
+                return result;
+            });
+        } catch (SQLException | TransactionException ex) {
             LOGGER.log(Level.SEVERE, "Error executing batch update: " + parametrizedQuery, ex);
+            Transaction.markRollbackOnly();
+            return new int[0];
         }
+    }
 
-        return result;
+    /**
+     * Executes a batch of inserts in one transaction and returns the key generated
+     * for each row. Rows are sent in chunks of multi-row INSERTs, see
+     * {@link #executeBulkInsert(String, int, BatchUpdateHandler, BulkInsertOptions)}.
+     *
+     * @param insert     single-row SQL insert statement with ? placeholders
+     * @param itemNumber Number of rows to insert
+     * @param handler    BatchUpdateHandler for setting the parameters of each row
+     * @return the generated key of each row, in order; all 0 if the batch failed
+     */
+    public static int[] executeBatchInsert(String insert, int itemNumber, BatchUpdateHandler handler) {
+        return executeBulkInsert(insert, itemNumber, handler, BulkInsertOptions.defaults()).getKeys();
+    }
+
+    /**
+     * Inserts many rows in chunks. Unless disabled in the options, each chunk is
+     * rewritten into one {@code INSERT ... VALUES (...), (...)} statement; the
+     * handler still binds a single row with parameter indexes starting at 1.
+     * Chunks commit together or one by one depending on the options.
+     *
+     * @param insert     single-row SQL insert statement with ? placeholders
+     * @param itemNumber Number of rows to insert
+     * @param handler    BatchUpdateHandler for setting the parameters of each row
+     * @param options    chunk size, transaction scope and rewrite switch
+     * @return generated keys in input order, inserted rows and throughput
+     */
+    public static BulkInsertResult executeBulkInsert(String insert, int itemNumber, BatchUpdateHandler handler,
+                                                     BulkInsertOptions options) {
+        return new BulkInserter(writer(), insert, itemNumber, handler, options).run();
     }
 
     /**
@@ -152,28 +577,107 @@ public class PersistenceManager {
      * @return Number of rows affected
      */
     public static int executeUpdate(String update, Object... params) {
-        ensureDbExists();
-        int result = 0;
-        try (Connection conn = DriverManager.getConnection(URL);
-                PreparedStatement ps = conn.prepareStatement(update, Statement.RETURN_GENERATED_KEYS)) {
-
-            // Set parameters if any
-            setParameters(ps, params);
-
-            result = ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    lastId = rs.getInt(1);
-                } else {
-                    lastId = 0;
-                }
+        return executeWrite(update, false, params).getRows();
+    }
+
+    /**
+     * Executes an INSERT with parameters and returns the key it generated.
+     * Safe to call from many threads at once: the key is read from the
+     * connection that ran the insert.
+     *
+     * @param insert SQL insert statement with ? placeholders
+     * @param params Variable argument list of parameters to bind to the statement
+     * @return the generated key, 0 if the insert failed
+     */
+    public static int executeInsert(String insert, Object... params) {
+        return executeWrite(insert, true, params).getGeneratedKey();
+    }
+
+    private static WriteResult executeWrite(String update, boolean returnKeys, Object[] params) {
+        WriteResult result = WriteResult.NONE;
+        ConnectionPool writer = writer();
+        PooledConnection pc = null;
+        try {
+            pc = writer.borrow();
+            try (StatementCache.Lease lease = pc.prepare(update, returnKeys)) {
+                PreparedStatement ps = lease.getStatement();
+
+                // Set parameters if any
+                setParameters(ps, params);
+
+                int rows = ps.executeUpdate();
+                result = new WriteResult(rows, returnKeys && rows > 0 ? readGeneratedKey(ps) : 0);
             }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "SQL Error executing update: " + update, ex);
+            Transaction.markRollbackOnly();
+        } finally {
+            writer.release(pc);
         }
         return result;
     }
 
+    static int readGeneratedKey(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Enqueues an update (INSERT, UPDATE, DELETE) on the group-commit {@link WriteQueue},
+     * which commits it together with the updates of other threads.
+     * <p>
+     * When the current thread already holds the writer connection (e.g. inside
+     * {@link #inTransaction(UnitOfWork)}) the update runs right away on that
+     * connection instead, as part of the caller's transaction.
+     *
+     * @param update SQL update statement with ? placeholders
+     * @param params Variable argument list of parameters to bind to the statement
+     * @return a future completed with the affected rows and generated key once committed
+     */
+    public static CompletableFuture<WriteResult> submitUpdate(String update, Object... params) {
+        if (writer().isHeldByCurrentThread()) {
+            return CompletableFuture.completedFuture(executeWrite(update, true, params));
+        }
+        return Storage.WRITES.submit(update, params);
+    }
+
+    /**
+     * Same as {@link #executeUpdate(String, Object...)}, but goes through the
+     * group-commit {@link WriteQueue} and waits for the commit.
+     *
+     * @param update SQL update statement with ? placeholders
+     * @param params Variable argument list of parameters to bind to the statement
+     * @return affected rows and generated key, {@link WriteResult#NONE} if the update failed
+     * or wasn't committed within {@link WriteQueueConfig#getCommitTimeoutMillis()}
+     */
+    public static WriteResult executeQueuedUpdate(String update, Object... params) {
+        try {
+            return submitUpdate(update, params).get(Storage.WRITES.getConfig().getCommitTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | CancellationException ex) {
+            // Already logged by the write queue
+            return WriteResult.NONE;
+        } catch (TimeoutException ex) {
+            LOGGER.severe("Queued update not committed in time: " + update);
+            return WriteResult.NONE;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return WriteResult.NONE;
+        }
+    }
+
+    /**
+     * Queries run on the writer when the current thread already holds it (inside a
+     * transaction it must see its own uncommitted writes), otherwise on a reader.
+     */
+    private static ConnectionPool readPool() {
+        return readPool(writer(), Storage.READERS);
+    }
+
+    static ConnectionPool readPool(ConnectionPool writer, ConnectionPool readers) {
+        return writer.isHeldByCurrentThread() ? writer : readers;
+    }
+
     /**
      * Helper method to set parameters on a PreparedStatement
      * 
@@ -181,7 +685,7 @@ public class PersistenceManager {
      * @param params The parameters to set
      * @throws SQLException If there's an error setting parameters
      */
-    private static void setParameters(PreparedStatement ps, Object[] params) throws SQLException {
+    static void setParameters(PreparedStatement ps, Object[] params) throws SQLException {
         for (int i = 0; i < params.length; i++) {
             if (params[i] == null) {
                 ps.setNull(i + 1, Types.NULL);
@@ -214,13 +718,93 @@ public class PersistenceManager {
     }
 
     /**
-     * Gets a connection to the database
+     * Gets a connection to the database, borrowed from the pool.
+     * Closing it hands it back to the pool instead of closing the physical connection.
      * 
-     * @return A new Connection to the database
-     * @throws SQLException If a database error occurs
+     * @return A pooled Connection to the database
+     * @throws SQLException If a database error occurs or the pool is exhausted
      */
     public static Connection getConnection() throws SQLException {
-        ensureDbExists();
-        return DriverManager.getConnection(URL);
+        ConnectionPool writer = writer();
+        PooledConnection pc = writer.borrow();
+        Connection target = pc.getConnection();
+        boolean[] released = new boolean[1];
+
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released[0]) {
+                            released[0] = true;
+                            writer.release(pc);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released[0] || target.isClosed();
+                    default:
+                        if (released[0]) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            });
+    }
+
+    /**
+     * @return the highest schema migration applied to the database, 0 if none
+     */
+    public static int getSchemaVersion() {
+        PooledConnection pc = null;
+        try {
+            pc = Storage.WRITER.borrow();
+            return MigrationRunner.currentVersion(pc.getConnection());
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error reading schema version", ex);
+            return 0;
+        } finally {
+            Storage.WRITER.release(pc);
+        }
+    }
+
+    /**
+     * @return usage and wait metrics of the connection pool used for writes
+     */
+    public static PoolStats getPoolStats() {
+        return Storage.WRITER.getStats();
+    }
+
+    /**
+     * @return usage and wait metrics of the connection pool used for queries;
+     * the same as {@link #getPoolStats()} unless the WAL profile is active
+     */
+    public static PoolStats getReaderPoolStats() {
+        return Storage.READERS.getStats();
+    }
+
+    /**
+     * @return batching metrics of the group-commit write queue
+     */
+    public static WriteQueueStats getWriteQueueStats() {
+        return Storage.WRITES.getStats();
+    }
+
+    /**
+     * @return hit/miss counters of the per-connection prepared statement caches
+     */
+    public static StatementCacheStats getStatementCacheStats() {
+        return Storage.STATEMENT_STATS;
+    }
+
+    /**
+     * @return identity map hit/miss counters accumulated by all sessions, one entry per entity type
+     */
+    public static List<IdentityMapStats> getIdentityMapStats() {
+        return Session.getTotals();
     }
 }
@@ -0,0 +1,69 @@
+package catering.persistence;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tuning knobs for a {@link ConnectionPool}.
+ * Defaults can be overridden with {@code catering.db.pool.*} system properties.
+ */
+@Data
+@NoArgsConstructor
+public class PoolConfig {
+    private static final String PREFIX = "catering.db.pool.";
+
+    private int maxSize = 8;
+    private int minIdle = 1;
+    private long maxWaitMillis = 30_000;
+    private long idleTimeoutMillis = 10 * 60_000;
+    private long validationIntervalMillis = 30_000;
+    private int validationTimeoutSeconds = 2;
+    private long leakThresholdMillis = 60_000;
+    // Records a stack trace on every borrow, only worth its cost while hunting a leak
+    private boolean leakTraceEnabled = false;
+    private long housekeepingIntervalMillis = 30_000;
+    private int statementCacheSize = 64;
+
+    /**
+     * Builds a configuration from the defaults, overridden by any
+     * {@code catering.db.pool.*} system property that is set.
+     */
+    public static PoolConfig fromSystemProperties() {
+        return fromSystemProperties(null);
+    }
+
+    /**
+     * Same as {@link #fromSystemProperties()} for one of several pools: a
+     * {@code catering.db.pool.<name>.*} property, e.g. {@code catering.db.pool.reader.maxSize},
+     * takes precedence over the shared {@code catering.db.pool.*} one.
+     *
+     * @param name the pool name, or null to read the shared properties only
+     */
+    public static PoolConfig fromSystemProperties(String name) {
+        String prefix = name != null ? PREFIX + name + "." : PREFIX;
+        PoolConfig config = new PoolConfig();
+        config.setMaxSize(getInt(prefix, "maxSize", config.getMaxSize()));
+        config.setMinIdle(getInt(prefix, "minIdle", config.getMinIdle()));
+        config.setMaxWaitMillis(getLong(prefix, "maxWaitMillis", config.getMaxWaitMillis()));
+        config.setIdleTimeoutMillis(getLong(prefix, "idleTimeoutMillis", config.getIdleTimeoutMillis()));
+        config.setValidationIntervalMillis(getLong(prefix, "validationIntervalMillis", config.getValidationIntervalMillis()));
+        config.setValidationTimeoutSeconds(getInt(prefix, "validationTimeoutSeconds", config.getValidationTimeoutSeconds()));
+        config.setLeakThresholdMillis(getLong(prefix, "leakThresholdMillis", config.getLeakThresholdMillis()));
+        config.setLeakTraceEnabled(Boolean.parseBoolean(System.getProperty(prefix + "leakTraceEnabled",
+            System.getProperty(PREFIX + "leakTraceEnabled", String.valueOf(config.isLeakTraceEnabled())))));
+        config.setHousekeepingIntervalMillis(getLong(prefix, "housekeepingIntervalMillis", config.getHousekeepingIntervalMillis()));
+        config.setStatementCacheSize(getInt(prefix, "statementCacheSize", config.getStatementCacheSize()));
+        return config;
+    }
+
+
+    // HELPERS
+
+    private static int getInt(String prefix, String key, int defaultValue) {
+        return Integer.getInteger(prefix + key, Integer.getInteger(PREFIX + key, defaultValue));
+    }
+
+    private static long getLong(String prefix, String key, long defaultValue) {
+        return Long.getLong(prefix + key, Long.getLong(PREFIX + key, defaultValue));
+    }
+}
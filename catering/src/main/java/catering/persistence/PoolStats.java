@@ -0,0 +1,37 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the usage metrics of a {@link ConnectionPool}.
+ */
+@Value
+public class PoolStats {
+    String poolName;
+    int maxSize;
+    int active;
+    int idle;
+    long borrowCount;
+    long createdCount;
+    long destroyedCount;
+    long timeoutCount;
+    long leakCount;
+    long totalWaitNanos;
+    long maxWaitNanos;
+
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats[%s: active=%d/%d, idle=%d, borrows=%d, created=%d, destroyed=%d, " +
+                "timeouts=%d, leaks=%d, avgWait=%.3fms, maxWait=%.3fms]",
+            poolName, active, maxSize, idle, borrowCount, createdCount, destroyedCount,
+            timeoutCount, leakCount, getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
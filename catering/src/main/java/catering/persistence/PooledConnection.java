@@ -0,0 +1,101 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}, together with the
+ * bookkeeping the pool needs for validation, idle eviction and leak detection.
+ */
+@Getter
+public class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAt;
+
+    @Getter(AccessLevel.PACKAGE)
+    private volatile long lastUsedAt;
+    @Getter(AccessLevel.PACKAGE)
+    private volatile long borrowedAt;
+    @Getter(AccessLevel.PACKAGE)
+    private volatile Thread borrower;
+    @Getter(AccessLevel.PACKAGE)
+    private volatile Throwable borrowTrace;
+    @Getter(AccessLevel.PACKAGE)
+    private volatile boolean leakReported;
+
+    // Re-entrant borrows by the owning thread
+    private int holdCount;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize, StatementCacheStats cacheStats) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCache = new StatementCache(connection, statementCacheSize, cacheStats);
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    /**
+     * Prepares a statement through this connection's statement cache.
+     * The returned lease must be closed (try-with-resources) once the statement is done.
+     */
+    public StatementCache.Lease prepare(String sql, boolean returnKeys) throws SQLException {
+        return statementCache.prepare(sql, returnKeys);
+    }
+
+    /**
+     * Prepares a statement that bypasses the statement cache, see {@link StatementCache#prepareUncached}.
+     */
+    public StatementCache.Lease prepareUncached(String sql, boolean returnKeys) throws SQLException {
+        return statementCache.prepareUncached(sql, returnKeys);
+    }
+
+    void markBorrowed(boolean captureTrace) {
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrower = Thread.currentThread();
+        this.borrowTrace = captureTrace ? new Throwable("Connection borrowed here") : null;
+        this.leakReported = false;
+        this.holdCount = 1;
+    }
+
+    void markReturned() {
+        this.lastUsedAt = System.currentTimeMillis();
+        this.borrower = null;
+        this.borrowTrace = null;
+        this.holdCount = 0;
+    }
+
+    void markLeakReported() {
+        this.leakReported = true;
+    }
+
+    void hold() {
+        holdCount++;
+    }
+
+    int unhold() {
+        return --holdCount;
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return !connection.isClosed() && connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closeQuietly() {
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Nothing left to release
+        }
+    }
+}
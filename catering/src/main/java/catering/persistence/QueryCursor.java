@@ -0,0 +1,142 @@
+package catering.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import catering.utils.LogManager;
+
+/**
+ * Pull-based iterator over an open result set. Rows are mapped one at a time as
+ * the caller advances, so memory use doesn't grow with the size of the result.
+ * <p>
+ * The cursor holds a pooled connection until it is closed, which happens
+ * automatically once the last row has been read or a row fails to load; callers
+ * that may stop early must close it (try-with-resources). Like every pooled
+ * connection it is bound to the thread that opened it, so it has to be consumed
+ * and closed on that thread. Queries issued while iterating (e.g. from the
+ * mapper) reuse the same connection.
+ */
+public class QueryCursor<T> implements Iterator<T>, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(QueryCursor.class);
+
+    private final String query;
+    private final RowMapper<T> mapper;
+    private ConnectionPool pool;
+    private PooledConnection pc;
+    private StatementCache.Lease lease;
+    private ResultSet rs;
+
+    private T next;
+    private boolean fetched;
+    private boolean closed;
+
+    private QueryCursor(String query, RowMapper<T> mapper) {
+        this.query = query;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Runs the query and positions the cursor before the first row.
+     * If the query fails the error is logged and the cursor is empty.
+     */
+    static <T> QueryCursor<T> open(ConnectionPool pool, String query, int fetchSize, RowMapper<T> mapper, Object[] params) {
+        QueryCursor<T> cursor = new QueryCursor<>(query, mapper);
+        try {
+            cursor.pc = pool.borrow();
+            cursor.pool = pool;
+            cursor.lease = cursor.pc.prepare(query, false);
+            PreparedStatement ps = cursor.lease.getStatement();
+            ps.setFetchSize(fetchSize);
+            PersistenceManager.setParameters(ps, params);
+            cursor.rs = ps.executeQuery();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error executing query: " + query, ex);
+            cursor.close();
+        }
+        return cursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched && !closed) {
+            advance();
+        }
+        return fetched;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        T row = next;
+        next = null;
+        return row;
+    }
+
+    /**
+     * @return a sequential stream over the remaining rows; closing the stream closes the cursor
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+            .onClose(this::close);
+    }
+
+    /**
+     * Closes the result set and gives the connection back to the pool. Idempotent.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fetched = false;
+        next = null;
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (lease != null) {
+                lease.close();
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Failed to close cursor for query: " + query, ex);
+        } finally {
+            if (pool != null) {
+                pool.release(pc);
+            }
+        }
+    }
+
+
+    // HELPERS
+
+    private void advance() {
+        try {
+            if (rs.next()) {
+                next = mapper.map(rs);
+                fetched = true;
+            } else {
+                close();
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error reading row of query: " + query, ex);
+            close();
+        } catch (RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+}
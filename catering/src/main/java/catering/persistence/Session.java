@@ -0,0 +1,108 @@
+package catering.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A unit of work bound to the current thread that keeps one {@link IdentityMap}
+ * per entity type, so every id loaded while it is open resolves to a single
+ * instance and costs a single query.
+ * <p>
+ * Sessions nest by joining: work started inside an open session uses the same
+ * maps, and they are dropped when the outermost one ends. Outside a session the
+ * static helpers simply call the loader, so DAOs behave exactly as before.
+ */
+public final class Session {
+
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    // Hits and misses of every session so far, by entity type
+    private static final Map<Class<?>, AtomicLong[]> TOTALS = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, IdentityMap<?, ?>> maps = new HashMap<>();
+
+    private Session() {
+    }
+
+    /**
+     * @return the session open on the current thread, or null
+     */
+    public static Session current() {
+        return CURRENT.get();
+    }
+
+    static <T, E extends Exception> T run(UnitOfWork<T, E> work) throws E {
+        if (CURRENT.get() != null) {
+            return work.execute();
+        }
+        CURRENT.set(new Session());
+        try {
+            return work.execute();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return the identity map of the given entity type, created on first use
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> IdentityMap<K, V> identityMap(Class<V> type) {
+        return (IdentityMap<K, V>) maps.computeIfAbsent(type,
+            t -> new IdentityMap<>(TOTALS.computeIfAbsent(t, k -> new AtomicLong[]{new AtomicLong(), new AtomicLong()})));
+    }
+
+    /**
+     * Loads an entity through the current session's identity map, or with the loader alone if no session is open.
+     */
+    public static <K, V> V resolve(Class<V> type, K key, Function<? super K, ? extends V> loader) {
+        Session session = CURRENT.get();
+        return session == null ? loader.apply(key) : session.<K, V>identityMap(type).get(key, loader);
+    }
+
+    /**
+     * Batch counterpart of {@link #resolve(Class, Object, Function)}: only the keys
+     * not already mapped are handed to the loader.
+     */
+    public static <K, V> Map<K, V> resolveAll(Class<V> type, Collection<K> keys,
+                                              Function<? super List<K>, ? extends Map<K, V>> loader) {
+        Session session = CURRENT.get();
+        return session == null ? loader.apply(new ArrayList<>(keys)) : session.<K, V>identityMap(type).getAll(keys, loader);
+    }
+
+    /**
+     * Registers an instance loaded or created outside {@link #resolve(Class, Object, Function)}.
+     *
+     * @return the instance already known for the key, if any, otherwise the given one
+     */
+    public static <K, V> V attach(Class<V> type, K key, V value) {
+        Session session = CURRENT.get();
+        return session == null ? value : session.<K, V>identityMap(type).attach(key, value);
+    }
+
+    /**
+     * Forgets the instance mapped to the key, e.g. after it has been deleted.
+     */
+    public static <K, V> void evict(Class<V> type, K key) {
+        Session session = CURRENT.get();
+        if (session != null) {
+            session.<K, V>identityMap(type).evict(key);
+        }
+    }
+
+    /**
+     * @return hit/miss counters accumulated by all sessions so far, one entry per entity type
+     */
+    static List<IdentityMapStats> getTotals() {
+        List<IdentityMapStats> stats = new ArrayList<>();
+        TOTALS.forEach((type, counters) ->
+            stats.add(new IdentityMapStats(type.getSimpleName(), counters[0].get(), counters[1].get())));
+        return stats;
+    }
+}
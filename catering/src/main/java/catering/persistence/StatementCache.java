@@ -0,0 +1,145 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of compiled {@link PreparedStatement}s for a single pooled connection,
+ * keyed by SQL text. Only the thread holding the connection touches it.
+ */
+public class StatementCache {
+
+    /**
+     * A statement handed out by the cache. Closing the lease gives the statement
+     * back to the cache instead of finalizing it.
+     */
+    public final class Lease implements AutoCloseable {
+        private final String key;
+        private final PreparedStatement statement;
+        private final boolean cached;
+        private boolean inUse = true;
+        private boolean evicted;
+
+        private Lease(String key, PreparedStatement statement, boolean cached) {
+            this.key = key;
+            this.statement = statement;
+            this.cached = cached;
+        }
+
+        public PreparedStatement getStatement() {
+            return statement;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            inUse = false;
+            if (!cached || evicted) {
+                statement.close();
+                return;
+            }
+            try {
+                statement.clearParameters();
+            } catch (SQLException e) {
+                entries.remove(key);
+                statement.close();
+            }
+        }
+    }
+
+    private final Connection connection;
+    private final StatementCacheStats stats;
+    private final LinkedHashMap<String, Lease> entries;
+
+    public StatementCache(Connection connection, int capacity, StatementCacheStats stats) {
+        this.connection = connection;
+        this.stats = stats;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Lease> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the SQL text, preparing it on a miss.
+     * If the cached statement is still busy (the same SQL issued from inside its
+     * own result handler), a throw-away statement is prepared instead.
+     *
+     * @param sql        SQL text with ? placeholders
+     * @param returnKeys whether the statement must expose generated keys
+     */
+    public Lease prepare(String sql, boolean returnKeys) throws SQLException {
+        String key = (returnKeys ? "K:" : "Q:") + sql;
+        Lease lease = entries.get(key);
+        if (lease != null) {
+            if (!lease.inUse) {
+                lease.inUse = true;
+                stats.recordHit();
+                return lease;
+            }
+            stats.recordBypass();
+            return new Lease(key, doPrepare(sql, returnKeys), false);
+        }
+
+        stats.recordMiss();
+        lease = new Lease(key, doPrepare(sql, returnKeys), true);
+        entries.put(key, lease);
+        return lease;
+    }
+
+    /**
+     * Prepares a throw-away statement, closed with its lease, for one-off SQL that
+     * would only evict the statements worth keeping. Counted as a bypass.
+     */
+    public Lease prepareUncached(String sql, boolean returnKeys) throws SQLException {
+        stats.recordBypass();
+        return new Lease((returnKeys ? "K:" : "Q:") + sql, doPrepare(sql, returnKeys), false);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Closes every cached statement that isn't currently in use.
+     */
+    public void clear() {
+        List<Lease> leases = new ArrayList<>(entries.values());
+        entries.clear();
+        leases.forEach(this::evict);
+    }
+
+
+    // HELPERS
+
+    private PreparedStatement doPrepare(String sql, boolean returnKeys) throws SQLException {
+        return returnKeys
+            ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+            : connection.prepareStatement(sql);
+    }
+
+    private void evict(Lease lease) {
+        stats.recordEviction();
+        if (lease.inUse) {
+            // Closed by the lease itself once the caller is done with it
+            lease.evicted = true;
+            return;
+        }
+        try {
+            lease.statement.close();
+        } catch (SQLException ignored) {
+            // Statement is gone either way
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package catering.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit/miss counters shared by the statement caches of all connections in a pool.
+ */
+public class StatementCacheStats {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    void recordBypass() {
+        bypasses.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return statements prepared outside the cache because the cached one was
+     * still in use by an enclosing call on the same connection
+     */
+    public long getBypasses() {
+        return bypasses.get();
+    }
+
+    public double getHitRatio() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0.0 : (double) getHits() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StatementCacheStats[hits=%d, misses=%d, evictions=%d, bypasses=%d, hitRatio=%.2f]",
+            getHits(), getMisses(), getEvictions(), getBypasses(), getHitRatio());
+    }
+}
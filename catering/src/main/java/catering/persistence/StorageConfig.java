@@ -0,0 +1,44 @@
+package catering.persistence;
+
+import java.util.Locale;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Storage profile and connection tuning used by {@link PersistenceManager}.
+ * Defaults can be overridden with {@code catering.db.*} system properties,
+ * e.g. {@code -Dcatering.db.profile=wal}. The two pools read the shared
+ * {@code catering.db.pool.*} properties, each overridden by its own
+ * {@code catering.db.pool.reader.*} or {@code catering.db.pool.writer.*} ones.
+ */
+@Data
+@NoArgsConstructor
+public class StorageConfig {
+    private static final String PREFIX = "catering.db.";
+
+    private StorageProfile profile = StorageProfile.ROLLBACK_JOURNAL;
+    private long mmapSizeBytes = 256L * 1024 * 1024;
+    private int cacheSizeKib = 16 * 1024;
+    private PoolConfig readerPool = new PoolConfig();
+    private PoolConfig writerPool = new PoolConfig();
+    private WriteQueueConfig writeQueue = new WriteQueueConfig();
+
+    /**
+     * Builds a configuration from the defaults, overridden by any
+     * {@code catering.db.*} system property that is set.
+     */
+    public static StorageConfig fromSystemProperties() {
+        StorageConfig config = new StorageConfig();
+        String profile = System.getProperty(PREFIX + "profile");
+        if (profile != null) {
+            config.setProfile(StorageProfile.valueOf(profile.trim().toUpperCase(Locale.ROOT)));
+        }
+        config.setMmapSizeBytes(Long.getLong(PREFIX + "mmapSize", config.getMmapSizeBytes()));
+        config.setCacheSizeKib(Integer.getInteger(PREFIX + "cacheSizeKib", config.getCacheSizeKib()));
+        config.setReaderPool(PoolConfig.fromSystemProperties("reader"));
+        config.setWriterPool(PoolConfig.fromSystemProperties("writer"));
+        config.setWriteQueue(WriteQueueConfig.fromSystemProperties());
+        return config;
+    }
+}
@@ -0,0 +1,21 @@
+package catering.persistence;
+
+/**
+ * How {@link PersistenceManager} lays out its connections on the SQLite file.
+ */
+public enum StorageProfile {
+
+    /**
+     * SQLite defaults: rollback journal and a single pool shared by reads and writes.
+     * A writer blocks every reader for the duration of its transaction.
+     */
+    ROLLBACK_JOURNAL,
+
+    /**
+     * Write-ahead log with {@code synchronous=NORMAL}: queries run on a pool of
+     * read-only connections that see a consistent snapshot, while every mutation
+     * goes through one dedicated writer connection. Readers and the writer never
+     * block each other.
+     */
+    WAL
+}
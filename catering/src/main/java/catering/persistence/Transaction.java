@@ -0,0 +1,217 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.utils.LogManager;
+
+/**
+ * A transaction bound to the current thread.
+ * <p>
+ * The outermost unit of work borrows a connection, switches off auto-commit and
+ * keeps the connection held for its whole duration; because pool borrows are
+ * re-entrant, every DAO call on the same thread joins it without any change.
+ * Nested units of work run inside a savepoint, so an exception rolls back only
+ * the nested part before propagating.
+ */
+final class Transaction {
+
+    private static final Logger LOGGER = LogManager.getLogger(Transaction.class);
+    private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final List<Runnable> afterCompletion = new ArrayList<>();
+    private final List<Runnable> afterRollback = new ArrayList<>();
+    private boolean rollbackOnly;
+    private boolean rolledBack;
+
+    private Transaction(Connection connection) {
+        this.connection = connection;
+    }
+
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Marks the current transaction, if any, so that it rolls back instead of committing.
+     * Used when a statement fails and its error is only logged.
+     */
+    static void markRollbackOnly() {
+        Transaction tx = CURRENT.get();
+        if (tx != null) {
+            tx.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Runs the callback once the current transaction has ended, whether it committed
+     * or rolled back, or right away if there is none.
+     */
+    static void afterCompletion(Runnable callback) {
+        Transaction tx = CURRENT.get();
+        if (tx != null) {
+            tx.afterCompletion.add(callback);
+        } else {
+            callback.run();
+        }
+    }
+
+    /**
+     * Runs the callback if the current transaction rolls back, so in-memory state set
+     * for rows it wrote can be undone. Does nothing outside a transaction.
+     */
+    static void afterRollback(Runnable callback) {
+        Transaction tx = CURRENT.get();
+        if (tx != null) {
+            tx.afterRollback.add(callback);
+        }
+    }
+
+    static <T, E extends Exception> T run(ConnectionPool pool, UnitOfWork<T, E> work) throws E {
+        Transaction tx = CURRENT.get();
+        return tx != null ? tx.runNested(work) : runOutermost(pool, work);
+    }
+
+    /**
+     * Runs the work on one read-only connection inside a deferred transaction, so
+     * every query it makes sees the same snapshot of the database.
+     */
+    static <T, E extends Exception> T runSnapshot(ConnectionPool readers, UnitOfWork<T, E> work) throws E {
+        if (readers.isHeldByCurrentThread()) {
+            return work.execute();
+        }
+
+        PooledConnection pc;
+        try {
+            pc = readers.borrow();
+        } catch (SQLException e) {
+            throw new TransactionException("Could not obtain a connection for the read snapshot", e);
+        }
+
+        Connection conn = pc.getConnection();
+        try {
+            try {
+                conn.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw new TransactionException("Could not begin read snapshot", e);
+            }
+            return work.execute();
+        } finally {
+            try {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to end read snapshot", e);
+            }
+            readers.release(pc);
+        }
+    }
+
+
+    // HELPERS
+
+    private static <T, E extends Exception> T runOutermost(ConnectionPool pool, UnitOfWork<T, E> work) throws E {
+        PooledConnection pc;
+        try {
+            pc = pool.borrow();
+        } catch (SQLException e) {
+            throw new TransactionException("Could not obtain a connection for the transaction", e);
+        }
+
+        Transaction tx = new Transaction(pc.getConnection());
+        try {
+            tx.begin();
+            CURRENT.set(tx);
+
+            T result;
+            try {
+                result = work.execute();
+            } catch (Throwable t) {
+                tx.rollbackQuietly();
+                throw t;
+            }
+            tx.complete();
+            return result;
+        } finally {
+            CURRENT.remove();
+            pool.release(pc);
+            if (tx.rolledBack) {
+                tx.afterRollback.forEach(Runnable::run);
+            }
+            tx.afterCompletion.forEach(Runnable::run);
+        }
+    }
+
+    private <T, E extends Exception> T runNested(UnitOfWork<T, E> work) throws E {
+        Savepoint savepoint;
+        try {
+            savepoint = connection.setSavepoint();
+        } catch (SQLException e) {
+            rollbackOnly = true;
+            throw new TransactionException("Could not create a savepoint", e);
+        }
+
+        T result;
+        try {
+            result = work.execute();
+        } catch (Throwable t) {
+            rollbackTo(savepoint);
+            throw t;
+        }
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // The savepoint is folded into the outer transaction on commit anyway
+            LOGGER.log(Level.FINE, "Failed to release savepoint", e);
+        }
+        return result;
+    }
+
+    private void begin() {
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new TransactionException("Could not begin transaction", e);
+        }
+    }
+
+    private void complete() {
+        if (rollbackOnly) {
+            rollbackQuietly();
+            throw new TransactionException("Transaction rolled back because one of its statements failed");
+        }
+        try {
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            rollbackQuietly();
+            throw new TransactionException("Could not commit transaction", e);
+        }
+    }
+
+    private void rollbackTo(Savepoint savepoint) {
+        try {
+            connection.rollback(savepoint);
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to roll back to savepoint, rolling back the whole transaction", e);
+            rollbackOnly = true;
+        }
+    }
+
+    private void rollbackQuietly() {
+        rolledBack = true;
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to roll back transaction", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package catering.persistence;
+
+/**
+ * Thrown when a transaction can't be started or committed, or was rolled back
+ * because one of its statements failed.
+ */
+public class TransactionException extends RuntimeException {
+
+    public TransactionException(String message) {
+        super(message);
+    }
+
+    public TransactionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
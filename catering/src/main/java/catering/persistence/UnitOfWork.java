@@ -0,0 +1,12 @@
+package catering.persistence;
+
+/**
+ * A block of persistence work that runs inside a single transaction.
+ *
+ * @param <T> result of the work
+ * @param <E> checked exception the work may throw
+ */
+@FunctionalInterface
+public interface UnitOfWork<T, E extends Exception> {
+    T execute() throws E;
+}
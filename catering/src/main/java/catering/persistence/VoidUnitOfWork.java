@@ -0,0 +1,11 @@
+package catering.persistence;
+
+/**
+ * A {@link UnitOfWork} without a result.
+ *
+ * @param <E> checked exception the work may throw
+ */
+@FunctionalInterface
+public interface VoidUnitOfWork<E extends Exception> {
+    void execute() throws E;
+}
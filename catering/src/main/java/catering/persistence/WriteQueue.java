@@ -0,0 +1,258 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.utils.LogManager;
+
+/**
+ * Group-commit pipeline for single-statement mutations.
+ * <p>
+ * Callers enqueue statements into a bounded queue (blocking when it is full) and
+ * get a future back. One writer thread drains the queue in batches of up to
+ * {@link WriteQueueConfig#getMaxBatchSize()} statements and runs each batch in a
+ * single transaction, so concurrent writers share one commit instead of paying
+ * for one each. Every statement runs in its own savepoint: a failing statement
+ * fails only its own future. Futures complete once the batch has committed.
+ */
+public class WriteQueue {
+
+    private static final Logger LOGGER = LogManager.getLogger(WriteQueue.class);
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final class Write {
+        final String sql;
+        final Object[] params;
+        final CompletableFuture<WriteResult> future = new CompletableFuture<>();
+
+        Write(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    private final String name;
+    private final ConnectionPool writer;
+    private final WriteQueueConfig config;
+    private final BlockingQueue<Write> queue;
+    private final Thread worker;
+    private final Thread shutdownHook;
+    // Held shared while enqueuing and exclusively while closing, so no write slips in after the final drain
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+    public WriteQueue(String name, ConnectionPool writer, WriteQueueConfig config) {
+        this.name = name;
+        this.writer = writer;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(config.getCapacity());
+
+        this.worker = new Thread(this::drainLoop, "write-queue-" + name);
+        worker.setDaemon(true);
+        worker.start();
+        this.shutdownHook = new Thread(this::close, "write-queue-" + name + "-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public WriteQueueConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Enqueues a mutation, blocking while the queue is full.
+     *
+     * @param sql    SQL statement with ? placeholders
+     * @param params parameters to bind to the statement
+     * @return a future completed with the affected rows and generated key once the
+     * statement has been committed, or exceptionally if it failed
+     */
+    public CompletableFuture<WriteResult> submit(String sql, Object... params) {
+        Write write = new Write(sql, params);
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                write.future.completeExceptionally(new SQLException("Write queue '" + name + "' is closed"));
+                return write.future;
+            }
+            // The worker drains without the lock, so a full queue still makes room
+            queue.put(write);
+            submitted.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future.completeExceptionally(e);
+        } finally {
+            closing.readLock().unlock();
+        }
+        return write.future;
+    }
+
+    public WriteQueueStats getStats() {
+        return new WriteQueueStats(name, queue.size(), submitted.get(), committed.get(), failed.get(),
+            batches.get(), maxBatchSize.get());
+    }
+
+    /**
+     * Stops accepting writes, commits whatever is still queued and stops the writer thread.
+     */
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down, possibly in this very hook
+        }
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the worker didn't get to
+        List<Write> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            runBatch(rest);
+        }
+    }
+
+
+    // HELPERS
+
+    private void drainLoop() {
+        List<Write> batch = new ArrayList<>(config.getMaxBatchSize());
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Write first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(batch, e);
+                return;
+            }
+            try {
+                runBatch(batch);
+            } catch (RuntimeException e) {
+                // The only writer thread must survive whatever a batch throws
+                LOGGER.log(Level.SEVERE, "Unexpected error running a batch of " + batch.size() + " writes", e);
+                failAll(batch, e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void fillBatch(List<Write> batch) throws InterruptedException {
+        int max = config.getMaxBatchSize();
+        queue.drainTo(batch, max - batch.size());
+
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxLingerMillis());
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < max && lingerNanos > 0) {
+            Write next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, max - batch.size());
+        }
+    }
+
+    private void runBatch(List<Write> batch) {
+        batches.incrementAndGet();
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+
+        List<WriteResult> results = new ArrayList<>(batch.size());
+        PooledConnection pc = null;
+        try {
+            pc = writer.borrow();
+            Connection conn = pc.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                for (Write write : batch) {
+                    results.add(execute(pc, write));
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to commit a batch of " + batch.size() + " writes", e);
+            failAll(batch, e);
+            return;
+        } finally {
+            writer.release(pc);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            // null marks a write that failed and was rolled back to its savepoint
+            if (results.get(i) != null) {
+                batch.get(i).future.complete(results.get(i));
+                committed.incrementAndGet();
+            }
+        }
+    }
+
+    private WriteResult execute(PooledConnection pc, Write write) throws SQLException {
+        Connection conn = pc.getConnection();
+        Savepoint savepoint = conn.setSavepoint();
+        try (StatementCache.Lease lease = pc.prepare(write.sql, true)) {
+            PreparedStatement ps = lease.getStatement();
+            PersistenceManager.setParameters(ps, write.params);
+
+            int rows = ps.executeUpdate();
+            int key = rows > 0 ? PersistenceManager.readGeneratedKey(ps) : 0;
+            conn.releaseSavepoint(savepoint);
+            return new WriteResult(rows, key);
+        } catch (SQLException | RuntimeException e) {
+            // e.g. a parameter of a type the driver can't bind
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+            LOGGER.log(Level.SEVERE, "Error executing queued update: " + write.sql, e);
+            write.future.completeExceptionally(e);
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    // Fails the writes not completed yet
+    private void failAll(List<Write> batch, Throwable cause) {
+        for (Write write : batch) {
+            if (write.future.completeExceptionally(cause)) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package catering.persistence;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tuning knobs for a {@link WriteQueue}.
+ * Defaults can be overridden with {@code catering.db.writeQueue.*} system properties.
+ */
+@Data
+@NoArgsConstructor
+public class WriteQueueConfig {
+    private static final String PREFIX = "catering.db.writeQueue.";
+
+    private int capacity = 1024;
+    private int maxBatchSize = 64;
+    // How long the writer waits for more writes before committing a partial batch;
+    // 0 commits whatever is queued right away
+    private long maxLingerMillis = 0;
+    // How long PersistenceManager.executeQueuedUpdate waits for the commit before giving up
+    private long commitTimeoutMillis = 30_000;
+
+    /**
+     * Builds a configuration from the defaults, overridden by any
+     * {@code catering.db.writeQueue.*} system property that is set.
+     */
+    public static WriteQueueConfig fromSystemProperties() {
+        WriteQueueConfig config = new WriteQueueConfig();
+        config.setCapacity(Integer.getInteger(PREFIX + "capacity", config.getCapacity()));
+        config.setMaxBatchSize(Integer.getInteger(PREFIX + "maxBatchSize", config.getMaxBatchSize()));
+        config.setMaxLingerMillis(Long.getLong(PREFIX + "maxLingerMillis", config.getMaxLingerMillis()));
+        config.setCommitTimeoutMillis(Long.getLong(PREFIX + "commitTimeoutMillis", config.getCommitTimeoutMillis()));
+        return config;
+    }
+}
@@ -0,0 +1,28 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the throughput metrics of a {@link WriteQueue}.
+ */
+@Value
+public class WriteQueueStats {
+    String name;
+    int pending;
+    long submitted;
+    long committed;
+    long failed;
+    long batches;
+    int maxBatchSize;
+
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0.0 : (committed + failed) / (double) batches;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WriteQueueStats[%s: pending=%d, submitted=%d, committed=%d, failed=%d, " +
+                "batches=%d, avgBatch=%.2f, maxBatch=%d]",
+            name, pending, submitted, committed, failed, batches, getAverageBatchSize(), maxBatchSize);
+    }
+}
@@ -0,0 +1,15 @@
+package catering.persistence;
+
+import lombok.Value;
+
+/**
+ * Outcome of a single mutation run by the {@link WriteQueue}.
+ */
+@Value
+public class WriteResult {
+    public static final WriteResult NONE = new WriteResult(0, 0);
+
+    int rows;
+    // Row id generated by an INSERT, 0 otherwise
+    int generatedKey;
+}
@@ -3,6 +3,7 @@ package catering.utils;
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +60,38 @@ public class DateUtils {
         return parseStringToDate("Input", dateStr);
     }
 
+    /**
+     * Formats a date as its 'YYYY-MM-DD' day, the form dates are stored in:
+     * unlike epoch millis, it is the same day in every time zone and sorts as text.
+     *
+     * @param date date to format
+     * @return the day, or null if the date is null
+     */
+    public static String toDayKey(Date date) {
+        return date != null ? date.toString() : null;
+    }
+
+    /**
+     * Parses a day stored by {@link #toDayKey(Date)}; generated day columns hold ''
+     * when the date is missing.
+     *
+     * @param day 'YYYY-MM-DD' day
+     * @return java.sql.Date instance or null if the day is null or empty
+     */
+    public static Date fromDayKey(String day) {
+        return day != null && !day.isEmpty() ? Date.valueOf(day) : null;
+    }
+
+    /**
+     * Formats a time as 'HH:MM:SS', the form times are stored in next to their day.
+     *
+     * @param time time to format
+     * @return the time of day, or null if the time is null
+     */
+    public static String toTimeKey(Time time) {
+        return time != null ? time.toString() : null;
+    }
+
 
     // HELPERS
 
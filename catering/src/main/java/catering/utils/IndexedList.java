@@ -0,0 +1,296 @@
+package catering.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+
+/**
+ * List kept in an order-statistic tree (an implicit treap), with an index from each
+ * element to its node. Access by position, insertion, removal and {@link #indexOf(Object)}
+ * all take O(log n); {@link #contains(Object)} is O(1).
+ * <p>
+ * Elements are compared by identity, not {@code equals}, and each element may appear
+ * only once. Sorting and replacing rewrite the values in place, keeping the tree shape.
+ * Not thread-safe.
+ */
+public class IndexedList<E> extends AbstractList<E> {
+
+    private static final class Node<E> {
+        final int priority = ThreadLocalRandom.current().nextInt();
+        E value;
+        Node<E> left;
+        Node<E> right;
+        Node<E> parent;
+        int size = 1;
+
+        Node(E value) {
+            this.value = value;
+        }
+    }
+
+    private final Map<E, Node<E>> nodes = new IdentityHashMap<>();
+    private Node<E> root;
+
+    public IndexedList() {
+    }
+
+    public IndexedList(Collection<? extends E> elements) {
+        addAll(elements);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public E get(int index) {
+        return nodeAt(index).value;
+    }
+
+    /**
+     * An element already listed elsewhere swaps places with the one it replaces, so that
+     * {@link Collections#swap}, {@code reverse} and {@code shuffle} keep every element once.
+     */
+    @Override
+    public E set(int index, E element) {
+        Node<E> node = nodeAt(index);
+        E previous = node.value;
+        if (previous == element) {
+            return element;
+        }
+        Node<E> other = nodes.get(element);
+        node.value = element;
+        nodes.put(element, node);
+        if (other != null) {
+            other.value = previous;
+            nodes.put(previous, other);
+        } else {
+            nodes.remove(previous);
+        }
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        E[] values = (E[]) toArray();
+        Arrays.sort(values, c);
+        fill(root, values, 0);
+        modCount++;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the operator maps two elements to the same one
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        E[] values = (E[]) toArray();
+        Set<E> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operator.apply(values[i]);
+            if (!seen.add(values[i])) {
+                throw new IllegalArgumentException("Element already in the list: " + values[i]);
+            }
+        }
+        nodes.clear();
+        fill(root, values, 0);
+        modCount++;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the element is already in the list
+     */
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        requireAbsent(element);
+        Node<E> node = new Node<>(element);
+        nodes.put(element, node);
+
+        Node<E>[] parts = split(root, index);
+        root = merge(merge(parts[0], node), parts[1]);
+        root.parent = null;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E element = nodeAt(index).value;
+        Node<E>[] head = split(root, index);
+        Node<E>[] tail = split(head[1], 1);
+        root = merge(head[0], tail[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        nodes.remove(element);
+        modCount++;
+        return element;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return nodes.containsKey(o);
+    }
+
+    /**
+     * @return the position of this very element, or -1
+     */
+    @Override
+    public int indexOf(Object o) {
+        Node<E> node = nodes.get(o);
+        if (node == null) {
+            return -1;
+        }
+        int index = size(node.left);
+        for (Node<E> n = node; n.parent != null; n = n.parent) {
+            if (n == n.parent.right) {
+                index += size(n.parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    /**
+     * Moves an element to a new position, O(log n).
+     *
+     * @return false if the element is not in the list
+     */
+    public boolean move(E element, int newIndex) {
+        int index = indexOf(element);
+        if (index < 0) {
+            return false;
+        }
+        if (newIndex < 0 || newIndex >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + newIndex + ", Size: " + size());
+        }
+        remove(index);
+        add(newIndex, element);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodes.clear();
+        modCount++;
+    }
+
+
+    // HELPERS
+
+    private void requireAbsent(E element) {
+        if (nodes.containsKey(element)) {
+            throw new IllegalArgumentException("Element already in the list: " + element);
+        }
+    }
+
+    private Node<E> nodeAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // Writes the values into the nodes in list order, returns the next offset
+    private int fill(Node<E> node, E[] values, int offset) {
+        if (node == null) {
+            return offset;
+        }
+        offset = fill(node.left, values, offset);
+        node.value = values[offset];
+        nodes.put(node.value, node);
+        return fill(node.right, values, offset + 1);
+    }
+
+    // Splits into the first `count` elements and the rest
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E>[] split(Node<E> node, int count) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (size(node.left) < count) {
+            Node<E>[] parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            update(node);
+            if (parts[1] != null) {
+                parts[1].parent = null;
+            }
+            return new Node[]{node, parts[1]};
+        }
+        Node<E>[] parts = split(node.left, count);
+        node.left = parts[1];
+        update(node);
+        if (parts[0] != null) {
+            parts[0].parent = null;
+        }
+        return new Node[]{parts[0], node};
+    }
+
+    private static <E> Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static <E> void update(Node<E> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+}
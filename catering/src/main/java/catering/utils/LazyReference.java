@@ -0,0 +1,60 @@
+package catering.utils;
+
+import java.util.function.IntFunction;
+
+/**
+ * Reference to an entity by id that is only loaded the first time it is read.
+ * Once loaded (or set directly) the value is kept for the lifetime of the reference.
+ */
+public final class LazyReference<T> {
+
+    private final int id;
+    private IntFunction<? extends T> loader;
+    private T value;
+
+    private LazyReference(int id, IntFunction<? extends T> loader, T value) {
+        this.id = id;
+        this.loader = loader;
+        this.value = value;
+    }
+
+    /**
+     * @return a reference that will call the loader with the id on first read
+     */
+    public static <T> LazyReference<T> of(int id, IntFunction<? extends T> loader) {
+        return new LazyReference<>(id, loader, null);
+    }
+
+    /**
+     * @return an already loaded reference
+     */
+    public static <T> LazyReference<T> loaded(int id, T value) {
+        return new LazyReference<>(id, null, value);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loader == null;
+    }
+
+    public synchronized T get() {
+        if (loader != null) {
+            value = loader.apply(id);
+            loader = null;
+        }
+        return value;
+    }
+
+    /**
+     * Supplies the value loaded elsewhere (e.g. in a batch), unless it was already loaded.
+     */
+    public synchronized void resolve(T loaded) {
+        if (loader != null) {
+            value = loaded;
+            loader = null;
+        }
+    }
+}
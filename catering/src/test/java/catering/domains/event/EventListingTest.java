@@ -0,0 +1,160 @@
+package catering.domains.event;
+
+import catering.domains.event.domain.Event;
+import catering.domains.event.domain.EventFilter;
+import catering.domains.event.domain.EventSummary;
+import catering.domains.event.infrastructure.EventDAO;
+import catering.domains.event.infrastructure.ServiceDAO;
+import catering.domains.event.domain.Service;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.Page;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventListingTest {
+    private static final int EVENTS = 60;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    private static StaffMember antonio;
+    private static StaffMember giovanni;
+    private static final List<Event> created = new ArrayList<>();
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(EventListingTest.class);
+        antonio = StaffMemberDAO.loadByEmail("antonio.neri@example.com");
+        giovanni = StaffMemberDAO.loadByEmail("giovanni.ricci@example.com");
+
+        for (int i = 0; i < EVENTS; i++) {
+            // Three events per day, to exercise ties on the date
+            Date day = Date.valueOf(FIRST_DAY.plusDays(i / 3));
+            Event event = new Event("Listed event " + i, day, day, (i % 2 == 0) ? antonio : giovanni);
+            EventDAO.save(event);
+            for (int s = 0; s < i % 4; s++) {
+                ServiceDAO.save(new Service("Service " + s, day, null, null, "Sala", event.getId()));
+            }
+            created.add(event);
+        }
+    }
+
+    @Test
+    void pagesWalkEveryEventNewestFirst() {
+        EventFilter filter = EventFilter.between(Date.valueOf(FIRST_DAY), Date.valueOf(FIRST_DAY.plusYears(1)));
+        List<EventSummary> listed = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            long before = statementCount();
+            Page<EventSummary> page = EventDAO.loadSummaries(filter, token, 7);
+            assertEquals(1, statementCount() - before, "each page is a single query");
+            listed.addAll(page.getItems());
+            token = page.getNextToken();
+            pages++;
+        } while (token != null);
+
+        List<Integer> expected = created.stream()
+            .sorted(Comparator.comparing(Event::getDateStart).thenComparing(Event::getId).reversed())
+            .map(Event::getId)
+            .collect(Collectors.toList());
+        assertEquals(expected, listed.stream().map(EventSummary::getId).collect(Collectors.toList()));
+        assertEquals((EVENTS + 6) / 7, pages);
+    }
+
+    @Test
+    void summariesCarryChefNameAndServiceCount() {
+        Event event = created.get(7);
+        EventSummary summary = EventDAO.loadSummaries(
+            EventFilter.between(event.getDateStart(), event.getDateStart()), null, 10).getItems().stream()
+            .filter(s -> s.getId() == event.getId())
+            .findFirst().orElseThrow();
+
+        assertEquals(event.getName(), summary.getName());
+        assertEquals(event.getDateStart(), summary.getDateStart());
+        assertEquals(event.getDateEnd(), summary.getDateEnd());
+        assertEquals(giovanni.getId(), summary.getChefId());
+        assertEquals("Giovanni Ricci", summary.getChefName());
+        assertEquals(7 % 4, summary.getServiceCount());
+    }
+
+    @Test
+    void dateRangeIsInclusive() {
+        Date from = Date.valueOf(FIRST_DAY.plusDays(2));
+        Date to = Date.valueOf(FIRST_DAY.plusDays(4));
+        List<EventSummary> listed = EventDAO.loadSummaries(EventFilter.between(from, to), null, 100).getItems();
+
+        assertEquals(9, listed.size());
+        assertTrue(listed.stream().allMatch(s -> !s.getDateStart().before(from) && !s.getDateStart().after(to)));
+    }
+
+    @Test
+    void chefFilterKeepsPaging() {
+        EventFilter filter = EventFilter.forChef(antonio.getId());
+        filter.setFrom(Date.valueOf(FIRST_DAY));
+        Page<EventSummary> firstPage = EventDAO.loadSummaries(filter, null, 20);
+        Page<EventSummary> secondPage = EventDAO.loadSummaries(filter, firstPage.getNextToken(), 20);
+        List<EventSummary> first = firstPage.getItems();
+        List<EventSummary> second = secondPage.getItems();
+
+        assertEquals(20, first.size());
+        assertEquals(EVENTS / 2 - 20, second.size());
+        assertFalse(secondPage.hasNext());
+        assertTrue(first.stream().allMatch(s -> s.getChefId() == antonio.getId()));
+        assertTrue(second.stream().allMatch(s -> s.getChefId() == antonio.getId()));
+    }
+
+    @Test
+    void seedEventsStoredAsTextAreListed() {
+        EventSummary gala = EventDAO.loadSummaries(
+            EventFilter.between(Date.valueOf("2025-06-01"), Date.valueOf("2025-06-30")), null, 10).getItems().stream()
+            .filter(s -> s.getName().equals("Gala Aziendale Annuale"))
+            .findFirst().orElseThrow();
+
+        assertEquals("Antonio Neri", gala.getChefName());
+        assertEquals(2, gala.getServiceCount());
+        assertNotNull(gala.getDateEnd());
+    }
+
+    @Test
+    void boundaryDaysMatchInEveryTimeZone() {
+        // Stored as text like the seed data; a UTC key would move it across the bound west of UTC
+        int id = PersistenceManager.executeInsert("INSERT INTO Events (name, date_start, date_end, chef_id) VALUES (?, ?, ?, ?)",
+            "Boundary event", "2031-02-10", "2031-02-11", giovanni.getId());
+        Date day = Date.valueOf("2031-02-10");
+
+        List<EventSummary> listed = EventDAO.loadSummaries(EventFilter.between(day, day), null, 10).getItems();
+
+        assertEquals(List.of(id), listed.stream().map(EventSummary::getId).collect(Collectors.toList()));
+        assertEquals(day, listed.get(0).getDateStart());
+        assertEquals(Date.valueOf("2031-02-11"), listed.get(0).getDateEnd());
+        assertEquals(day, EventDAO.loadById(id).getDateStart());
+        assertTrue(EventDAO.loadSummaries(EventFilter.between(Date.valueOf("2031-02-11"), Date.valueOf("2031-02-12")), null, 10)
+            .getItems().isEmpty());
+    }
+
+    @Test
+    void savedServicesReadBackTheirDayAndTimes() {
+        Event event = created.get(3);
+        Service service = new Service("Round trip", event.getDateStart(), Time.valueOf("12:30:00"), Time.valueOf("15:00:00"),
+            "Sala", event.getId());
+        ServiceDAO.save(service);
+
+        Service loaded = ServiceDAO.loadById(service.getId());
+        assertEquals(event.getDateStart(), loaded.getDate());
+        assertEquals(Time.valueOf("12:30:00"), loaded.getTimeStart());
+        assertEquals(Time.valueOf("15:00:00"), loaded.getTimeEnd());
+    }
+}
@@ -0,0 +1,162 @@
+package catering.domains.event;
+
+import catering.domains.event.domain.Service;
+import catering.domains.event.infrastructure.ServiceDAO;
+import catering.domains.menu.domain.Menu;
+import catering.domains.menu.infrastructure.MenuDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.TestDatabase;
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceMenuLoadingTest {
+    private static final Logger LOGGER = LogManager.getLogger(ServiceMenuLoadingTest.class);
+
+    private static final int SERVICES = 8;
+
+    private static final List<Integer> serviceIds = new ArrayList<>();
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(ServiceMenuLoadingTest.class);
+
+        StaffMember chef = StaffMemberDAO.loadByEmail("antonio.neri@example.com");
+        Service template = ServiceDAO.loadByName("Pranzo Buffet Aziendale");
+        for (int i = 0; i < SERVICES; i++) {
+            Menu menu = new Menu(chef, "Lazy menu " + i);
+            menu.addSection("Section " + i);
+            MenuDAO.create(menu);
+
+            Service service = new Service("Lazy service " + i);
+            service.setEventId(template.getEventId());
+            service.setDate(template.getDate());
+            service.setTimeStart(template.getTimeStart());
+            service.setTimeEnd(template.getTimeEnd());
+            service.setLocation("Sala " + i);
+            ServiceDAO.save(service);
+            ServiceDAO.assignMenu(service, menu);
+            serviceIds.add(service.getId());
+        }
+    }
+
+    @Test
+    void menuIsLoadedOnFirstAccess() {
+        Service service = ServiceDAO.loadByName("Pranzo Buffet Aziendale");
+        assertFalse(service.isMenuLoaded());
+        assertEquals(1, service.getMenuId());
+
+        long before = statementCount();
+        service.getMenuId();
+        service.toString();
+        assertEquals(before, statementCount(), "the menu id is known without loading the menu");
+
+        Menu menu = service.getMenu();
+        assertTrue(service.isMenuLoaded());
+        assertTrue(statementCount() > before);
+        assertEquals(1, menu.getId());
+        assertFalse(service.getMenuItems().isEmpty());
+
+        before = statementCount();
+        assertSame(menu, service.getMenu());
+        assertEquals(before, statementCount());
+    }
+
+    @Test
+    void serviceWithoutMenuNeverLoads() {
+        Service service = ServiceDAO.loadByName("Cena di Gala");
+        assertTrue(service.isMenuLoaded());
+        assertNull(service.getMenu());
+        assertEquals(0, service.getMenuId());
+        assertTrue(service.getMenuItems().isEmpty());
+    }
+
+    @Test
+    void prefetchLoadsEveryMenuInOneBatch() {
+        List<Service> services = new ArrayList<>();
+        for (int id : serviceIds) {
+            services.add(ServiceDAO.loadById(id));
+        }
+
+        long before = statementCount();
+        ServiceDAO.prefetchMenus(services);
+        long prefetch = statementCount() - before;
+
+        before = statementCount();
+        for (int i = 0; i < SERVICES; i++) {
+            Service service = services.get(i);
+            assertTrue(service.isMenuLoaded());
+            assertEquals("Lazy menu " + i, service.getMenu().getTitle());
+        }
+        assertEquals(before, statementCount(), "prefetched menus should not touch the database again");
+
+        LOGGER.info(SERVICES + " menus prefetched with " + prefetch + " queries");
+        // Menus, owners, sections, items, features; no recipes to load
+        assertTrue(prefetch <= 6, "expected a fixed number of queries, got " + prefetch);
+    }
+
+    @Test
+    void prefetchedMenusBypassTheLoader() {
+        AtomicInteger calls = new AtomicInteger();
+        Service service = unsavedService(1, calls);
+
+        ServiceDAO.prefetchMenus(List.of(service));
+        assertTrue(service.isMenuLoaded());
+        assertEquals(1, service.getMenu().getId());
+        assertEquals(0, calls.get(), "the menu came from the batch, not from the loader");
+    }
+
+    @Test
+    void savedAndUnsavedCopiesAgreeOnEqualityAndHash() {
+        Service saved = ServiceDAO.loadById(serviceIds.get(0));
+        Service copy = new Service(saved.getName());
+        copy.setDate(saved.getDate());
+        copy.setTimeStart(saved.getTimeStart());
+        copy.setTimeEnd(saved.getTimeEnd());
+        copy.setLocation(saved.getLocation());
+        copy.setMenuReference(saved.getMenuId(), MenuDAO::load);
+
+        assertEquals(saved, copy);
+        assertEquals(saved.hashCode(), copy.hashCode());
+
+        Service renamed = ServiceDAO.loadById(serviceIds.get(0));
+        renamed.setName("Renamed service");
+        assertNotEquals(saved, renamed, "a stale copy with the same id is not the same service");
+        assertNotEquals(saved, ServiceDAO.loadById(serviceIds.get(1)));
+    }
+
+    @Test
+    void comparingServicesDoesNotLoadTheirMenus() {
+        AtomicInteger calls = new AtomicInteger();
+        Service first = unsavedService(7, calls);
+        Service twin = unsavedService(7, calls);
+        Service other = unsavedService(8, calls);
+
+        assertEquals(first, twin);
+        assertEquals(first.hashCode(), twin.hashCode());
+        assertNotEquals(first, other);
+        assertEquals(0, calls.get(), "no menu was loaded");
+    }
+
+
+    // HELPERS
+
+    private static Service unsavedService(int menuId, AtomicInteger loads) {
+        Service service = new Service("Unsaved service");
+        service.setLocation("Sala");
+        service.setMenuReference(menuId, id -> {
+            loads.incrementAndGet();
+            return MenuDAO.load(id);
+        });
+        return service;
+    }
+}
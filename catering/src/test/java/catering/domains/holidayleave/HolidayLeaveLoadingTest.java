@@ -0,0 +1,130 @@
+package catering.domains.holidayleave;
+
+import catering.domains.holidayleave.domain.HolidayLeave;
+import catering.domains.holidayleave.domain.HolidayLeave.RequestStatus;
+import catering.domains.holidayleave.domain.HolidayLeaveFilter;
+import catering.domains.holidayleave.infrastructure.HolidayLeaveDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HolidayLeaveLoadingTest {
+    private static final Logger LOGGER = LogManager.getLogger(HolidayLeaveLoadingTest.class);
+
+    private static final int LEAVES = 300;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2032, 1, 1);
+
+    private static List<StaffMember> staff;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(HolidayLeaveLoadingTest.class);
+        staff = StaffMemberDAO.loadAll();
+
+        RequestStatus[] statuses = RequestStatus.values();
+        for (int i = 0; i < LEAVES; i++) {
+            // One week each, a day apart
+            LocalDate start = FIRST_DAY.plusDays(i);
+            HolidayLeaveDAO.save(new HolidayLeave(staff.get(i % staff.size()),
+                Date.valueOf(start), Date.valueOf(start.plusDays(6)), statuses[i % statuses.length]));
+        }
+    }
+
+    @Test
+    void leavesLoadWithTwoQueriesWhateverTheirNumber() {
+        long before = statementCount();
+        List<HolidayLeave> leaves = HolidayLeaveDAO.loadAll();
+        long queries = statementCount() - before;
+        LOGGER.info(leaves.size() + " leaves loaded with " + queries + " queries");
+
+        // Leaves, requesters
+        assertEquals(2, queries);
+        assertTrue(leaves.size() >= LEAVES);
+        assertTrue(leaves.stream().allMatch(l -> l.getStaffMember() != null && l.getStaffMember().getEmail() != null));
+    }
+
+    @Test
+    void pendingLeavesAreFilteredByStatus() {
+        long before = statementCount();
+        List<HolidayLeave> pending = HolidayLeaveDAO.loadByStatus(RequestStatus.IN_ATTESA);
+        assertEquals(2, statementCount() - before);
+
+        // Ours plus the three pending in the seed data
+        assertEquals(LEAVES / 3 + 3, pending.size());
+        assertTrue(pending.stream().allMatch(HolidayLeave::isPending));
+        for (int i = 1; i < pending.size(); i++) {
+            assertFalse(pending.get(i).getStartDate().before(pending.get(i - 1).getStartDate()), "by start date");
+        }
+    }
+
+    @Test
+    void periodFilterKeepsOverlappingLeaves() {
+        Date from = Date.valueOf(FIRST_DAY.plusDays(100));
+        Date to = Date.valueOf(FIRST_DAY.plusDays(101));
+        List<HolidayLeave> leaves = HolidayLeaveDAO.loadByFilter(HolidayLeaveFilter.overlapping(from, to));
+
+        // Started from six days before the period up to its last day
+        assertEquals(8, leaves.size());
+        assertTrue(leaves.stream().allMatch(l -> !l.getEndDate().before(from) && !l.getStartDate().after(to)));
+
+        HolidayLeaveFilter filter = HolidayLeaveFilter.overlapping(from, to);
+        filter.setStatus(RequestStatus.ACCETTATA);
+        assertTrue(HolidayLeaveDAO.loadByFilter(filter).stream().allMatch(l -> l.getStatus() == RequestStatus.ACCETTATA));
+    }
+
+    @Test
+    void seedLeavesStoredAsTextAreRead() {
+        List<HolidayLeave> leaves = HolidayLeaveDAO.loadByFilter(
+            HolidayLeaveFilter.overlapping(Date.valueOf("2025-08-05"), Date.valueOf("2025-08-05")));
+
+        assertEquals(1, leaves.size());
+        assertEquals(Date.valueOf("2025-08-01"), leaves.get(0).getStartDate());
+        assertEquals(Date.valueOf("2025-08-10"), leaves.get(0).getEndDate());
+        assertEquals(RequestStatus.ACCETTATA, leaves.get(0).getStatus());
+    }
+
+    @Test
+    void boundaryDaysMatchInEveryTimeZone() {
+        // Stored as text like the seed data; a UTC key would move it across the bounds away from UTC
+        int id = PersistenceManager.executeInsert(
+            "INSERT INTO HolidayLeave (staff_member_id, start_date, end_date, status) VALUES (?, ?, ?, ?)",
+            staff.get(0).getId(), "2033-03-10", "2033-03-12", RequestStatus.IN_ATTESA.name());
+
+        assertEquals(List.of(id), idsOverlapping("2033-03-12", "2033-03-20"));
+        assertEquals(List.of(id), idsOverlapping("2033-03-01", "2033-03-10"));
+        assertTrue(idsOverlapping("2033-03-13", "2033-03-20").isEmpty());
+        assertTrue(idsOverlapping("2033-03-01", "2033-03-09").isEmpty());
+        assertEquals(Date.valueOf("2033-03-10"), HolidayLeaveDAO.loadById(id).getStartDate());
+    }
+
+    @Test
+    void leavesOfAStaffMemberShareTheirRequester() {
+        StaffMember requester = staff.get(0);
+        List<HolidayLeave> leaves = HolidayLeaveDAO.loadByStaffMember(requester);
+
+        assertFalse(leaves.isEmpty());
+        assertTrue(leaves.stream().allMatch(l -> l.getStaffMember() == requester));
+    }
+
+
+    // HELPERS
+
+    private static List<Integer> idsOverlapping(String from, String to) {
+        return HolidayLeaveDAO.loadByFilter(HolidayLeaveFilter.overlapping(Date.valueOf(from), Date.valueOf(to))).stream()
+            .map(HolidayLeave::getId)
+            .collect(Collectors.toList());
+    }
+}
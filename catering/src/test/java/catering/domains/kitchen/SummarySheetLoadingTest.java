@@ -0,0 +1,202 @@
+package catering.domains.kitchen;
+
+import catering.domains.event.domain.Service;
+import catering.domains.event.infrastructure.ServiceDAO;
+import catering.domains.kitchen.domain.Assignment;
+import catering.domains.kitchen.domain.KitchenTask;
+import catering.domains.kitchen.domain.SummarySheet;
+import catering.domains.kitchen.domain.SummarySheetHeader;
+import catering.domains.kitchen.infrastructure.SummarySheetDAO;
+import catering.domains.shift.domain.Shift;
+import catering.domains.shift.infrastructure.ShiftDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SummarySheetLoadingTest {
+    private static final Logger LOGGER = LogManager.getLogger(SummarySheetLoadingTest.class);
+
+    private static final int SHEETS = 6;
+    private static final int BIG_SHEET_ASSIGNMENTS = 60;
+
+    private static StaffMember chef;
+    private static final List<SummarySheet> created = new ArrayList<>();
+    private static SummarySheet bigSheet;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(SummarySheetLoadingTest.class);
+        chef = StaffMemberDAO.loadByEmail("antonio.neri@example.com");
+        StaffMember cook = StaffMemberDAO.loadByEmail("luca.verdi@example.com");
+        Service service = ServiceDAO.loadByName("Pranzo Buffet Aziendale");
+
+        Shift shift = createShift("2030-01-10");
+
+        for (int i = 0; i < SHEETS; i++) {
+            SummarySheet sheet = new SummarySheet(service, chef);
+            for (int a = 0; a <= i % 3; a++) {
+                sheet.addAssignment(sheet.getTasks().get(a), shift, cook);
+            }
+            SummarySheetDAO.save(sheet);
+            created.add(sheet);
+        }
+
+        // Owned by someone else, so the listings above don't see it
+        StaffMember otherChef = StaffMemberDAO.loadByEmail("giovanni.ricci@example.com");
+        List<StaffMember> cooks = List.of(cook, chef, otherChef);
+        List<Shift> shifts = new ArrayList<>();
+        for (int d = 11; d < 16; d++) {
+            Shift s = createShift("2030-01-" + d);
+            for (StaffMember c : cooks) {
+                ShiftDAO.addBooking(s, c);
+            }
+            shifts.add(s);
+        }
+        bigSheet = new SummarySheet(service, otherChef);
+        for (int a = 0; a < BIG_SHEET_ASSIGNMENTS; a++) {
+            bigSheet.addAssignment(bigSheet.getTasks().get(a % bigSheet.getTasks().size()),
+                shifts.get(a % shifts.size()), cooks.get(a % cooks.size()));
+        }
+        SummarySheetDAO.save(bigSheet);
+    }
+
+    @Test
+    void headersAreOneQuery() {
+        long before = statementCount();
+        List<SummarySheetHeader> headers = SummarySheetDAO.loadHeadersByOwnerId(chef.getId());
+        assertEquals(1, statementCount() - before);
+
+        assertEquals(SHEETS, headers.size());
+        for (int i = 0; i < SHEETS; i++) {
+            SummarySheetHeader header = headers.get(i);
+            SummarySheet sheet = created.get(i);
+            assertEquals(sheet.getId(), header.getId());
+            assertEquals("Pranzo Buffet Aziendale", header.getServiceName());
+            assertEquals("Antonio Neri", header.getOwnerName());
+            assertEquals(sheet.getTasks().size(), header.getTaskCount());
+            assertEquals(i % 3 + 1, header.getAssignmentCount());
+        }
+    }
+
+    @Test
+    void tasksAndAssignmentsLoadOnFirstAccess() {
+        SummarySheet sheet = SummarySheetDAO.loadById(created.get(2).getId());
+        assertFalse(sheet.isTasksLoaded());
+        assertFalse(sheet.isAssignmentsLoaded());
+        assertEquals(created.get(2).getOwner(), sheet.getOwner());
+        assertNotNull(sheet.toString());
+
+        List<KitchenTask> tasks = sheet.getTasks();
+        assertTrue(sheet.isTasksLoaded());
+        assertFalse(sheet.isAssignmentsLoaded());
+        assertEquals(created.get(2).getTasks().size(), tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(created.get(2).getTasks().get(i).getId(), tasks.get(i).getId());
+        }
+
+        assertEquals(3, sheet.getAssignments().size());
+        assertEquals("luca.verdi@example.com", sheet.getAssignments().get(0).getCook().getEmail());
+    }
+
+    @Test
+    void listingSheetsDoesNotLoadTheirContent() {
+        long before = statementCount();
+        List<SummarySheet> sheets = SummarySheetDAO.loadAll();
+        long listing = statementCount() - before;
+
+        // Sheets, services, owners
+        assertEquals(3, listing);
+        assertTrue(sheets.stream().noneMatch(SummarySheet::isTasksLoaded));
+    }
+
+    @Test
+    void assignmentsCostTheSameQueriesWhateverTheirNumber() {
+        SummarySheet small = SummarySheetDAO.loadById(created.get(0).getId());
+        SummarySheet big = SummarySheetDAO.loadById(bigSheet.getId());
+        small.getTasks();
+        big.getTasks();
+
+        long before = statementCount();
+        small.getAssignments();
+        long smallQueries = statementCount() - before;
+
+        before = statementCount();
+        List<Assignment> assignments = big.getAssignments();
+        long bigQueries = statementCount() - before;
+
+        LOGGER.info(BIG_SHEET_ASSIGNMENTS + " assignments loaded with " + bigQueries + " queries");
+        assertEquals(BIG_SHEET_ASSIGNMENTS, assignments.size());
+        // Assignments, shifts, bookings, booked staff members
+        assertEquals(4, bigQueries);
+        assertEquals(smallQueries, bigQueries);
+    }
+
+    @Test
+    void assignmentsReferToTheTasksOfTheirSheet() {
+        SummarySheet sheet = SummarySheetDAO.loadById(bigSheet.getId());
+        List<Assignment> assignments = sheet.getAssignments();
+
+        for (int a = 0; a < BIG_SHEET_ASSIGNMENTS; a++) {
+            Assignment expected = bigSheet.getAssignments().get(a);
+            Assignment actual = assignments.get(a);
+            assertSame(sheet.getTasks().get(a % sheet.getTasks().size()), actual.getTask());
+            assertEquals(expected.getShift().getId(), actual.getShift().getId());
+            assertEquals(3, actual.getShift().getBookedStaffMembers().size());
+            assertEquals(expected.getCook().getEmail(), actual.getCook().getEmail());
+            // Loaded once: the cook is the same instance as the booking on the shift
+            assertSame(actual.getShift().getBookedStaffMembers().get(actual.getCook().getId()), actual.getCook());
+        }
+    }
+
+    @Test
+    void prefetchLoadsEverySheetInOneBatch() {
+        List<SummarySheet> sheets = SummarySheetDAO.loadAll();
+
+        long before = statementCount();
+        SummarySheetDAO.prefetch(sheets);
+        long prefetch = statementCount() - before;
+        LOGGER.info(sheets.size() + " sheets prefetched with " + prefetch + " queries");
+        // Tasks, recipes, assignments, shifts, bookings, booked staff members
+        assertTrue(prefetch <= 6, "expected a fixed number of queries, got " + prefetch);
+
+        before = statementCount();
+        for (SummarySheet sheet : sheets) {
+            assertTrue(sheet.isTasksLoaded());
+            assertTrue(sheet.isAssignmentsLoaded());
+            sheet.getTasks();
+            sheet.getAssignments();
+        }
+        assertEquals(before, statementCount(), "prefetched sheets should not touch the database again");
+
+        for (int i = 0; i < SHEETS; i++) {
+            SummarySheet expected = created.get(i);
+            SummarySheet actual = sheets.stream().filter(s -> s.getId() == expected.getId()).findFirst().orElseThrow();
+            assertEquals(expected.getTasks().size(), actual.getTasks().size());
+            assertEquals(expected.getAssignments().size(), actual.getAssignments().size());
+        }
+    }
+
+
+    // HELPERS
+
+    // Same text format as the seed data, which is what ShiftDAO reads back
+    private static Shift createShift(String date) {
+        Shift shift = new Shift(Date.valueOf(date), Time.valueOf("09:00:00"), Time.valueOf("14:00:00"));
+        shift.setId(PersistenceManager.executeInsert("INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)",
+            date, "09:00:00", "14:00:00"));
+        return shift;
+    }
+}
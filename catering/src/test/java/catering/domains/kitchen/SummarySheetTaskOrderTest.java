@@ -0,0 +1,171 @@
+package catering.domains.kitchen;
+
+import catering.domains.kitchen.domain.KitchenTask;
+import catering.domains.kitchen.domain.SummarySheet;
+import catering.domains.recipe.domain.Preparation;
+import catering.exceptions.UseCaseLogicException;
+import catering.utils.IndexedList;
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SummarySheetTaskOrderTest {
+    private static final Logger LOGGER = LogManager.getLogger(SummarySheetTaskOrderTest.class);
+
+    private static final int TASKS = 500;
+
+    @BeforeAll
+    static void init() {
+        LOGGER.info("Starting test: SummarySheetTaskOrderTest");
+    }
+
+    @Test
+    void positionsAndMovesFollowTheList() throws UseCaseLogicException {
+        SummarySheet sheet = sheetWithTasks(TASKS);
+        List<KitchenTask> expected = new ArrayList<>(sheet.getTasks());
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            KitchenTask task = expected.get(random.nextInt(TASKS));
+            int target = random.nextInt(TASKS);
+            sheet.moveTask(task, target);
+            expected.remove(task);
+            expected.add(target, task);
+
+            assertEquals(target, sheet.getTaskPosition(task));
+            KitchenTask probe = expected.get(random.nextInt(TASKS));
+            assertEquals(expected.indexOf(probe), sheet.getTaskPosition(probe));
+        }
+
+        assertEquals(expected, sheet.getTasks());
+        assertSame(expected.get(7), sheet.setTaskReady(expected.get(7)));
+    }
+
+    @Test
+    void tasksAreMatchedByIdentity() {
+        Preparation prep = new Preparation("Brodo");
+        KitchenTask first = new KitchenTask(prep, "Same description");
+        KitchenTask twin = new KitchenTask(prep, "Same description");
+        assertEquals(first, twin, "equal by value");
+
+        SummarySheet sheet = sheetWithTasks(3);
+        sheet.addTask(first);
+        sheet.addTask(twin);
+
+        assertEquals(3, sheet.getTaskPosition(first));
+        assertEquals(4, sheet.getTaskPosition(twin));
+        sheet.moveTask(twin, 0);
+        assertEquals(0, sheet.getTaskPosition(twin));
+        assertEquals(4, sheet.getTaskPosition(first));
+
+        KitchenTask stranger = new KitchenTask(prep, "Same description");
+        assertEquals(-1, sheet.getTaskPosition(stranger));
+        assertThrows(UseCaseLogicException.class, () -> sheet.setTaskReady(stranger));
+    }
+
+    @Test
+    void indexedListBehavesLikeAList() {
+        IndexedList<Object> list = new IndexedList<>();
+        List<Object> reference = new ArrayList<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 5000; i++) {
+            int op = random.nextInt(4);
+            if (op < 2 || reference.isEmpty()) {
+                Object element = new Object();
+                int index = random.nextInt(reference.size() + 1);
+                list.add(index, element);
+                reference.add(index, element);
+            } else if (op == 2) {
+                int index = random.nextInt(reference.size());
+                assertSame(reference.remove(index), list.remove(index));
+            } else {
+                Object element = reference.get(random.nextInt(reference.size()));
+                assertTrue(list.remove(element));
+                reference.remove(element);
+            }
+        }
+
+        assertEquals(reference.size(), list.size());
+        Iterator<Object> it = list.iterator();
+        for (int i = 0; i < reference.size(); i++) {
+            assertSame(reference.get(i), list.get(i));
+            assertSame(reference.get(i), it.next());
+            assertEquals(i, list.indexOf(reference.get(i)));
+            assertTrue(list.contains(reference.get(i)));
+        }
+        assertFalse(list.contains(new Object()));
+    }
+
+    @Test
+    void anElementIsListedOnce() {
+        IndexedList<String> list = new IndexedList<>(List.of("a", "b"));
+        String a = list.get(0);
+
+        assertThrows(IllegalArgumentException.class, () -> list.add(a));
+        assertEquals("a", list.set(0, a));
+        assertEquals(List.of("a", "b"), list);
+
+        assertEquals("b", list.set(1, a), "a listed element swaps places");
+        assertEquals(List.of("b", "a"), list);
+        assertEquals(1, list.indexOf(a));
+        assertThrows(IllegalArgumentException.class, () -> list.replaceAll(s -> a));
+    }
+
+    @Test
+    void listAlgorithmsWorkOnTheTasks() {
+        SummarySheet sheet = sheetWithTasks(40);
+        List<KitchenTask> tasks = sheet.getTasks();
+        List<KitchenTask> expected = new ArrayList<>(tasks);
+
+        Collections.swap(tasks, 3, 17);
+        Collections.swap(expected, 3, 17);
+        assertOrder(expected, sheet);
+
+        Collections.reverse(tasks);
+        Collections.reverse(expected);
+        assertOrder(expected, sheet);
+
+        Collections.shuffle(tasks, new Random(3));
+        Collections.shuffle(expected, new Random(3));
+        assertOrder(expected, sheet);
+
+        Comparator<KitchenTask> byDescription = Comparator.comparing(KitchenTask::getDescription);
+        tasks.sort(byDescription);
+        expected.sort(byDescription);
+        assertOrder(expected, sheet);
+
+        tasks.replaceAll(task -> task);
+        assertOrder(expected, sheet);
+    }
+
+
+    // HELPERS
+
+    private static void assertOrder(List<KitchenTask> expected, SummarySheet sheet) {
+        assertEquals(expected, sheet.getTasks());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, sheet.getTaskPosition(expected.get(i)));
+        }
+    }
+
+    private static SummarySheet sheetWithTasks(int count) {
+        SummarySheet sheet = new SummarySheet();
+        sheet.setTasks(new ArrayList<>());
+        sheet.setAssignments(new ArrayList<>());
+        for (int i = 0; i < count; i++) {
+            sheet.addTask(new KitchenTask(new Preparation("Preparation " + i), "Task " + i));
+        }
+        return sheet;
+    }
+}
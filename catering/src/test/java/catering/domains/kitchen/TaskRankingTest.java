@@ -0,0 +1,142 @@
+package catering.domains.kitchen;
+
+import catering.app.CatERing;
+import catering.domains.event.domain.Event;
+import catering.domains.event.domain.Service;
+import catering.domains.event.infrastructure.EventDAO;
+import catering.domains.event.infrastructure.ServiceDAO;
+import catering.domains.kitchen.domain.KitchenTask;
+import catering.domains.kitchen.domain.KitchenTaskManager;
+import catering.domains.kitchen.domain.SummarySheet;
+import catering.domains.kitchen.infrastructure.KitchenTaskDAO;
+import catering.domains.kitchen.infrastructure.SummarySheetDAO;
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.infrastructure.PreparationDAO;
+import catering.exceptions.UseCaseLogicException;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskRankingTest {
+    private static KitchenTaskManager manager;
+    private static Event event;
+    private static Service service;
+
+    private SummarySheet sheet;
+
+    @BeforeAll
+    static void init() throws UseCaseLogicException {
+        TestDatabase.initialize(TaskRankingTest.class);
+        CatERing.getInstance().getStaffMemberManager().fakeLogin("antonio.neri@example.com");
+        manager = CatERing.getInstance().getKitchenTaskManager();
+        event = EventDAO.loadByName("Gala Aziendale Annuale");
+        service = ServiceDAO.loadByName("Pranzo Buffet Aziendale");
+    }
+
+    @BeforeEach
+    void setup() throws UseCaseLogicException {
+        sheet = manager.generateSummarySheet(event, service);
+        for (Preparation prep : PreparationDAO.loadAllPreparations().subList(0, 4)) {
+            manager.addKitchenTask(new KitchenTask(prep, "Extra " + prep.getName()));
+        }
+        assertTrue(sheet.getTaskListSize() >= 5);
+    }
+
+    @Test
+    void aMoveWritesOneRow() throws UseCaseLogicException {
+        KitchenTask last = sheet.getTasks().get(sheet.getTaskListSize() - 1);
+        KitchenTask middle = sheet.getTasks().get(2);
+
+        assertEquals(Set.of(last.getId()), rowsWrittenBy(() -> manager.moveTask(last, 0)));
+        assertEquals(Set.of(middle.getId()), rowsWrittenBy(() -> manager.moveTask(middle, sheet.getTaskListSize() - 1)));
+        assertEquals(Set.of(last.getId()), rowsWrittenBy(() -> manager.moveTask(last, 1)));
+
+        long before = statementCount();
+        manager.moveTask(middle, 3);
+        assertEquals(1, statementCount() - before, "a single update");
+
+        assertEquals(ids(sheet.getTasks()), storedOrder());
+    }
+
+    @Test
+    void theSheetIsRenumberedWhenAGapRunsOut() throws UseCaseLogicException {
+        int renumbered = 0;
+        for (int i = 0; i < 40; i++) {
+            // Always into the same, halving gap
+            KitchenTask last = sheet.getTasks().get(sheet.getTaskListSize() - 1);
+            if (rowsWrittenBy(() -> manager.moveTask(last, 1)).size() > 1) {
+                renumbered++;
+            }
+            assertEquals(ids(sheet.getTasks()), storedOrder());
+        }
+
+        assertTrue(renumbered > 0, "the gap was used up");
+        assertTrue(renumbered < 5, "but only now and then: " + renumbered);
+    }
+
+    @Test
+    void addedTasksAreRankedInPlace() throws UseCaseLogicException {
+        manager.moveTask(sheet.getTasks().get(0), sheet.getTaskListSize() - 1);
+        KitchenTask added = new KitchenTask(PreparationDAO.loadAllPreparations().get(5), "Added last");
+        manager.addKitchenTask(added);
+
+        List<KitchenTask> reloaded = SummarySheetDAO.loadById(sheet.getId()).getTasks();
+        assertEquals(ids(sheet.getTasks()), ids(reloaded));
+        for (int i = 1; i < reloaded.size(); i++) {
+            assertTrue(reloaded.get(i - 1).getRank() < reloaded.get(i).getRank(), "ranks are distinct and ordered");
+        }
+    }
+
+    @Test
+    void newSheetsAreRankedApart() {
+        List<KitchenTask> tasks = KitchenTaskDAO.loadAllBySummarySheetId(sheet.getId());
+        assertEquals(KitchenTaskDAO.RANK_GAP, tasks.get(1).getRank() - tasks.get(0).getRank());
+    }
+
+
+    // HELPERS
+
+    private interface Move {
+        void run() throws UseCaseLogicException;
+    }
+
+    // Ids of the tasks whose stored position the move changed
+    private Set<Integer> rowsWrittenBy(Move move) throws UseCaseLogicException {
+        Map<Integer, Long> before = storedRanks();
+        move.run();
+        Map<Integer, Long> after = storedRanks();
+        return after.keySet().stream()
+            .filter(id -> !after.get(id).equals(before.get(id)))
+            .collect(Collectors.toSet());
+    }
+
+    private Map<Integer, Long> storedRanks() {
+        Map<Integer, Long> ranks = new HashMap<>();
+        PersistenceManager.executeQuery("SELECT id, position FROM Tasks WHERE sumsheet_id = ?",
+            rs -> ranks.put(rs.getInt("id"), rs.getLong("position")), sheet.getId());
+        return ranks;
+    }
+
+    private List<Integer> storedOrder() {
+        List<Integer> ids = new ArrayList<>();
+        PersistenceManager.executeQuery("SELECT id FROM Tasks WHERE sumsheet_id = ? ORDER BY position, id",
+            rs -> ids.add(rs.getInt("id")), sheet.getId());
+        return ids;
+    }
+
+    private static List<Integer> ids(List<KitchenTask> tasks) {
+        return tasks.stream().map(KitchenTask::getId).collect(Collectors.toList());
+    }
+}
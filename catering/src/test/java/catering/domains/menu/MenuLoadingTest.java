@@ -0,0 +1,106 @@
+package catering.domains.menu;
+
+import catering.domains.menu.domain.Menu;
+import catering.domains.menu.domain.MenuItem;
+import catering.domains.menu.domain.Section;
+import catering.domains.menu.infrastructure.MenuDAO;
+import catering.domains.recipe.domain.Recipe;
+import catering.domains.recipe.infrastructure.RecipeCache;
+import catering.domains.recipe.infrastructure.RecipeDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.TestDatabase;
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MenuLoadingTest {
+    private static final Logger LOGGER = LogManager.getLogger(MenuLoadingTest.class);
+
+    private static final int SECTIONS = 10;
+    private static final int ITEMS_PER_SECTION = 6;
+
+    private static Menu menu;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(MenuLoadingTest.class);
+
+        StaffMember chef = StaffMemberDAO.loadByEmail("antonio.neri@example.com");
+        List<Recipe> recipes = RecipeDAO.loadAllRecipes();
+
+        menu = new Menu(chef, "Graph loading test");
+        for (int s = 0; s < SECTIONS; s++) {
+            Section section = menu.addSection("Section " + s);
+            for (int i = 0; i < ITEMS_PER_SECTION; i++) {
+                Recipe recipe = recipes.get((s * ITEMS_PER_SECTION + i) % recipes.size());
+                menu.addItem(recipe, section, "Item " + s + "." + i);
+            }
+        }
+        menu.addItem(recipes.get(0), null, "Free item");
+        menu.setFeature(Menu.Feature.BUFFET, true);
+        MenuDAO.create(menu);
+    }
+
+    @Test
+    void loadsTheWholeGraphInAFixedNumberOfQueries() {
+        RecipeCache.clear();
+
+        long before = statementCount();
+        Menu loaded = MenuDAO.load(menu.getId());
+        long cold = statementCount() - before;
+
+        before = statementCount();
+        MenuDAO.load(menu.getId());
+        long warm = statementCount() - before;
+
+        LOGGER.info("Menu with " + SECTIONS * ITEMS_PER_SECTION + " items loaded with " + cold + " queries, "
+            + warm + " with cached recipes");
+        // Menu, owner, sections, items, recipes, features
+        assertEquals(6, cold);
+        assertEquals(5, warm);
+        assertEquals(SECTIONS, loaded.getSections().size());
+    }
+
+    @Test
+    void stitchesTheSameGraphThatWasSaved() {
+        Menu loaded = MenuDAO.load(menu.getId());
+
+        assertEquals(menu.getTitle(), loaded.getTitle());
+        assertEquals(menu.getOwner().getId(), loaded.getOwner().getId());
+        assertFalse(loaded.isInUse());
+        assertTrue(loaded.getFeature(Menu.Feature.BUFFET));
+        assertFalse(loaded.getFeature(Menu.Feature.FINGER_FOOD));
+
+        for (int s = 0; s < SECTIONS; s++) {
+            Section expected = menu.getSections().get(s);
+            Section actual = loaded.getSections().get(s);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(ITEMS_PER_SECTION, actual.getMenuItems().size());
+
+            for (int i = 0; i < ITEMS_PER_SECTION; i++) {
+                MenuItem expectedItem = expected.getMenuItems().get(i);
+                MenuItem actualItem = actual.getMenuItems().get(i);
+                assertEquals(expectedItem.getDescription(), actualItem.getDescription());
+
+                Recipe recipe = actualItem.getRecipe();
+                assertEquals(expectedItem.getRecipe().getId(), recipe.getId());
+                assertEquals(RecipeDAO.loadRecipeById(recipe.getId()).getPreparations(), recipe.getPreparations());
+            }
+        }
+        assertEquals(1, loaded.getFreeItems().size());
+        assertEquals("Free item", loaded.getFreeItems().get(0).getDescription());
+    }
+
+    @Test
+    void missingMenuIsEmpty() {
+        assertEquals(0, MenuDAO.load(-1).getId());
+    }
+}
@@ -0,0 +1,101 @@
+package catering.domains.recipe;
+
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+import catering.domains.recipe.infrastructure.PreparationDAO;
+import catering.domains.recipe.infrastructure.RecipeCache;
+import catering.domains.recipe.infrastructure.RecipeDAO;
+import catering.persistence.CacheStats;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecipeCacheTest {
+    private Recipe recipe;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(RecipeCacheTest.class);
+    }
+
+    @BeforeEach
+    void setup() {
+        recipe = RecipeDAO.loadAllRecipes().stream()
+            .filter(r -> !r.getPreparations().isEmpty())
+            .findFirst().orElseThrow();
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromMemory() {
+        RecipeDAO.loadRecipeById(recipe.getId());
+        CacheStats before = RecipeCache.getRecipeStats();
+        long statements = statementCount();
+
+        Recipe first = RecipeDAO.loadRecipeById(recipe.getId());
+        Recipe second = RecipeDAO.loadRecipeById(recipe.getId());
+
+        assertEquals(statements, statementCount(), "cached recipes should not touch the database");
+        assertEquals(before.getHits() + 2, RecipeCache.getRecipeStats().getHits());
+        assertEquals(recipe.getPreparations(), first.getPreparations());
+        assertNotSame(first, second, "every caller gets its own copy");
+
+        first.setName("Changed locally");
+        first.removePreparation(first.getPreparations().get(0));
+        Recipe third = RecipeDAO.loadRecipeById(recipe.getId());
+        assertEquals(recipe.getName(), third.getName());
+        assertEquals(recipe.getPreparations().size(), third.getPreparations().size());
+    }
+
+    @Test
+    void updateRecipeInvalidatesItsEntry() {
+        Recipe cached = RecipeDAO.loadRecipeById(recipe.getId());
+        cached.setDescription("Updated through the DAO");
+        assertTrue(RecipeDAO.updateRecipe(cached));
+
+        assertEquals("Updated through the DAO", RecipeDAO.loadRecipeById(recipe.getId()).getDescription());
+    }
+
+    @Test
+    void updatePreparationInvalidatesRecipesUsingIt() {
+        RecipeDAO.loadRecipeById(recipe.getId());
+        Preparation prep = PreparationDAO.loadPreparationById(recipe.getPreparations().get(0).getId());
+        prep.setName(prep.getName() + " (renamed)");
+        assertTrue(PreparationDAO.updatePreparation(prep));
+
+        assertEquals(prep.getName(), PreparationDAO.loadPreparationById(prep.getId()).getName());
+        Recipe reloaded = RecipeDAO.loadRecipeById(recipe.getId());
+        assertTrue(reloaded.getPreparations().stream().anyMatch(p -> p.getName().equals(prep.getName())));
+    }
+
+    @Test
+    void invalidationWaitsForTheTransaction() {
+        RecipeDAO.loadRecipeById(recipe.getId());
+        long invalidations = RecipeCache.getRecipeStats().getInvalidations();
+
+        PersistenceManager.runInTransaction(() -> {
+            Recipe inTx = RecipeDAO.loadRecipeById(recipe.getId());
+            inTx.setDescription("Committed later");
+            RecipeDAO.updateRecipe(inTx);
+            assertEquals(invalidations, RecipeCache.getRecipeStats().getInvalidations());
+        });
+
+        assertEquals(invalidations + 1, RecipeCache.getRecipeStats().getInvalidations());
+        assertEquals("Committed later", RecipeDAO.loadRecipeById(recipe.getId()).getDescription());
+    }
+
+    @Test
+    void newRecipesAreLoadable() {
+        Recipe created = new Recipe("Cache test recipe");
+        created.addPreparation(recipe.getPreparations().get(0));
+        assertTrue(RecipeDAO.saveRecipe(created));
+
+        Recipe loaded = RecipeDAO.loadRecipeById(created.getId());
+        assertEquals("Cache test recipe", loaded.getName());
+        assertEquals(1, loaded.getPreparations().size());
+    }
+}
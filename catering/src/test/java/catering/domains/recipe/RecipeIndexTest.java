@@ -0,0 +1,109 @@
+package catering.domains.recipe;
+
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+import catering.domains.recipe.infrastructure.PreparationDAO;
+import catering.domains.recipe.infrastructure.RecipeDAO;
+import catering.domains.recipe.infrastructure.RecipeIndex;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecipeIndexTest {
+    private static List<Preparation> preparations;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(RecipeIndexTest.class);
+        preparations = PreparationDAO.loadAllPreparations();
+    }
+
+    @Test
+    void lookupsMatchTheLinkTableWithoutQuerying() {
+        RecipeIndex.getRecipeIds(preparations.get(0).getId());
+
+        long before = statementCount();
+        for (Preparation prep : preparations) {
+            RecipeIndex.getRecipeIds(prep.getId());
+        }
+        assertEquals(before, statementCount(), "the index answers from memory");
+
+        for (Preparation prep : preparations) {
+            assertEquals(linkedRecipeIds(prep.getId()), RecipeIndex.getRecipeIds(prep.getId()));
+        }
+        for (Recipe recipe : RecipeDAO.loadAllRecipes()) {
+            assertEquals(recipe.getPreparations().stream().map(Preparation::getId).collect(Collectors.toList()),
+                RecipeIndex.getPreparationIds(recipe.getId()));
+        }
+    }
+
+    @Test
+    void savedRecipesAreIndexedBothWays() {
+        Preparation first = preparations.get(0);
+        Preparation second = preparations.get(1);
+        Recipe recipe = new Recipe("Indexed recipe");
+        recipe.addPreparation(first);
+        recipe.addPreparation(second);
+        assertTrue(RecipeDAO.saveRecipe(recipe));
+
+        assertEquals(List.of(first.getId(), second.getId()), RecipeIndex.getPreparationIds(recipe.getId()));
+        assertTrue(RecipeIndex.getRecipeIds(second.getId()).contains(recipe.getId()));
+        assertTrue(PreparationDAO.getRecipesUsingPreparation(second).stream()
+            .anyMatch(r -> r.getName().equals("Indexed recipe")));
+
+        recipe.removePreparation(second);
+        assertTrue(RecipeDAO.updateRecipe(recipe));
+
+        assertEquals(List.of(first.getId()), RecipeIndex.getPreparationIds(recipe.getId()));
+        assertFalse(RecipeIndex.getRecipeIds(second.getId()).contains(recipe.getId()));
+        assertEquals(linkedRecipeIds(second.getId()), RecipeIndex.getRecipeIds(second.getId()));
+    }
+
+    @Test
+    void rolledBackUpdatesLeaveTheIndexAsItWas() {
+        Recipe recipe = new Recipe("Rolled back recipe");
+        recipe.addPreparation(preparations.get(2));
+        RecipeDAO.saveRecipe(recipe);
+
+        assertThrows(IllegalStateException.class, () -> PersistenceManager.runInTransaction(() -> {
+            recipe.addPreparation(preparations.get(3));
+            RecipeDAO.updateRecipe(recipe);
+            // Inside the transaction the uncommitted link is visible
+            assertTrue(RecipeIndex.getRecipeIds(preparations.get(3).getId()).contains(recipe.getId()));
+            throw new IllegalStateException("roll back");
+        }));
+
+        assertEquals(List.of(preparations.get(2).getId()), RecipeIndex.getPreparationIds(recipe.getId()));
+        assertFalse(RecipeIndex.getRecipeIds(preparations.get(3).getId()).contains(recipe.getId()));
+    }
+
+    @Test
+    void resettingTheDatabaseDropsTheIndex() {
+        RecipeIndex.getRecipeIds(preparations.get(0).getId());
+        assertTrue(RecipeIndex.isBuilt());
+
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        assertFalse(RecipeIndex.isBuilt());
+        assertEquals(linkedRecipeIds(preparations.get(0).getId()), RecipeIndex.getRecipeIds(preparations.get(0).getId()));
+    }
+
+
+    // HELPERS
+
+    private static Set<Integer> linkedRecipeIds(int preparationId) {
+        List<Integer> ids = new ArrayList<>();
+        PersistenceManager.executeQuery("SELECT recipe_id FROM RecipePreparations WHERE preparation_id = ? ORDER BY recipe_id",
+            rs -> ids.add(rs.getInt("recipe_id")), preparationId);
+        return new LinkedHashSet<>(ids);
+    }
+}
@@ -0,0 +1,128 @@
+package catering.domains.shift;
+
+import catering.domains.shift.domain.Shift;
+import catering.domains.shift.domain.ShiftCalendar;
+import catering.domains.shift.domain.ShiftManager;
+import catering.domains.shift.infrastructure.ShiftDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.PersistenceManager;
+import catering.persistence.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShiftCalendarTest {
+    // A Monday
+    private static final LocalDate FIRST_DAY = LocalDate.of(2031, 3, 3);
+    private static final int DAYS = 30;
+    private static final int SHIFTS_PER_DAY = 3;
+
+    private static StaffMember cook;
+    private static final List<Shift> created = new ArrayList<>();
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(ShiftCalendarTest.class);
+        cook = StaffMemberDAO.loadByEmail("luca.verdi@example.com");
+
+        for (int d = 0; d < DAYS; d++) {
+            Date day = Date.valueOf(FIRST_DAY.plusDays(d));
+            // Created latest first, to check the ordering
+            for (int s = SHIFTS_PER_DAY - 1; s >= 0; s--) {
+                Shift shift = ShiftDAO.create(day, Time.valueOf((8 + 4 * s) + ":00:00"), Time.valueOf((12 + 4 * s) + ":00:00"));
+                ShiftDAO.addBooking(shift, cook);
+                created.add(shift);
+            }
+        }
+    }
+
+    @Test
+    void createdShiftsReadBackTheirDateAndTimes() {
+        Shift shift = created.get(0);
+        Shift loaded = ShiftDAO.loadById(shift.getId());
+
+        assertEquals(shift.getDate(), loaded.getDate());
+        assertEquals(shift.getStartTime(), loaded.getStartTime());
+        assertEquals(shift.getEndTime(), loaded.getEndTime());
+        assertTrue(loaded.isBooked(cook));
+    }
+
+    @Test
+    void dayQueryCostsTheSameWhateverTheHistory() {
+        Date day = Date.valueOf(FIRST_DAY.plusDays(10));
+
+        long before = statementCount();
+        List<Shift> shifts = ShiftDAO.loadByDate(day);
+        // Shifts, bookings, booked staff members
+        assertEquals(3, statementCount() - before);
+
+        assertEquals(SHIFTS_PER_DAY, shifts.size());
+        assertTrue(shifts.stream().allMatch(s -> s.getDate().equals(day) && s.isBooked(cook)));
+        assertEquals(List.of(Time.valueOf("08:00:00"), Time.valueOf("12:00:00"), Time.valueOf("16:00:00")),
+            shifts.stream().map(Shift::getStartTime).collect(Collectors.toList()));
+
+        List<String> plan = new ArrayList<>();
+        PersistenceManager.executeQuery("EXPLAIN QUERY PLAN SELECT * FROM Shifts WHERE day BETWEEN ? AND ?",
+            rs -> plan.add(rs.getString("detail")), day.toString(), day.toString());
+        assertTrue(plan.stream().anyMatch(p -> p.contains("idx_shifts_day")), "plan: " + plan);
+    }
+
+    @Test
+    void weekRunsFromMondayToSunday() {
+        List<Shift> week = ShiftDAO.loadWeek(Date.valueOf(FIRST_DAY.plusDays(9)));
+
+        assertEquals(7 * SHIFTS_PER_DAY, week.size());
+        assertEquals(Date.valueOf(FIRST_DAY.plusDays(7)), week.get(0).getDate());
+        assertEquals(Date.valueOf(FIRST_DAY.plusDays(13)), week.get(week.size() - 1).getDate());
+    }
+
+    @Test
+    void calendarAnswersFromMemoryAndFollowsChanges() {
+        ShiftManager manager = new ShiftManager();
+        Date day = Date.valueOf(FIRST_DAY.plusDays(20));
+        assertEquals(ShiftDAO.loadByDate(day).size(), manager.getShiftsForDate(day).size());
+
+        manager.enableCalendar();
+        long before = statementCount();
+        assertEquals(SHIFTS_PER_DAY, manager.getShiftsForDate(day).size());
+        assertEquals(7 * SHIFTS_PER_DAY, manager.getShiftsForWeek(day).size());
+        assertEquals(before, statementCount(), "the calendar doesn't query");
+
+        Shift added = manager.createShift(day, Time.valueOf("06:00:00"), Time.valueOf("07:00:00"), "Cucina", true);
+        assertSame(added, manager.getShiftsForDate(day).get(0));
+
+        Date nextDay = Date.valueOf(FIRST_DAY.plusDays(21));
+        added.setDate(nextDay);
+        manager.updateShift(added);
+        assertEquals(SHIFTS_PER_DAY, manager.getShiftsForDate(day).size());
+        assertSame(added, manager.getShiftsForDate(nextDay).get(0));
+
+        manager.disableCalendar();
+        assertEquals(SHIFTS_PER_DAY + 1, manager.getShiftsForDate(nextDay).size(), "the move was saved too");
+    }
+
+    @Test
+    void calendarLooksUpIntervals() {
+        ShiftCalendar calendar = new ShiftCalendar(created);
+        assertEquals(DAYS * SHIFTS_PER_DAY, calendar.size());
+
+        List<Shift> range = calendar.getShifts(Date.valueOf(FIRST_DAY.plusDays(3)), Date.valueOf(FIRST_DAY.plusDays(5)));
+        assertEquals(3 * SHIFTS_PER_DAY, range.size());
+        assertTrue(calendar.getShifts(Date.valueOf(FIRST_DAY.plusDays(5)), Date.valueOf(FIRST_DAY)).isEmpty());
+
+        Shift first = range.get(0);
+        assertSame(first, calendar.remove(first.getId()));
+        assertNull(calendar.get(first.getId()));
+        assertEquals(SHIFTS_PER_DAY - 1, calendar.getShifts(first.getDate()).size());
+    }
+}
@@ -0,0 +1,83 @@
+package catering.domains.staffmember;
+
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.persistence.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaffMemberLoadingTest {
+    private static StaffMember withoutRoles;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(StaffMemberLoadingTest.class);
+
+        withoutRoles = new StaffMember("no.roles@example.com", "No", "Roles", new Date(), "Via Roma 1",
+            "3330000000", 1000, StaffMember.EmploymentType.OCCASIONALE);
+        StaffMemberDAO.save(withoutRoles);
+    }
+
+    @Test
+    void loadAllFoldsRolesIntoEachStaffMember() {
+        List<StaffMember> all = StaffMemberDAO.loadAll();
+        assertFalse(all.isEmpty());
+
+        for (StaffMember staff : all) {
+            assertEquals(staff, StaffMemberDAO.loadById(staff.getId()));
+        }
+        StaffMember organizer = all.stream()
+            .filter(s -> s.getEmail().equals("giovanni.ricci@example.com"))
+            .findFirst().orElseThrow();
+        assertTrue(organizer.hasRole(StaffMember.Role.ORGANIZZATORE));
+
+        StaffMember loaded = StaffMemberDAO.loadById(withoutRoles.getId());
+        assertEquals(withoutRoles.getEmail(), loaded.getEmail());
+        assertTrue(loaded.getRoles().isEmpty());
+    }
+
+    @Test
+    void streamAllMatchesLoadAll() {
+        try (Stream<StaffMember> staff = StaffMemberDAO.streamAll()) {
+            assertEquals(StaffMemberDAO.loadAll(), staff.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void loadByIdsUsesOneQuery() {
+        List<Integer> ids = new ArrayList<>();
+        for (StaffMember staff : StaffMemberDAO.loadAll()) {
+            ids.add(staff.getId());
+        }
+        ids.add(-1);
+        ids.add(ids.get(0));
+
+        long before = statementCount();
+        Map<Integer, StaffMember> loaded = StaffMemberDAO.loadByIds(ids);
+        assertEquals(1, statementCount() - before);
+
+        assertEquals(ids.size() - 2, loaded.size());
+        assertFalse(loaded.containsKey(-1));
+        for (Map.Entry<Integer, StaffMember> entry : loaded.entrySet()) {
+            assertEquals(StaffMemberDAO.loadById(entry.getKey()), entry.getValue());
+        }
+        assertTrue(StaffMemberDAO.loadByIds(Set.of()).isEmpty());
+    }
+
+    @Test
+    void missingStaffMembersKeepTheirSentinels() {
+        assertEquals(0, StaffMemberDAO.loadById(-1).getId());
+        assertNull(StaffMemberDAO.loadByEmail("nobody@example.com"));
+    }
+}
@@ -0,0 +1,160 @@
+package catering.persistence;
+
+import catering.domains.event.domain.Event;
+import catering.domains.event.infrastructure.EventDAO;
+import catering.domains.kitchen.infrastructure.AssignmentDAO;
+import catering.domains.kitchen.infrastructure.KitchenTaskDAO;
+import catering.domains.menu.infrastructure.MenuDAO;
+import catering.domains.shift.infrastructure.ShiftDAO;
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLoaderTest {
+    private static final Logger LOGGER = LogManager.getLogger(BatchLoaderTest.class);
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(BatchLoaderTest.class);
+    }
+
+    @Test
+    void keysAreDeduplicatedIntoOneBatch() {
+        List<List<Integer>> calls = new ArrayList<>();
+        BatchLoader<Integer, String> loader = new BatchLoader<>(keys -> {
+            calls.add(keys);
+            return keys.stream().collect(Collectors.toMap(Function.identity(), k -> "v" + k));
+        });
+
+        List<String> received = new ArrayList<>();
+        for (int key : new int[]{3, 1, 3, 2, 1}) {
+            loader.load(key, received::add);
+        }
+        assertTrue(loader.hasPending());
+        assertEquals(5, loader.dispatch());
+
+        assertEquals(List.of(List.of(3, 1, 2)), calls);
+        assertEquals(List.of("v3", "v1", "v3", "v2", "v1"), received, "callbacks run in registration order");
+        assertFalse(loader.hasPending());
+    }
+
+    @Test
+    void loadedKeysAreNotFetchedAgain() {
+        List<List<Integer>> calls = new ArrayList<>();
+        BatchLoader<Integer, String> loader = new BatchLoader<>(keys -> {
+            calls.add(keys);
+            return keys.stream().filter(k -> k != 0).collect(Collectors.toMap(Function.identity(), k -> "v" + k));
+        });
+
+        CompletableFuture<String> missing = loader.load(0);
+        loader.load(1);
+        loader.dispatch();
+        assertNull(missing.join(), "keys the batch function leaves out resolve to null");
+
+        CompletableFuture<String> again = loader.load(1);
+        loader.load(0);
+        loader.load(2);
+        loader.dispatch();
+
+        assertEquals("v1", again.join());
+        assertEquals(List.of(List.of(0, 1), List.of(2)), calls);
+        assertEquals(2, loader.getBatches());
+        assertEquals(0, loader.dispatch(), "nothing pending");
+    }
+
+    @Test
+    void scopeDispatchesKeysRegisteredByCallbacks() {
+        BatchScope scope = new BatchScope();
+        Map<Integer, Integer> parents = Map.of(10, 1, 11, 1, 12, 2);
+        BatchLoader<Integer, String> names = scope.loader(keys ->
+            keys.stream().collect(Collectors.toMap(Function.identity(), k -> "parent " + k)));
+        BatchLoader<Integer, Integer> children = scope.loader(keys ->
+            keys.stream().collect(Collectors.toMap(Function.identity(), parents::get)));
+
+        Map<Integer, String> resolved = new HashMap<>();
+        for (int child : parents.keySet()) {
+            children.load(child, parent -> names.load(parent, name -> resolved.put(child, name)));
+        }
+        scope.dispatch();
+
+        assertEquals(Map.of(10, "parent 1", 11, "parent 1", 12, "parent 2"), resolved);
+        assertEquals(1, children.getBatches());
+        assertEquals(1, names.getBatches());
+    }
+
+    @Test
+    void queryByKeysSplitsLongKeyLists() {
+        List<Integer> ids = new ArrayList<>();
+        PersistenceManager.executeQuery("SELECT id FROM Preparations", rs -> ids.add(rs.getInt("id")));
+        List<Integer> keys = IntStream.range(0, 1200).mapToObj(i -> ids.get(i % ids.size()) + (i / ids.size()) * 100000)
+            .collect(Collectors.toList());
+
+        Function<List<Integer>, Map<Integer, String>> fetch = BatchLoader.queryByKeys(
+            "SELECT id, name FROM Preparations WHERE id IN (%s)", rs -> rs.getInt("id") + ":" + rs.getString("name"),
+            v -> Integer.parseInt(v.substring(0, v.indexOf(':'))));
+
+        long before = statementCount();
+        Map<Integer, String> values = fetch.apply(keys);
+        assertEquals(3, statementCount() - before, "1200 keys go in chunks of 500");
+        assertEquals(ids.size(), values.size(), "only existing rows are returned");
+        assertTrue(values.keySet().containsAll(ids));
+    }
+
+    @Test
+    void queryByKeysLeavesOtherPercentSignsAlone() {
+        Function<List<Integer>, Map<Integer, String>> fetch = BatchLoader.queryByKeys(
+            "SELECT id, name FROM Preparations WHERE id IN (%s) AND name LIKE '%'", rs -> rs.getString("name"),
+            name -> 0);
+
+        assertEquals(1, fetch.apply(List.of(1)).size());
+    }
+
+    @Test
+    void loadersByIdSplitLongIdLists() {
+        List<Integer> missing = IntStream.range(0, 1200).mapToObj(i -> 1_000_000 + i).collect(Collectors.toList());
+
+        assertEquals(3, statementsRunBy(() -> KitchenTaskDAO.loadByIds(missing)));
+        assertEquals(3, statementsRunBy(() -> KitchenTaskDAO.loadAllBySummarySheetIds(missing)));
+        assertEquals(3, statementsRunBy(() -> AssignmentDAO.loadAllBySummarySheetIds(missing, List.of())));
+        assertEquals(3, statementsRunBy(() -> MenuDAO.loadByIds(missing)));
+        // Shifts, then their bookings
+        assertEquals(6, statementsRunBy(() -> ShiftDAO.loadByIds(missing)));
+    }
+
+    @Test
+    void eventsLoadWithAFixedNumberOfQueries() {
+        long before = statementCount();
+        List<Event> events = EventDAO.loadAll();
+        long queries = statementCount() - before;
+        LOGGER.info(events.size() + " events loaded with " + queries + " queries");
+
+        // Events, chefs, services
+        assertEquals(3, queries);
+        assertFalse(events.isEmpty());
+        assertTrue(events.stream().allMatch(e -> e.getChef() != null));
+        assertEquals(2, events.stream().filter(e -> e.getName().equals("Gala Aziendale Annuale"))
+            .findFirst().orElseThrow().getServices().size());
+    }
+
+
+    // HELPERS
+
+    private static long statementsRunBy(Runnable load) {
+        long before = statementCount();
+        load.run();
+        return statementCount() - before;
+    }
+}
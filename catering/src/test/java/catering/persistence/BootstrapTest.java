@@ -0,0 +1,45 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BootstrapTest {
+    private static final Logger LOGGER = LogManager.getLogger(BootstrapTest.class);
+
+    @BeforeAll
+    static void init() {
+        LOGGER.info("Starting test: BootstrapTest");
+    }
+
+    @Test
+    void theBootstrapRunsOnce() {
+        BootstrapReport report = PersistenceManager.bootstrap();
+
+        assertSame(report, PersistenceManager.bootstrap());
+        assertEquals(List.of("pool", "open", "schema", "migrate", "warmup"),
+            List.copyOf(report.getPhaseNanos().keySet()).subList(0, 5));
+        assertTrue(report.getTotalMillis() > 0);
+    }
+
+    @Test
+    void statementsReuseThePooledConnections() {
+        PersistenceManager.bootstrap();
+        long created = PersistenceManager.getReaderPoolStats().getCreatedCount();
+        long borrows = PersistenceManager.getReaderPoolStats().getBorrowCount();
+
+        int[] count = new int[1];
+        for (int i = 0; i < 20; i++) {
+            PersistenceManager.executeQuery("SELECT count(*) FROM StaffMembers", rs -> count[0] = rs.getInt(1));
+        }
+
+        assertTrue(count[0] > 0);
+        assertEquals(created, PersistenceManager.getReaderPoolStats().getCreatedCount(), "no connection opened per statement");
+        assertEquals(borrows + 20, PersistenceManager.getReaderPoolStats().getBorrowCount());
+    }
+}
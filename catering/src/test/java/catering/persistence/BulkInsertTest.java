@@ -0,0 +1,149 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkInsertTest {
+    private static final Logger LOGGER = LogManager.getLogger(BulkInsertTest.class);
+    private static final String INSERT = "INSERT INTO Preparations (name, description) VALUES (?, ?)";
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(BulkInsertTest.class);
+    }
+
+    @Test
+    void multiRowChunksMapEveryKey() {
+        BulkInsertOptions options = new BulkInsertOptions();
+        options.setChunkSize(100);
+
+        BulkInsertResult result = PersistenceManager.executeBulkInsert(INSERT, 1234, (ps, i) -> {
+            ps.setString(1, "Bulk " + i);
+            ps.setString(2, "row " + i);
+        }, options);
+        LOGGER.info("Multi-row: " + result);
+
+        assertEquals(1234, result.getRows());
+        assertEquals(13, result.getChunks());
+        assertTrue(result.getRowsPerSecond() > 0);
+        assertKeysMatch("Bulk ", result.getKeys(), 1234);
+    }
+
+    @Test
+    void rowByRowModeMapsEveryKey() {
+        BulkInsertOptions options = new BulkInsertOptions();
+        options.setChunkSize(100);
+        options.setMultiRowValues(false);
+
+        BulkInsertResult result = PersistenceManager.executeBulkInsert(INSERT, 250, (ps, i) -> {
+            ps.setString(1, "Single " + i);
+            ps.setString(2, "");
+        }, options);
+        LOGGER.info("Row by row: " + result);
+
+        assertEquals(250, result.getRows());
+        assertKeysMatch("Single ", result.getKeys(), 250);
+    }
+
+    @Test
+    void perCallFailureRollsBackEveryChunk() {
+        BulkInsertOptions options = new BulkInsertOptions();
+        options.setChunkSize(100);
+
+        BulkInsertResult result = PersistenceManager.executeBulkInsert(INSERT, 300, (ps, i) -> {
+            if (i == 250) {
+                throw new SQLException("bad row");
+            }
+            ps.setString(1, "Atomic " + i);
+            ps.setString(2, "");
+        }, options);
+
+        assertEquals(0, result.getRows());
+        assertEquals(0, countByPrefix("Atomic "));
+        for (int key : result.getKeys()) {
+            assertEquals(0, key);
+        }
+    }
+
+    @Test
+    void perChunkFailureKeepsCommittedChunks() {
+        BulkInsertOptions options = new BulkInsertOptions();
+        options.setChunkSize(100);
+        options.setTransactionScope(BulkInsertOptions.TransactionScope.PER_CHUNK);
+
+        BulkInsertResult result = PersistenceManager.executeBulkInsert(INSERT, 300, (ps, i) -> {
+            if (i == 250) {
+                throw new SQLException("bad row");
+            }
+            ps.setString(1, "Chunked " + i);
+            ps.setString(2, "");
+        }, options);
+
+        assertEquals(200, result.getRows());
+        assertEquals(200, countByPrefix("Chunked "));
+        assertTrue(result.getKeys()[199] > 0);
+        assertEquals(0, result.getKeys()[200]);
+    }
+
+    @Test
+    void multiRowStatementsStayOutOfTheStatementCache() {
+        BulkInsertOptions options = new BulkInsertOptions();
+        options.setChunkSize(100);
+
+        StatementCacheStats stats = PersistenceManager.getStatementCacheStats();
+        long misses = stats.getMisses();
+        long bypasses = stats.getBypasses();
+        // Two full chunks and a short one: two statement shapes
+        PersistenceManager.executeBulkInsert(INSERT, 250, (ps, i) -> {
+            ps.setString(1, "Uncached " + i);
+            ps.setString(2, "");
+        }, options);
+
+        assertEquals(misses, stats.getMisses(), "no multi-row statement was cached");
+        assertEquals(bypasses + 3, stats.getBypasses());
+        assertEquals(250, countByPrefix("Uncached "));
+    }
+
+    @Test
+    void batchUpdatesCommitAllTheirChunksTogether() {
+        String insert = "INSERT INTO Preparations (id, name) VALUES (?, ?)";
+        int[] counts = PersistenceManager.executeBatchUpdate(insert, 1200, (ps, i) -> {
+            ps.setInt(1, 900_000 + i);
+            ps.setString(2, "Batched " + i);
+        });
+        assertEquals(1200, counts.length);
+        assertEquals(1200, countByPrefix("Batched "));
+
+        // The last chunk repeats a key: the chunks sent before it must not stay behind
+        counts = PersistenceManager.executeBatchUpdate(insert, 1200, (ps, i) -> {
+            ps.setInt(1, i == 1100 ? 910_000 : 910_000 + i);
+            ps.setString(2, "Rejected " + i);
+        });
+        assertEquals(0, counts.length);
+        assertEquals(0, countByPrefix("Rejected "));
+    }
+
+
+    // HELPERS
+
+    private static void assertKeysMatch(String prefix, int[] keys, int rows) {
+        assertEquals(rows, keys.length);
+        for (int i = 0; i < rows; i++) {
+            String[] name = new String[1];
+            PersistenceManager.executeQuery("SELECT name FROM Preparations WHERE id = ?", rs -> name[0] = rs.getString(1), keys[i]);
+            assertEquals(prefix + i, name[0]);
+        }
+    }
+
+    private static int countByPrefix(String prefix) {
+        int[] count = new int[1];
+        PersistenceManager.executeQuery("SELECT count(*) FROM Preparations WHERE name LIKE ?", rs -> count[0] = rs.getInt(1), prefix + "%");
+        return count[0];
+    }
+}
@@ -0,0 +1,126 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPoolTest.class);
+
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void init() {
+        LOGGER.info("Starting test: ConnectionPoolTest");
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void nestedBorrowsShareOneConnection() throws Exception {
+        pool = newPool(1, new PoolConfig());
+
+        PooledConnection outer = pool.borrow();
+        PooledConnection inner = pool.borrow();
+        assertSame(outer, inner, "the thread gets its own connection back");
+        assertEquals(1, pool.getStats().getActive());
+
+        pool.release(inner);
+        assertTrue(pool.isHeldByCurrentThread(), "still held by the outer borrow");
+        pool.release(outer);
+        assertFalse(pool.isHeldByCurrentThread());
+        assertEquals(0, pool.getStats().getActive());
+        assertEquals(1, pool.getStats().getIdle());
+    }
+
+    @Test
+    void anExhaustedPoolTimesOut() throws Exception {
+        PoolConfig config = new PoolConfig();
+        config.setMaxWaitMillis(100);
+        pool = newPool(1, config);
+
+        PooledConnection held = pool.borrow();
+        CompletableFuture<PooledConnection> other = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Exception e = assertThrows(Exception.class, () -> other.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLTimeoutException.class, e.getCause().getCause());
+        assertEquals(1, pool.getStats().getTimeoutCount());
+
+        pool.release(held);
+        PooledConnection again = pool.borrow();
+        assertSame(held, again, "the connection went back to the pool");
+        pool.release(again);
+    }
+
+    @Test
+    void aReleaseFromAnotherThreadFreesTheBorrower() throws Exception {
+        pool = newPool(1, new PoolConfig());
+
+        PooledConnection pc = pool.borrow();
+        CompletableFuture.runAsync(() -> pool.release(pc)).get(5, TimeUnit.SECONDS);
+
+        assertFalse(pool.isHeldByCurrentThread(), "the borrowing thread no longer owns it");
+        assertEquals(0, pool.getStats().getActive());
+        PooledConnection next = pool.borrow();
+        assertTrue(pool.isHeldByCurrentThread());
+        pool.release(next);
+        assertEquals(0, pool.getStats().getActive());
+    }
+
+    @Test
+    void leaksAreReportedWithoutATraceByDefault() throws Exception {
+        PoolConfig config = new PoolConfig();
+        config.setLeakThresholdMillis(20);
+        config.setHousekeepingIntervalMillis(20);
+        pool = newPool(1, config);
+
+        PooledConnection pc = pool.borrow();
+        assertNull(pc.getBorrowTrace(), "no stack trace unless asked for");
+        awaitLeakReport();
+        pool.release(pc);
+
+        pool.close();
+        config.setLeakTraceEnabled(true);
+        pool = newPool(1, config);
+        PooledConnection traced = pool.borrow();
+        assertNotNull(traced.getBorrowTrace());
+        awaitLeakReport();
+        pool.release(traced);
+    }
+
+
+    // HELPERS
+
+    private static ConnectionPool newPool(int maxSize, PoolConfig config) {
+        config.setMaxSize(maxSize);
+        return new ConnectionPool("test", () -> DriverManager.getConnection("jdbc:sqlite::memory:"), config);
+    }
+
+    private void awaitLeakReport() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getStats().getLeakCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getStats().getLeakCount());
+    }
+}
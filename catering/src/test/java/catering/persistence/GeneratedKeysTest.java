@@ -0,0 +1,67 @@
+package catering.persistence;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratedKeysTest {
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(GeneratedKeysTest.class);
+    }
+
+    @Test
+    void concurrentInsertsGetTheirOwnKeys() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            String name = "Concurrent preparation " + i;
+            futures.add(executor.submit(() ->
+                PersistenceManager.executeInsert("INSERT INTO Preparations (name, description) VALUES (?, ?)", name, "")));
+        }
+
+        Set<Integer> keys = new HashSet<>();
+        for (int i = 0; i < futures.size(); i++) {
+            int key = futures.get(i).get();
+            assertTrue(keys.add(key), "Key " + key + " was returned twice");
+            assertEquals("Concurrent preparation " + i, nameOfPreparation(key));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void batchInsertReturnsOneKeyPerRow() {
+        String[] names = {"Batch A", "Batch B", "Batch C"};
+        int[] keys = PersistenceManager.executeBatchInsert("INSERT INTO Preparations (name, description) VALUES (?, ?)",
+            names.length, (ps, i) -> {
+                ps.setString(1, names[i]);
+                ps.setString(2, "");
+            });
+
+        assertEquals(names.length, keys.length);
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], nameOfPreparation(keys[i]));
+        }
+    }
+
+    @Test
+    void updatesReportNoKey() {
+        int key = PersistenceManager.executeInsert("UPDATE Preparations SET description = ? WHERE id = 1", "changed");
+        assertEquals(0, key);
+    }
+
+    private static String nameOfPreparation(int id) {
+        String[] name = new String[1];
+        PersistenceManager.executeQuery("SELECT name FROM Preparations WHERE id = ?", rs -> name[0] = rs.getString(1), id);
+        return name[0];
+    }
+}
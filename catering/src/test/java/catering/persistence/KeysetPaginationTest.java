@@ -0,0 +1,153 @@
+package catering.persistence;
+
+import catering.domains.holidayleave.domain.HolidayLeave;
+import catering.domains.holidayleave.domain.HolidayLeave.RequestStatus;
+import catering.domains.holidayleave.domain.HolidayLeaveFilter;
+import catering.domains.holidayleave.infrastructure.HolidayLeaveDAO;
+import catering.domains.kitchen.domain.SummarySheet;
+import catering.domains.kitchen.domain.SummarySheetHeader;
+import catering.domains.kitchen.infrastructure.SummarySheetDAO;
+import catering.domains.recipe.domain.Preparation;
+import catering.domains.recipe.domain.Recipe;
+import catering.domains.recipe.infrastructure.PreparationDAO;
+import catering.domains.recipe.infrastructure.RecipeDAO;
+import catering.domains.shift.domain.Shift;
+import catering.domains.shift.infrastructure.ShiftDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeysetPaginationTest {
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(KeysetPaginationTest.class);
+
+        StaffMember cook = StaffMemberDAO.loadByEmail("luca.verdi@example.com");
+        for (int i = 0; i < 7; i++) {
+            // Same day, out of order, to exercise the ties on the first key
+            Shift shift = ShiftDAO.create(Date.valueOf("2033-05-0" + (1 + i % 2)), Time.valueOf((18 - i) + ":00:00"),
+                Time.valueOf((19 - i) + ":00:00"));
+            ShiftDAO.addBooking(shift, cook);
+        }
+    }
+
+    @Test
+    void recipePagesFollowTheRecipeBook() {
+        List<Recipe> paged = walk(RecipeDAO::loadRecipePage, 3);
+
+        assertEquals(ids(RecipeDAO.loadAllRecipes(), Recipe::getId), ids(paged, Recipe::getId));
+        assertTrue(paged.stream().anyMatch(r -> !r.getPreparations().isEmpty()), "recipes come with their preparations");
+    }
+
+    @Test
+    void preparationPagesDontShiftWhenRowsAreAdded() {
+        Page<Preparation> first = PreparationDAO.loadPreparationPage(null, 4);
+        // Sorts before every page already read
+        PreparationDAO.savePreparation(new Preparation("  Added between pages"));
+
+        List<Preparation> paged = new ArrayList<>(first.getItems());
+        String token = first.getNextToken();
+        while (token != null) {
+            Page<Preparation> page = PreparationDAO.loadPreparationPage(token, 4);
+            paged.addAll(page.getItems());
+            token = page.getNextToken();
+        }
+
+        List<Integer> expected = ids(PreparationDAO.loadAllPreparations(), Preparation::getId);
+        expected.remove(0);
+        assertEquals(expected, ids(paged, Preparation::getId));
+    }
+
+    @Test
+    void staffPagesAreTwoQueriesEach() {
+        List<StaffMember> paged = new ArrayList<>();
+        String token = null;
+        do {
+            long before = statementCount();
+            Page<StaffMember> page = StaffMemberDAO.loadPage(token, 3);
+            assertTrue(statementCount() - before <= 2, "ids, then the staff members with their roles");
+            paged.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+
+        assertEquals(ids(StaffMemberDAO.loadAll(), StaffMember::getId), ids(paged, StaffMember::getId));
+        assertTrue(paged.stream().allMatch(s -> s.getEmail() != null));
+    }
+
+    @Test
+    void shiftPagesAreChronological() {
+        List<Shift> paged = walk(ShiftDAO::loadPage, 2);
+
+        assertEquals(ids(ShiftDAO.loadAll(), Shift::getId), ids(paged, Shift::getId));
+        assertTrue(paged.stream().allMatch(s -> s.getBookedStaffMembers().size() == 1));
+    }
+
+    @Test
+    void holidayLeavePagesKeepTheFilter() {
+        List<HolidayLeave> paged = walk((token, limit) ->
+            HolidayLeaveDAO.loadPage(HolidayLeaveFilter.withStatus(RequestStatus.ACCETTATA), token, limit), 2);
+
+        assertEquals(ids(HolidayLeaveDAO.loadByStatus(RequestStatus.ACCETTATA), HolidayLeave::getId),
+            ids(paged, HolidayLeave::getId));
+        assertTrue(paged.stream().allMatch(l -> l.getStaffMember().getEmail() != null));
+    }
+
+    @Test
+    void summarySheetPagesMatchTheListings() {
+        assertEquals(ids(SummarySheetDAO.loadAll(), SummarySheet::getId),
+            ids(walk(SummarySheetDAO::loadPage, 1), SummarySheet::getId));
+        assertEquals(ids(SummarySheetDAO.loadHeaders(), SummarySheetHeader::getId),
+            ids(walk(SummarySheetDAO::loadHeaderPage, 1), SummarySheetHeader::getId));
+    }
+
+    @Test
+    void tokensOnlyWorkForTheirListing() {
+        String recipeToken = RecipeDAO.loadRecipePage(null, 1).getNextToken();
+        assertNotNull(recipeToken);
+
+        assertThrows(IllegalArgumentException.class, () -> PreparationDAO.loadPreparationPage(recipeToken, 1));
+        assertThrows(IllegalArgumentException.class, () -> RecipeDAO.loadRecipePage("not a token", 1));
+        assertThrows(IllegalArgumentException.class, () -> RecipeDAO.loadRecipePage(recipeToken + "x", 1));
+        assertThrows(IllegalArgumentException.class, () -> RecipeDAO.loadRecipePage(null, 0));
+    }
+
+    @Test
+    void lastPageHasNoToken() {
+        Page<Preparation> all = PreparationDAO.loadPreparationPage(null, 10000);
+
+        assertFalse(all.hasNext());
+        assertNull(all.getNextToken());
+        assertEquals(PreparationDAO.loadAllPreparations().size(), all.getItems().size());
+    }
+
+
+    // HELPERS
+
+    private static <T> List<T> walk(BiFunction<String, Integer, Page<T>> loader, int limit) {
+        List<T> items = new ArrayList<>();
+        String token = null;
+        do {
+            Page<T> page = loader.apply(token, limit);
+            assertTrue(page.getItems().size() <= limit);
+            items.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+        return items;
+    }
+
+    private static <T> List<Integer> ids(List<T> items, Function<T, Integer> id) {
+        return items.stream().map(id).collect(Collectors.toList());
+    }
+}
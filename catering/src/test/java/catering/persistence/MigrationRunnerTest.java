@@ -0,0 +1,292 @@
+package catering.persistence;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MigrationRunnerTest {
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(MigrationRunnerTest.class);
+    }
+
+    @Test
+    void initializedDatabaseIsAtLatestVersion() throws Exception {
+        List<Migration> shipped = new MigrationRunner(new File("database", "migrations")).load();
+        assertFalse(shipped.isEmpty());
+        assertEquals(shipped.get(shipped.size() - 1).getVersion(), PersistenceManager.getSchemaVersion());
+    }
+
+    @Test
+    void appliesPendingMigrationsInOrderOnce(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("V2__add_b.sql"), "ALTER TABLE t ADD COLUMN b INTEGER;");
+        Files.writeString(dir.resolve("V1__create_t.sql"), "CREATE TABLE t (a INTEGER);");
+        Files.writeString(dir.resolve("notes.txt"), "not a migration");
+
+        try (Connection conn = open(dir.resolve("test.db"))) {
+            MigrationRunner runner = new MigrationRunner(dir.toFile());
+            List<Migration> applied = runner.migrate(conn);
+            assertEquals(2, applied.size());
+            assertEquals(1, applied.get(0).getVersion());
+            assertEquals("create t", applied.get(0).getDescription());
+            assertEquals(2, MigrationRunner.currentVersion(conn));
+
+            assertTrue(runner.migrate(conn).isEmpty());
+
+            // An existing database picks up only what it is missing
+            Files.writeString(dir.resolve("V3__add_c.sql"), "ALTER TABLE t ADD COLUMN c INTEGER;");
+            applied = runner.migrate(conn);
+            assertEquals(1, applied.size());
+            assertEquals(3, MigrationRunner.currentVersion(conn));
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO t (a, b, c) VALUES (1, 2, 3)");
+            }
+        }
+    }
+
+    @Test
+    void failedMigrationIsNotRecorded(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("V1__create_t.sql"), "CREATE TABLE t (a INTEGER);");
+        Files.writeString(dir.resolve("V2__broken.sql"), "CREATE TABLE u (a INTEGER); ALTER TABLE missing ADD COLUMN x;");
+
+        try (Connection conn = open(dir.resolve("test.db"))) {
+            assertThrows(MigrationException.class, () -> new MigrationRunner(dir.toFile()).migrate(conn));
+            assertEquals(1, MigrationRunner.currentVersion(conn));
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT count(*) FROM sqlite_master WHERE name = 'u'")) {
+                assertEquals(0, rs.getInt(1), "the failed migration should be rolled back entirely");
+            }
+        }
+    }
+
+    @Test
+    void modifiedMigrationIsRejected(@TempDir Path dir) throws Exception {
+        Path v1 = dir.resolve("V1__create_t.sql");
+        Files.writeString(v1, "CREATE TABLE t (a INTEGER);");
+
+        try (Connection conn = open(dir.resolve("test.db"))) {
+            MigrationRunner runner = new MigrationRunner(dir.toFile());
+            runner.migrate(conn);
+
+            Files.writeString(v1, "CREATE TABLE t (a TEXT);");
+            assertThrows(MigrationException.class, () -> runner.migrate(conn));
+
+            Files.delete(v1);
+            assertThrows(MigrationException.class, () -> runner.migrate(conn));
+        }
+    }
+
+    @Test
+    void tamperedMigrationStopsStartup(@TempDir Path dir) throws Exception {
+        Path migrations = Files.createDirectory(dir.resolve("migrations"));
+        try (Stream<Path> shipped = Files.list(Path.of("database", "migrations"))) {
+            for (Path file : shipped.collect(Collectors.toList())) {
+                Files.copy(file, migrations.resolve(file.getFileName()));
+            }
+        }
+
+        try (Connection conn = open(dir.resolve("app.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+            PersistenceManager.migrate(conn, migrations.toFile());
+
+            Path v1 = migrations.resolve("V1__foreign_key_indexes.sql");
+            Files.writeString(v1, Files.readString(v1) + "\n-- edited after release\n");
+            MigrationException tampered = assertThrows(MigrationException.class,
+                () -> PersistenceManager.migrate(conn, migrations.toFile()));
+            assertTrue(tampered.getMessage().contains("V1"));
+
+            Files.writeString(migrations.resolve("V99__broken.sql"), "ALTER TABLE NoSuchTable ADD COLUMN x INTEGER;");
+            Files.copy(Path.of("database", "migrations", "V1__foreign_key_indexes.sql"), v1, StandardCopyOption.REPLACE_EXISTING);
+            assertThrows(MigrationException.class, () -> PersistenceManager.migrate(conn, migrations.toFile()));
+        }
+    }
+
+    @Test
+    void theInitScriptLeavesTheMigrationHistoryAlone(@TempDir Path dir) throws Exception {
+        String script = Files.readString(Path.of("database", "catering_init_sqlite.sql"));
+        try (Connection conn = open(dir.resolve("app.db"))) {
+            PersistenceManager.runStatements(conn, script);
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+            int version = MigrationRunner.currentVersion(conn);
+            assertTrue(version > 0);
+
+            PersistenceManager.runStatements(conn, script);
+            assertEquals(version, MigrationRunner.currentVersion(conn));
+
+            MigrationRunner.clearHistory(conn);
+            assertEquals(0, MigrationRunner.currentVersion(conn));
+        }
+    }
+
+    @Test
+    void legacyShiftDatesAndTimesKeepTheirLocalValues(@TempDir Path dir) throws Exception {
+        try (Connection conn = open(dir.resolve("legacy.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+            // As the baseline ShiftDAO stored them, with setDate: the millis of local midnight
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO Shifts (id, date, start_time, end_time) VALUES (?, ?, ?, ?)")) {
+                ps.setInt(1, 9001);
+                ps.setLong(2, java.sql.Date.valueOf("2031-01-15").getTime());
+                ps.setLong(3, java.sql.Time.valueOf("10:00:00").getTime());
+                ps.setLong(4, java.sql.Time.valueOf("14:00:00").getTime());
+                ps.executeUpdate();
+            }
+
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT date, day, start_time, end_time FROM Shifts WHERE id = 9001")) {
+                assertEquals("2031-01-15", rs.getString("date"));
+                assertEquals("2031-01-15", rs.getString("day"));
+                assertEquals("10:00:00", rs.getString("start_time"), "times sort with the text ones");
+                assertEquals("14:00:00", rs.getString("end_time"));
+            }
+        }
+    }
+
+    @Test
+    void legacyEventDatesKeepTheirLocalDay(@TempDir Path dir) throws Exception {
+        try (Connection conn = open(dir.resolve("legacy.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+            // As the baseline EventDAO stored them: the millis of local midnight
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO Events (id, name, date_start, date_end, chef_id) VALUES (?, ?, ?, ?, 5)")) {
+                ps.setInt(1, 9001);
+                ps.setString(2, "Legacy event");
+                ps.setLong(3, java.sql.Date.valueOf("2031-01-15").getTime());
+                ps.setLong(4, java.sql.Date.valueOf("2031-01-16").getTime());
+                ps.executeUpdate();
+            }
+
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT start_day, end_day FROM Events WHERE id = 9001")) {
+                assertEquals("2031-01-15", rs.getString("start_day"));
+                assertEquals("2031-01-16", rs.getString("end_day"));
+            }
+        }
+    }
+
+    @Test
+    void legacyLeaveDatesKeepTheirLocalDay(@TempDir Path dir) throws Exception {
+        try (Connection conn = open(dir.resolve("legacy.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+            // As the baseline HolidayLeaveDAO stored them, with setDate: the millis of local midnight
+            try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO HolidayLeave (id, staff_member_id, start_date, end_date, status) VALUES (?, 1, ?, ?, 'IN_ATTESA')")) {
+                ps.setInt(1, 9001);
+                ps.setLong(2, java.sql.Date.valueOf("2031-01-15").getTime());
+                ps.setLong(3, java.sql.Date.valueOf("2031-01-20").getTime());
+                ps.executeUpdate();
+            }
+
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT start_day, end_day FROM HolidayLeave WHERE id = 9001")) {
+                assertEquals("2031-01-15", rs.getString("start_day"));
+                assertEquals("2031-01-20", rs.getString("end_day"));
+            }
+        }
+    }
+
+    @Test
+    void legacyServiceDatesKeepTheirLocalDayAndTime(@TempDir Path dir) throws Exception {
+        try (Connection conn = open(dir.resolve("legacy.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+            // As the baseline ServiceDAO stored them: the millis of the local date and times
+            try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO Services (id, event_id, name, service_date, time_start, time_end) VALUES (?, 1, 'Legacy service', ?, ?, ?)")) {
+                ps.setInt(1, 9001);
+                ps.setLong(2, java.sql.Date.valueOf("2031-01-15").getTime());
+                ps.setLong(3, java.sql.Time.valueOf("12:30:00").getTime());
+                ps.setLong(4, java.sql.Time.valueOf("15:00:00").getTime());
+                ps.executeUpdate();
+            }
+
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT service_date, time_start, time_end FROM Services WHERE id = 9001")) {
+                assertEquals("2031-01-15", rs.getString("service_date"));
+                assertEquals("12:30:00", rs.getString("time_start"));
+                assertEquals("15:00:00", rs.getString("time_end"));
+            }
+        }
+    }
+
+    @Test
+    void foreignKeyIndexesServeChildLookups(@TempDir Path dir) throws Exception {
+        try (Connection conn = open(dir.resolve("plan.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+
+            String lookup = "SELECT * FROM Tasks WHERE sumsheet_id = ? ORDER BY position";
+            assertTrue(queryPlan(conn, lookup).contains("SCAN"), "without the index every lookup scans the table");
+
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+
+            assertTrue(queryPlan(conn, lookup).contains("idx_tasks_sumsheet_id"));
+            assertTrue(queryPlan(conn, "SELECT * FROM Assignment WHERE sumsheet_id = ?").contains("idx_assignment_sumsheet_id"));
+            assertTrue(queryPlan(conn, "SELECT * FROM MenuItems WHERE menu_id = ? AND section_id = ?").contains("idx_menuitems_menu_section"));
+            assertTrue(queryPlan(conn, "SELECT * FROM StaffMemberRoles WHERE staff_member_id = ?").contains("idx_staffmemberroles_staff_member_id"));
+            assertTrue(queryPlan(conn, "SELECT * FROM Services WHERE event_id = ?").contains("idx_services_event_id"));
+        }
+    }
+
+
+    @Test
+    void keysetListingsReadTheirIndexInOrder(@TempDir Path dir) throws Exception {
+        try (Connection conn = open(dir.resolve("plan.db"))) {
+            PersistenceManager.runStatements(conn, Files.readString(Path.of("database", "catering_init_sqlite.sql")));
+            new MigrationRunner(new File("database", "migrations")).migrate(conn);
+
+            assertSeeksInOrder(conn, "SELECT * FROM Recipes WHERE COALESCE(name, '') >= ? ORDER BY COALESCE(name, ''), id LIMIT 10",
+                "idx_recipes_name");
+            assertSeeksInOrder(conn, "SELECT * FROM Preparations WHERE COALESCE(name, '') >= ? ORDER BY COALESCE(name, ''), id LIMIT 10",
+                "idx_preparations_name");
+            assertSeeksInOrder(conn, "SELECT * FROM Shifts WHERE day >= ? ORDER BY day, start_time, id LIMIT 10",
+                "idx_shifts_day_start");
+            assertSeeksInOrder(conn, "SELECT * FROM HolidayLeave WHERE start_day >= ? ORDER BY start_day, id LIMIT 10",
+                "idx_holidayleave_start_id");
+        }
+    }
+
+
+    // HELPERS
+
+    private static Connection open(Path file) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+    }
+
+    private static String queryPlan(Connection conn, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql.replace("?", "1"))) {
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private static void assertSeeksInOrder(Connection conn, String sql, String index) throws SQLException {
+        String plan = queryPlan(conn, sql);
+        assertTrue(plan.contains(index), plan);
+        assertFalse(plan.contains("TEMP B-TREE"), "the rows should come out of the index already sorted: " + plan);
+    }
+}
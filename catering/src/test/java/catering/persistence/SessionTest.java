@@ -0,0 +1,127 @@
+package catering.persistence;
+
+import catering.domains.shift.domain.Shift;
+import catering.domains.shift.infrastructure.ShiftDAO;
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.List;
+import java.util.Map;
+
+import static catering.persistence.TestDatabase.statementCount;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionTest {
+    private static StaffMember cook;
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(SessionTest.class);
+
+        cook = StaffMemberDAO.loadByEmail("luca.verdi@example.com");
+        assertNotNull(cook);
+    }
+
+    @Test
+    void outsideASessionEveryLoadIsFresh() {
+        assertNull(Session.current());
+        StaffMember first = StaffMemberDAO.loadById(cook.getId());
+        StaffMember second = StaffMemberDAO.loadById(cook.getId());
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void oneIdResolvesToOneInstanceWithOneQuery() {
+        long hitsBefore = hits(StaffMember.class);
+
+        PersistenceManager.runInSession(() -> {
+            StaffMember first = StaffMemberDAO.loadById(cook.getId());
+            long statements = statementCount();
+            StaffMember second = StaffMemberDAO.loadById(cook.getId());
+
+            assertSame(first, second);
+            assertEquals(statements, statementCount(), "the second lookup should not hit the database");
+            assertSame(first, StaffMemberDAO.loadByEmail(cook.getEmail()));
+
+            // Nested sessions join the outer one
+            PersistenceManager.runInSession(() -> assertSame(first, StaffMemberDAO.loadById(cook.getId())));
+            assertEquals(2, Session.current().identityMap(StaffMember.class).getHits());
+        });
+
+        assertNull(Session.current());
+        assertEquals(hitsBefore + 2, hits(StaffMember.class));
+    }
+
+    @Test
+    void batchLoadsFetchOnlyMissingIds() {
+        PersistenceManager.runInSession(() -> {
+            List<StaffMember> all = StaffMemberDAO.loadAll();
+            StaffMember known = StaffMemberDAO.loadById(all.get(0).getId());
+            assertSame(all.get(0), known);
+
+            long statements = statementCount();
+            Map<Integer, StaffMember> loaded = StaffMemberDAO.loadByIds(List.of(all.get(0).getId(), all.get(1).getId()));
+            assertEquals(statements, statementCount(), "every id was already in the session");
+            assertSame(known, loaded.get(all.get(0).getId()));
+            assertSame(all.get(1), loaded.get(all.get(1).getId()));
+        });
+    }
+
+    @Test
+    void sharedBookingsAreOneInstance() {
+        Shift morning = createShift("08:00:00", "12:00:00");
+        Shift evening = createShift("18:00:00", "22:00:00");
+        ShiftDAO.addBooking(morning, cook);
+        ShiftDAO.addBooking(evening, cook);
+
+        List<Shift> shifts = ShiftDAO.loadAll();
+        StaffMember morningCook = find(shifts, morning.getId()).getBookedStaffMembers().get(cook.getId());
+        StaffMember eveningCook = find(shifts, evening.getId()).getBookedStaffMembers().get(cook.getId());
+
+        assertNotNull(morningCook);
+        assertSame(morningCook, eveningCook);
+    }
+
+    @Test
+    void deletedEntitiesAreEvicted() {
+        StaffMember temp = new StaffMember("session.temp@example.com", "Temp", "Session", new java.util.Date(),
+            "Via Po 1", "3331112222", 1000, StaffMember.EmploymentType.OCCASIONALE);
+
+        PersistenceManager.runInSession(() -> {
+            StaffMemberDAO.save(temp);
+            int id = temp.getId();
+            assertSame(temp, StaffMemberDAO.loadById(id));
+
+            assertTrue(StaffMemberDAO.delete(temp));
+            assertEquals(0, StaffMemberDAO.loadById(id).getId());
+        });
+    }
+
+
+    // HELPERS
+
+    private static long hits(Class<?> type) {
+        return PersistenceManager.getIdentityMapStats().stream()
+            .filter(s -> s.getEntityType().equals(type.getSimpleName()))
+            .mapToLong(IdentityMapStats::getHits)
+            .sum();
+    }
+
+    private static Shift createShift(String start, String end) {
+        // Same text format as the seed data, which is what ShiftDAO reads back
+        String insert = "INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)";
+        Shift shift = new Shift(Date.valueOf("2030-01-10"), Time.valueOf(start), Time.valueOf(end));
+        shift.setId(PersistenceManager.executeInsert(insert, "2030-01-10", start, end));
+        return shift;
+    }
+
+    private static Shift find(List<Shift> shifts, int id) {
+        return shifts.stream().filter(s -> s.getId() == id).findFirst().orElseThrow();
+    }
+}
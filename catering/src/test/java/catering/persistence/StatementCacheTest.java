@@ -0,0 +1,124 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTest {
+    private static final Logger LOGGER = LogManager.getLogger(StatementCacheTest.class);
+
+    private Connection connection;
+    private StatementCacheStats stats;
+    private StatementCache cache;
+
+    @BeforeAll
+    static void init() {
+        LOGGER.info("Starting test: StatementCacheTest");
+    }
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        stats = new StatementCacheStats();
+        cache = new StatementCache(connection, 2, stats);
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        cache.clear();
+        connection.close();
+    }
+
+    @Test
+    void aClosedLeaseIsReused() throws SQLException {
+        PreparedStatement first;
+        try (StatementCache.Lease lease = cache.prepare("SELECT ?", false)) {
+            first = lease.getStatement();
+            assertEquals(7, selectOne(first, 7));
+        }
+        try (StatementCache.Lease lease = cache.prepare("SELECT ?", false)) {
+            assertSame(first, lease.getStatement());
+            assertEquals(8, selectOne(lease.getStatement(), 8));
+        }
+
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getHits());
+        assertFalse(first.isClosed());
+    }
+
+    @Test
+    void aStatementInUseIsNotHandedOutTwice() throws SQLException {
+        try (StatementCache.Lease outer = cache.prepare("SELECT ?", false)) {
+            StatementCache.Lease inner = cache.prepare("SELECT ?", false);
+            assertNotSame(outer.getStatement(), inner.getStatement());
+            assertEquals(2, selectOne(inner.getStatement(), 2));
+            inner.close();
+            assertTrue(inner.getStatement().isClosed(), "the nested statement is thrown away");
+
+            assertEquals(1, selectOne(outer.getStatement(), 1));
+            assertFalse(outer.getStatement().isClosed());
+        }
+
+        assertEquals(1, stats.getBypasses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void theLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+        PreparedStatement one = prepareAndClose("SELECT 1");
+        PreparedStatement two = prepareAndClose("SELECT 2");
+        prepareAndClose("SELECT 1");
+        PreparedStatement three = prepareAndClose("SELECT 3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, stats.getEvictions());
+        assertTrue(two.isClosed(), "the eldest entry is closed");
+        assertFalse(one.isClosed());
+        assertFalse(three.isClosed());
+    }
+
+    @Test
+    void anEvictedStatementStaysOpenUntilItsLeaseCloses() throws SQLException {
+        StatementCache.Lease busy = cache.prepare("SELECT ?", false);
+        prepareAndClose("SELECT 2");
+        prepareAndClose("SELECT 3");
+
+        assertEquals(1, stats.getEvictions());
+        assertFalse(busy.getStatement().isClosed(), "still in use");
+        assertEquals(4, selectOne(busy.getStatement(), 4));
+        busy.close();
+        assertTrue(busy.getStatement().isClosed());
+
+        try (StatementCache.Lease fresh = cache.prepare("SELECT ?", false)) {
+            assertNotSame(busy.getStatement(), fresh.getStatement());
+        }
+    }
+
+
+    // HELPERS
+
+    private PreparedStatement prepareAndClose(String sql) throws SQLException {
+        try (StatementCache.Lease lease = cache.prepare(sql, false)) {
+            return lease.getStatement();
+        }
+    }
+
+    private static int selectOne(PreparedStatement ps, int value) throws SQLException {
+        ps.setInt(1, value);
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
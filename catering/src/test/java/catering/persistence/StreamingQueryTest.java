@@ -0,0 +1,90 @@
+package catering.persistence;
+
+import catering.domains.event.domain.Event;
+import catering.domains.event.infrastructure.EventDAO;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingQueryTest {
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(StreamingQueryTest.class);
+    }
+
+    @Test
+    void streamsEveryRowInOrder() {
+        List<Integer> ids;
+        try (Stream<Integer> rows = PersistenceManager.stream("SELECT id FROM StaffMembers ORDER BY id", 2, rs -> rs.getInt("id"))) {
+            ids = rows.collect(Collectors.toList());
+        }
+
+        assertFalse(ids.isEmpty());
+        assertEquals(StaffMemberDAO.loadAll().size(), ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+        assertNoConnectionHeld();
+    }
+
+    @Test
+    void closingAPartiallyReadStreamReleasesTheConnection() {
+        try (Stream<Integer> rows = PersistenceManager.stream("SELECT id FROM StaffMembers", rs -> rs.getInt("id"))) {
+            assertEquals(1, rows.limit(1).count());
+        }
+        assertNoConnectionHeld();
+    }
+
+    @Test
+    void exhaustedCursorClosesItself() {
+        QueryCursor<String> cursor = PersistenceManager.openCursor("SELECT email FROM StaffMembers", 16, rs -> rs.getString("email"));
+        int count = 0;
+        while (cursor.hasNext()) {
+            assertNotNull(cursor.next());
+            count++;
+        }
+
+        assertTrue(count > 0);
+        assertNoConnectionHeld();
+    }
+
+    @Test
+    void mapperFailureClosesTheCursor() {
+        QueryCursor<Integer> cursor = PersistenceManager.openCursor("SELECT id FROM StaffMembers", 16, rs -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThrows(IllegalStateException.class, cursor::hasNext);
+        assertFalse(cursor.hasNext());
+        assertNoConnectionHeld();
+    }
+
+    @Test
+    void failingQueryYieldsAnEmptyStream() {
+        try (Stream<Integer> rows = PersistenceManager.stream("SELECT id FROM NoSuchTable", rs -> rs.getInt("id"))) {
+            assertEquals(0, rows.count());
+        }
+        assertNoConnectionHeld();
+    }
+
+    @Test
+    void daoStreamsMatchTheirListVariants() {
+        List<Event> events = EventDAO.loadAll();
+        try (Stream<Event> streamed = EventDAO.streamAll()) {
+            assertEquals(
+                events.stream().map(Event::getId).collect(Collectors.toList()),
+                streamed.map(Event::getId).collect(Collectors.toList()));
+        }
+        assertNoConnectionHeld();
+    }
+
+    private static void assertNoConnectionHeld() {
+        assertEquals(0, PersistenceManager.getReaderPoolStats().getActive(), "Cursor should have released its connection");
+    }
+}
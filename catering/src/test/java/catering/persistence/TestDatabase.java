@@ -0,0 +1,27 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+
+/**
+ * Setup and measurements shared by the tests that run against the database.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {}
+
+    /**
+     * Recreates the database from the init script and logs the start of the test class.
+     */
+    public static void initialize(Class<?> testClass) {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        LogManager.getLogger(testClass).info("Starting test: " + testClass.getSimpleName());
+    }
+
+    /**
+     * @return the statements run so far, whether or not they were served from the statement cache
+     */
+    public static long statementCount() {
+        StatementCacheStats stats = PersistenceManager.getStatementCacheStats();
+        return stats.getHits() + stats.getMisses() + stats.getBypasses();
+    }
+}
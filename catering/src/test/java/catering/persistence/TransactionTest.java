@@ -0,0 +1,122 @@
+package catering.persistence;
+
+import catering.domains.staffmember.domain.StaffMember;
+import catering.domains.staffmember.infrastructure.StaffMemberDAO;
+import catering.utils.DateUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionTest {
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(TransactionTest.class);
+    }
+
+    @Test
+    void commitsEveryStatementOfTheUnitOfWork() {
+        PersistenceManager.runInTransaction(() -> {
+            assertTrue(PersistenceManager.isInTransaction());
+            StaffMemberDAO.save(newStaffMember("tx.first@example.com"));
+            StaffMemberDAO.save(newStaffMember("tx.second@example.com"));
+        });
+
+        assertFalse(PersistenceManager.isInTransaction());
+        assertNotNull(StaffMemberDAO.loadByEmail("tx.first@example.com"));
+        assertNotNull(StaffMemberDAO.loadByEmail("tx.second@example.com"));
+    }
+
+    @Test
+    void rollsBackWhenTheWorkThrows() {
+        assertThrows(IllegalStateException.class, () -> PersistenceManager.runInTransaction(() -> {
+            StaffMemberDAO.save(newStaffMember("tx.rollback@example.com"));
+            throw new IllegalStateException("abort");
+        }));
+
+        assertNull(StaffMemberDAO.loadByEmail("tx.rollback@example.com"), "Insert should have been rolled back");
+    }
+
+    @Test
+    void nestedFailureRollsBackOnlyTheNestedWork() {
+        PersistenceManager.runInTransaction(() -> {
+            StaffMemberDAO.save(newStaffMember("tx.outer@example.com"));
+            try {
+                PersistenceManager.runInTransaction(() -> {
+                    StaffMemberDAO.save(newStaffMember("tx.inner@example.com"));
+                    throw new IllegalStateException("abort nested");
+                });
+            } catch (IllegalStateException expected) {
+                // The outer unit of work carries on
+            }
+        });
+
+        assertNotNull(StaffMemberDAO.loadByEmail("tx.outer@example.com"));
+        assertNull(StaffMemberDAO.loadByEmail("tx.inner@example.com"), "Nested insert should have been rolled back");
+    }
+
+    @Test
+    void failedStatementRollsBackTheWholeTransaction() {
+        StaffMember staff = newStaffMember("tx.failed@example.com");
+        assertThrows(TransactionException.class, () -> PersistenceManager.runInTransaction(() -> {
+            StaffMemberDAO.save(staff);
+            PersistenceManager.executeUpdate("INSERT INTO NoSuchTable (id) VALUES (?)", 1);
+        }), "The caller should see that its work was discarded");
+
+        assertNull(StaffMemberDAO.loadByEmail("tx.failed@example.com"), "Insert should have been rolled back");
+        assertEquals(0, staff.getId(), "The id of the undone insert should be forgotten");
+    }
+
+    @Test
+    void failedStatementFailsTheResultOfTheWork() {
+        StaffMember staff = newStaffMember("tx.session@example.com");
+        PersistenceManager.runInSession(() -> {
+            assertThrows(TransactionException.class, () -> PersistenceManager.inTransaction(() -> {
+                StaffMemberDAO.save(staff);
+                PersistenceManager.executeUpdate("UPDATE NoSuchTable SET id = ?", 1);
+                return staff.getId();
+            }));
+            StaffMember other = newStaffMember("tx.next@example.com");
+            StaffMemberDAO.save(other);
+            assertSame(other, StaffMemberDAO.loadById(other.getId()), "A reused id must not resolve to the undone insert");
+        });
+    }
+
+    @Test
+    void failedDaoWritesReportFailureWithoutThrowing() {
+        StaffMember first = newStaffMember("tx.duplicate@example.com");
+        StaffMemberDAO.save(first);
+        assertTrue(first.getId() > 0);
+
+        StaffMember duplicate = newStaffMember("tx.duplicate@example.com");
+        PersistenceManager.runInSession(() -> {
+            assertDoesNotThrow(() -> StaffMemberDAO.save(duplicate));
+            assertEquals(0, duplicate.getId());
+            assertNotSame(duplicate, StaffMemberDAO.loadById(0), "a failed insert must not be attached");
+        });
+
+        first.setEmail(null);
+        assertFalse(StaffMemberDAO.update(first));
+    }
+
+    @Test
+    void returnsTheResultOfTheWork() {
+        int id = PersistenceManager.inTransaction(() -> {
+            StaffMember staff = newStaffMember("tx.result@example.com");
+            StaffMemberDAO.save(staff);
+            return staff.getId();
+        });
+
+        assertTrue(id > 0);
+        assertEquals(id, StaffMemberDAO.loadByEmail("tx.result@example.com").getId());
+    }
+
+    private static StaffMember newStaffMember(String email) {
+        StaffMember staff = new StaffMember(email, "Tx", "Test", DateUtils.safeValueOf("1990-01-01"),
+            "Via Roma 1, Torino", "+39 300 0000000", 1000, StaffMember.EmploymentType.OCCASIONALE);
+        staff.addRole(StaffMember.Role.CUOCO, new HashSet<>());
+        return staff;
+    }
+}
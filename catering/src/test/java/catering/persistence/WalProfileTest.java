@@ -0,0 +1,169 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalProfileTest {
+    private static final Logger LOGGER = LogManager.getLogger(WalProfileTest.class);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool writer;
+    private ConnectionPool readers;
+
+    @BeforeAll
+    static void init() {
+        LOGGER.info("Starting test: WalProfileTest");
+    }
+
+    @BeforeEach
+    void openPools() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("wal.db");
+        StorageConfig storage = withProperties(StorageConfig::fromSystemProperties,
+            "catering.db.profile", "wal", "catering.db.pool.writer.maxSize", "4", "catering.db.pool.reader.maxSize", "3");
+        writer = PersistenceManager.openWriterPool(url, storage, new StatementCacheStats());
+        readers = PersistenceManager.openReaderPool(url, storage, writer, new StatementCacheStats());
+
+        PooledConnection pc = writer.borrow();
+        try (Statement stmt = pc.getConnection().createStatement()) {
+            stmt.executeUpdate("CREATE TABLE Items (id INTEGER PRIMARY KEY, name TEXT)");
+            stmt.executeUpdate("INSERT INTO Items (name) VALUES ('first')");
+        } finally {
+            writer.release(pc);
+        }
+    }
+
+    @AfterEach
+    void closePools() {
+        readers.close();
+        writer.close();
+    }
+
+    @Test
+    void thePoolsAreSizedSeparately() {
+        assertNotSame(writer, readers);
+        assertEquals(1, writer.getStats().getMaxSize(), "SQLite takes one writer at a time");
+        assertEquals(3, readers.getStats().getMaxSize());
+    }
+
+    @Test
+    void rollbackJournalReadsShareTheWriter() {
+        StorageConfig storage = withProperties(StorageConfig::fromSystemProperties,
+            "catering.db.profile", "rollback_journal", "catering.db.pool.writer.maxSize", "4");
+        ConnectionPool pool = PersistenceManager.openWriterPool("jdbc:sqlite:" + dir.resolve("journal.db"), storage, new StatementCacheStats());
+        try {
+            assertEquals(4, pool.getStats().getMaxSize());
+            assertSame(pool, PersistenceManager.openReaderPool("unused", storage, pool, new StatementCacheStats()));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void theDatabaseIsInWalMode() throws SQLException {
+        PooledConnection pc = readers.borrow();
+        try (Statement stmt = pc.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(rs.next());
+            assertEquals("wal", rs.getString(1));
+        } finally {
+            readers.release(pc);
+        }
+    }
+
+    @Test
+    void aWriteCommitsWhileAReadIsOpen() throws Exception {
+        PooledConnection reader = readers.borrow();
+        try {
+            Connection conn = reader.getConnection();
+            conn.setAutoCommit(false);
+            assertEquals(1, countItems(conn), "the read snapshot starts here");
+
+            long start = System.nanoTime();
+            CompletableFuture.runAsync(() -> insertItem("second")).get(10, TimeUnit.SECONDS);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(millis < 2_000, "the commit didn't wait for the reader: " + millis + "ms");
+            assertEquals(1, countItems(conn), "the open read keeps its snapshot");
+            conn.commit();
+            assertEquals(2, countItems(conn));
+            conn.setAutoCommit(true);
+        } finally {
+            readers.release(reader);
+        }
+    }
+
+    @Test
+    void readsGoToTheWriterOnlyWhileItIsHeld() throws Exception {
+        assertSame(readers, PersistenceManager.readPool(writer, readers));
+
+        PooledConnection pc = writer.borrow();
+        try {
+            assertSame(writer, PersistenceManager.readPool(writer, readers), "a transaction sees its own writes");
+            ConnectionPool elsewhere = CompletableFuture.supplyAsync(() -> PersistenceManager.readPool(writer, readers))
+                .get(5, TimeUnit.SECONDS);
+            assertSame(readers, elsewhere, "other threads keep reading from the readers");
+        } finally {
+            writer.release(pc);
+        }
+        assertSame(readers, PersistenceManager.readPool(writer, readers));
+    }
+
+
+    // HELPERS
+
+    /**
+     * Builds a configuration with the given system properties set, clearing them afterwards.
+     */
+    private static StorageConfig withProperties(Supplier<StorageConfig> config, String... keysAndValues) {
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            System.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        try {
+            return config.get();
+        } finally {
+            for (int i = 0; i < keysAndValues.length; i += 2) {
+                System.clearProperty(keysAndValues[i]);
+            }
+        }
+    }
+
+    private void insertItem(String name) {
+        PooledConnection pc = null;
+        try {
+            pc = writer.borrow();
+            try (Statement stmt = pc.getConnection().createStatement()) {
+                stmt.executeUpdate("INSERT INTO Items (name) VALUES ('" + name + "')");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            writer.release(pc);
+        }
+    }
+
+    private static int countItems(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT count(*) FROM Items")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package catering.persistence;
+
+import catering.utils.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteQueueTest {
+    private static final Logger LOGGER = LogManager.getLogger(WriteQueueTest.class);
+
+    @BeforeAll
+    static void init() {
+        TestDatabase.initialize(WriteQueueTest.class);
+    }
+
+    @Test
+    void groupsConcurrentWritesIntoBatches() {
+        long batchesBefore = PersistenceManager.getWriteQueueStats().getBatches();
+        List<CompletableFuture<WriteResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            futures.add(PersistenceManager.submitUpdate("UPDATE StaffMembers SET wage = ? WHERE id = 1", 1000 + i));
+        }
+
+        for (CompletableFuture<WriteResult> future : futures) {
+            assertEquals(1, future.join().getRows());
+        }
+
+        WriteQueueStats stats = PersistenceManager.getWriteQueueStats();
+        LOGGER.info(stats.toString());
+        assertTrue(stats.getBatches() - batchesBefore < 500, "Writes should have shared commits");
+
+        int[] wage = new int[1];
+        PersistenceManager.executeQuery("SELECT wage FROM StaffMembers WHERE id = 1", rs -> wage[0] = rs.getInt(1));
+        assertEquals(1499, wage[0], "Writes should be applied in submission order");
+    }
+
+    @Test
+    void returnsTheGeneratedKeyOfAnInsert() {
+        WriteResult result = PersistenceManager.executeQueuedUpdate(
+            "INSERT INTO HolidayLeave (staff_member_id, start_date, end_date, status) VALUES (?, ?, ?, ?)",
+            1, "2025-08-01", "2025-08-10", "IN_ATTESA");
+
+        assertEquals(1, result.getRows());
+        assertTrue(result.getGeneratedKey() > 0);
+
+        int[] found = new int[1];
+        PersistenceManager.executeQuery("SELECT count(*) FROM HolidayLeave WHERE id = ?",
+            rs -> found[0] = rs.getInt(1), result.getGeneratedKey());
+        assertEquals(1, found[0]);
+    }
+
+    @Test
+    void failingWriteFailsOnlyItsOwnFuture() {
+        CompletableFuture<WriteResult> good = PersistenceManager.submitUpdate("UPDATE StaffMembers SET wage = ? WHERE id = 2", 777);
+        CompletableFuture<WriteResult> bad = PersistenceManager.submitUpdate("UPDATE NoSuchTable SET x = ?", 1);
+
+        assertEquals(1, good.join().getRows());
+        assertThrows(CompletionException.class, bad::join);
+        assertEquals(WriteResult.NONE, PersistenceManager.executeQueuedUpdate("UPDATE NoSuchTable SET x = ?", 1));
+    }
+
+    @Test
+    void runsInsideTheCallersTransaction() {
+        assertThrows(IllegalStateException.class, () -> PersistenceManager.runInTransaction(() -> {
+            WriteResult result = PersistenceManager.executeQueuedUpdate("UPDATE StaffMembers SET wage = ? WHERE id = 3", 4242);
+            assertEquals(1, result.getRows());
+            throw new IllegalStateException("abort");
+        }));
+
+        int[] wage = new int[1];
+        PersistenceManager.executeQuery("SELECT wage FROM StaffMembers WHERE id = 3", rs -> wage[0] = rs.getInt(1));
+        assertNotEquals(4242, wage[0], "Queued write should have been rolled back with the transaction");
+    }
+
+    @Test
+    void unexpectedErrorsDontStopTheWriter() {
+        // Binding it throws an unchecked exception, not an SQLException
+        Date unbindable = new Date() {
+            @Override
+            public long getTime() {
+                throw new IllegalStateException("unbindable");
+            }
+        };
+        CompletableFuture<WriteResult> bad = PersistenceManager.submitUpdate("UPDATE StaffMembers SET wage = ? WHERE id = 4", unbindable);
+        CompletableFuture<WriteResult> good = PersistenceManager.submitUpdate("UPDATE StaffMembers SET wage = ? WHERE id = 4", 555);
+
+        CompletionException failure = assertThrows(CompletionException.class, bad::join);
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertEquals(1, good.join().getRows());
+        assertEquals(1, PersistenceManager.executeQueuedUpdate("UPDATE StaffMembers SET wage = ? WHERE id = 4", 556).getRows());
+    }
+
+    @Test
+    void writesRacingCloseAllComplete(@TempDir Path dir) throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("queue.db");
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (v INTEGER)");
+        }
+        ConnectionPool pool = new ConnectionPool("close-test", () -> DriverManager.getConnection(url), new PoolConfig());
+        WriteQueue queue = new WriteQueue("close-test", pool, new WriteQueueConfig());
+
+        List<CompletableFuture<WriteResult>> futures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread writer = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 2000; i++) {
+                    futures.add(queue.submit("INSERT INTO t (v) VALUES (?)", i));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        started.await();
+        queue.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        int committed = 0;
+        for (CompletableFuture<WriteResult> future : futures) {
+            // Each write is either committed or refused, none is left hanging
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                committed++;
+            } catch (ExecutionException refused) {
+                assertTrue(refused.getMessage().contains("closed"));
+            }
+        }
+        assertEquals(committed, queue.getStats().getCommitted());
+        pool.close();
+    }
+}